@@ -5,6 +5,11 @@ import processing.core.PVector;
 abstract class BoundingBox {
 
 	protected final Entity entity;
+	
+	/**
+	 * Where the location of the entity is put for tests against other boxes so that they don't allocate.
+	 */
+	private final PVector entityLocation;
 
 	/**
 	 * A BoundingBox must be attached to an entity.
@@ -14,10 +19,22 @@ abstract class BoundingBox {
 	BoundingBox(Entity entity){
 		if(entity == null) throw new IllegalArgumentException("A BoundingBox must be attached to an entity.");
 		this.entity = entity;
+		this.entityLocation = new PVector();
 	}
 	
 	public abstract boolean contains(PVector point);
 	
+	/**
+	 * Test if the given point is inside this BoundingBox.
+	 * 2D boxes ignore the z value.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	public abstract boolean contains(float x, float y, float z);
+	
 	/**
 	 * Test if the given BoundingBox is contained by this BoundingBox.
 	 * 
@@ -25,7 +42,7 @@ abstract class BoundingBox {
 	 * @return
 	 */
 	boolean contains(BoundingBox other) {
-		return contains(other, entity.getLocation());
+		return contains(other, entity.getLocation(entityLocation));
 	}
 	
 	/**
@@ -70,7 +87,7 @@ abstract class BoundingBox {
 	 * @return
 	 */
 	boolean intersects(BoundingBox other) {
-		return intersects(other, entity.getLocation());
+		return intersects(other, entity.getLocation(entityLocation));
 	}
 	
 	/**
@@ -1,13 +1,13 @@
 package gamelib.game;
 
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 import processing.core.PVector;
 
 public class BoundingBox2D extends BoundingBox {
 
-	private Rectangle2D.Float box;
+	private float x, y;				// the bottom left corner
+	private float width, height;
 	
 	public BoundingBox2D(Entity ent, float width, float height){
 		this(ent, -width/2, -height/2, width, height);
@@ -15,17 +15,54 @@ public class BoundingBox2D extends BoundingBox {
 
 	public BoundingBox2D(Entity ent, float x, float y, float width, float height){
 		super(ent);
-		this.box = new Rectangle2D.Float(x, y, width, height);
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
 	}
 
 	@Override
 	public boolean contains(PVector point) {
-		return box.contains(new Point2D.Float(point.x, point.y));
+		return contains(point.x, point.y);
+	}
+
+	@Override
+	public boolean contains(float px, float py, float pz) {
+		return contains(px, py);
+	}
+
+	/**
+	 * Test if the given point is inside this BoundingBox.
+	 * Points on the bottom and left edges are inside; points on the top and right edges are not.
+	 * 
+	 * @param px
+	 * @param py
+	 * @return
+	 */
+	public boolean contains(float px, float py) {
+		return px >= x && py >= y && px < x + width && py < y + height;
 	}
 
 	@Override
 	public boolean contains(BoundingBox2D other, PVector location) {
-		return getBoxForTest(location).contains(other.box);
+		return contains(other, location.x, location.y);
+	}
+
+	/**
+	 * Test if the given BoundingBox is contained by this BoundingBox when this one is centered on the given location.
+	 * 
+	 * @param other
+	 * @param cx
+	 * @param cy
+	 * @return
+	 */
+	public boolean contains(BoundingBox2D other, float cx, float cy) {
+		if (width <= 0 || height <= 0 || other.width <= 0 || other.height <= 0) {
+			return false;
+		}
+		float minX = cx - width / 2;
+		float minY = cy - height / 2;
+		return other.x >= minX && other.y >= minY && other.x + other.width <= minX + width && other.y + other.height <= minY + height;
 	}
 	
 	@Override
@@ -35,7 +72,53 @@ public class BoundingBox2D extends BoundingBox {
 
 	@Override
 	public boolean intersects(BoundingBox2D other, PVector location) {
-		return  getBoxForTest(location).intersects(other.box);
+		return intersects(other, location.x, location.y);
+	}
+
+	/**
+	 * Test if the given BoundingBox intersects this BoundingBox when this one is centered on the given location.
+	 * Boxes that only touch do not intersect.
+	 * 
+	 * @param other
+	 * @param cx
+	 * @param cy
+	 * @return
+	 */
+	public boolean intersects(BoundingBox2D other, float cx, float cy) {
+		float minX = cx - width / 2;
+		float minY = cy - height / 2;
+		return intersects(minX, minY, minX + width, minY + height, other);
+	}
+
+	/**
+	 * Test if the given box intersects this BoundingBox.
+	 * Boxes that only touch do not intersect.
+	 * 
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @return
+	 */
+	public boolean intersects(float minX, float minY, float maxX, float maxY) {
+		return intersects(minX, minY, maxX, maxY, this);
+	}
+
+	/**
+	 * Test if the first box intersects the second one.
+	 * 
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param other
+	 * @return
+	 */
+	private static boolean intersects(float minX, float minY, float maxX, float maxY, BoundingBox2D other) {
+		if (maxX <= minX || maxY <= minY || other.width <= 0 || other.height <= 0) {
+			return false;
+		}
+		return other.x + other.width > minX && other.y + other.height > minY && other.x < maxX && other.y < maxY;
 	}
 
 	@Override
@@ -46,25 +129,23 @@ public class BoundingBox2D extends BoundingBox {
 
 	/**
 	 * Get a new box at the given location.
+	 * Note: This allocates a new rectangle; collision tests should use {@link #intersects(BoundingBox2D, float, float)} instead.
 	 * 
 	 * @param location
 	 * @return
 	 */
 	public Rectangle2D.Float getBoxForTest(PVector location) {
-		float width = getWidth();
-		float height = getHeight();
-		Rectangle2D.Float colBox = new Rectangle2D.Float(location.x - width / 2 , location.y - height / 2, width, height);
-		return colBox;
+		return new Rectangle2D.Float(location.x - width / 2 , location.y - height / 2, width, height);
 	}
 
 	@Override
 	public float getCenterX() {
-		return (float) this.box.getX() + getWidth() / 2;
+		return x + width / 2;
 	}
 
 	@Override
 	public float getCenterY() {
-		return (float) this.box.getY() + getHeight() / 2;
+		return y + height / 2;
 	}
 
 	@Override
@@ -74,12 +155,12 @@ public class BoundingBox2D extends BoundingBox {
 
 	@Override
 	public float getWidth() {
-		return (float) this.box.getWidth();
+		return width;
 	}
 
 	@Override
 	public float getHeight() {
-		return (float) this.box.getHeight();
+		return height;
 	}
 
 	@Override
@@ -89,12 +170,12 @@ public class BoundingBox2D extends BoundingBox {
 
 	@Override
 	public float getMinX() {
-		return (float) (this.box.getX());
+		return x;
 	}
 
 	@Override
 	public float getMinY() {
-		return (float) (this.box.getY());
+		return y;
 	}
 
 	@Override
@@ -104,12 +185,12 @@ public class BoundingBox2D extends BoundingBox {
 
 	@Override
 	public float getMaxX() {
-		return (float) (this.box.getX() + this.box.getWidth());
+		return x + width;
 	}
 
 	@Override
 	public float getMaxY() {
-		return (float) (this.box.getY() + this.box.getHeight());
+		return y + height;
 	}
 
 	@Override
@@ -119,14 +200,14 @@ public class BoundingBox2D extends BoundingBox {
 
 	@Override
 	public void setWidth(float width) {
-		float dx = (this.box.width - width) / 2;
-		this.box = new Rectangle2D.Float(this.box.x + dx, this.box.y, width, this.box.height);
+		this.x += (this.width - width) / 2;
+		this.width = width;
 	}
 
 	@Override
 	public void setHeight(float height) {
-		float dy = (this.box.height - height) / 2;
-		this.box = new Rectangle2D.Float(this.box.x, this.box.y + dy, this.box.width, height);
+		this.y += (this.height - height) / 2;
+		this.height = height;
 	}
 
 	@Override
@@ -136,12 +217,12 @@ public class BoundingBox2D extends BoundingBox {
 
 	@Override
 	public void setCenterX(float x) {
-		this.box = new Rectangle2D.Float(x - this.box.width / 2, this.box.y, this.box.width, this.box.height);
+		this.x = x - width / 2;
 	}
 
 	@Override
 	public void setCenterY(float y) {
-		this.box = new Rectangle2D.Float(this.box.x, y - this.box.height / 2, this.box.width, this.box.height);
+		this.y = y - height / 2;
 	}
 
 	@Override
@@ -151,24 +232,24 @@ public class BoundingBox2D extends BoundingBox {
 
 	@Override
 	public void setSize(PVector size) {
-		float dx = (this.box.width - size.x) / 2;
-		float dy = (this.box.height - size.y) / 2;
-		this.box = new Rectangle2D.Float(this.box.x + dx, this.box.y + dy, size.x, size.y);
+		setWidth(size.x);
+		setHeight(size.y);
 	}
 
 	@Override
 	public void setLocation(PVector location) {
-		this.box = new Rectangle2D.Float(location.x - this.box.width / 2, location.y - this.box.height / 2, this.box.width, this.box.height);
+		this.x = location.x - width / 2;
+		this.y = location.y - height / 2;
 	}
 
 	@Override
 	public void addX(float x) {
-		this.box = new Rectangle2D.Float(this.box.x + x, this.box.y, this.box.width, this.box.height);
+		this.x += x;
 	}
 
 	@Override
 	public void addY(float y) {
-		this.box = new Rectangle2D.Float(this.box.x, this.box.y + y, this.box.width, this.box.height);
+		this.y += y;
 	}
 
 	@Override
@@ -178,12 +259,15 @@ public class BoundingBox2D extends BoundingBox {
 
 	@Override
 	public void addLocation(PVector pVector) {
-		this.box = new Rectangle2D.Float(this.box.x + pVector.y, this.box.y + pVector.y, this.box.width, this.box.height);
+		this.x += pVector.x;
+		this.y += pVector.y;
 	}
 
 	@Override
 	public void setDimensions(PVector location, PVector size) {
-		this.box = new Rectangle2D.Float(location.x - size.x / 2, location.y - size.y / 2, size.x, size.y);
+		this.width = size.x;
+		this.height = size.y;
+		setLocation(location);
 	}
 	
 	@Override
@@ -192,15 +276,15 @@ public class BoundingBox2D extends BoundingBox {
 	}
 	
 	public String getBox() {
-		return "(" + this.box.getX() + ", "  + this.box.getY() + ", "  + this.box.getWidth() + ", "  + this.box.getHeight() + ")";
+		return "(" + x + ", "  + y + ", "  + width + ", "  + height + ")";
 	}
 	
 	public String getBoxInPixels() {
 		Level level = entity.getLevel();
 		return "(" + 
-				level.convertGridUnitsXToPixels((float) this.box.getX()) + ", "  + 
-				level.convertGridUnitsYToPixels((float) this.box.getY()) + ", "  + 
-				level.convertGridUnitsWidthToPixels((float) this.box.getWidth()) + ", "  + 
-				level.convertGridUnitsHeightToPixels((float) this.box.getHeight()) + ")";
+				level.convertGridUnitsXToPixels(x) + ", "  + 
+				level.convertGridUnitsYToPixels(y) + ", "  + 
+				level.convertGridUnitsWidthToPixels(width) + ", "  + 
+				level.convertGridUnitsHeightToPixels(height) + ")";
 	}
 }
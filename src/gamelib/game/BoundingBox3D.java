@@ -14,20 +14,36 @@ public class BoundingBox3D extends BoundingBox {
 
 	public BoundingBox3D(Entity ent, float x, float y, float z, float width, float height, float depth){
 		super(ent);
-		this.halfWidth  = (this.width  = width)  / 2;
-		this.halfHeight = (this.height = height) / 2;
-		this.halfDepth  = (this.depth  = depth)  / 2;
+		this.width  = width;
+		this.height = height;
+		this.depth  = depth;
 		this.location = new PVector(x, y, z);
-		this.minLocation = new PVector(x-halfWidth, y-halfHeight, z-halfDepth);
-		this.maxLocation = new PVector(x+halfWidth, y+halfHeight, z+halfDepth);
+		this.minLocation = new PVector();
+		this.maxLocation = new PVector();
+		updateExtents();
+	}
+	
+	/**
+	 * Recalculate the min and max corners of the box (in world space) from its center and size.
+	 */
+	private void updateExtents() {
+		halfWidth  = width  / 2;
+		halfHeight = height / 2;
+		halfDepth  = depth  / 2;
+		minLocation.set(location.x - halfWidth, location.y - halfHeight, location.z - halfDepth);
+		maxLocation.set(location.x + halfWidth, location.y + halfHeight, location.z + halfDepth);
 	}
 
 	@Override
 	public boolean contains(PVector point) {
-		PVector offset = entity.getLocation();
-		return		point.x >= minLocation.x+offset.x && point.x <= maxLocation.x+offset.x
-				&&	point.y >= minLocation.y+offset.y && point.y <= maxLocation.y+offset.y
-				&&	point.z >= minLocation.z+offset.z && point.z <= maxLocation.z+offset.z;
+		return contains(point.x, point.y, point.z);
+	}
+
+	@Override
+	public boolean contains(float x, float y, float z) {
+		return		x >= minLocation.x && x <= maxLocation.x
+				&&	y >= minLocation.y && y <= maxLocation.y
+				&&	z >= minLocation.z && z <= maxLocation.z;
 	}
 
 	@Override
@@ -50,12 +66,9 @@ public class BoundingBox3D extends BoundingBox {
 
 	@Override
 	public boolean intersects(BoundingBox3D other, PVector location) {
-		PVector te = PVector.add(location, this.location);
-		PVector oe = PVector.add(other.entity.getLocation(), other.location);
-		
-		return	((te.x - halfWidth  < oe.x + other.width /2 && te.x + halfWidth  > oe.x - other.width /2) || (te.x + halfWidth  > oe.x - other.width /2 && te.x + halfWidth  < oe.x + other.width /2 ))
-			&&	((te.y - halfHeight < oe.y + other.height/2 && te.y + halfHeight > oe.y - other.height/2) || (te.y + halfHeight > oe.y - other.height/2 && te.y + halfHeight < oe.y + other.height/2 ))
-			&&	((te.z - halfDepth  < oe.z + other.depth /2 && te.z + halfDepth  > oe.z - other.depth /2) || (te.z + halfDepth  > oe.z - other.depth /2 && te.z + halfDepth  < oe.z + other.depth /2 ));
+		return	location.x - halfWidth  < other.maxLocation.x && location.x + halfWidth  > other.minLocation.x
+			&&	location.y - halfHeight < other.maxLocation.y && location.y + halfHeight > other.minLocation.y
+			&&	location.z - halfDepth  < other.maxLocation.z && location.z + halfDepth  > other.minLocation.z;
 	}
 
 	@Override
@@ -121,31 +134,37 @@ public class BoundingBox3D extends BoundingBox {
 	@Override
 	public void setWidth(float width) {
 		this.width = width;
+		updateExtents();
 	}
 
 	@Override
 	public void setHeight(float height) {
 		this.height = height;
+		updateExtents();
 	}
 
 	@Override
 	public void setDepth(float depth) {
 		this.depth = depth;
+		updateExtents();
 	}
 
 	@Override
 	public void setCenterX(float x) {
 		this.location.x = x;
+		updateExtents();
 	}
 
 	@Override
 	public void setCenterY(float y) {
 		this.location.y = y;
+		updateExtents();
 	}
 
 	@Override
 	public void setCenterZ(float z) {
 		this.location.z = z;
+		updateExtents();
 	}
 
 	@Override
@@ -157,9 +176,8 @@ public class BoundingBox3D extends BoundingBox {
 
 	@Override
 	public void setLocation(PVector location) {
-		setCenterX(location.x);
-		setCenterY(location.y);
-		setCenterZ(location.z);
+		this.location.set(location);
+		updateExtents();
 	}
 
 	@Override
@@ -171,20 +189,24 @@ public class BoundingBox3D extends BoundingBox {
 	@Override
 	public void addX(float x) {
 		this.location.x += x;
+		updateExtents();
 	}
 
 	@Override
 	public void addY(float y) {
 		this.location.y += y;
+		updateExtents();
 	}
 
 	@Override
 	public void addZ(float z) {
 		this.location.z += z;
+		updateExtents();
 	}
 
 	@Override
 	public void addLocation(PVector pVector) {
 		this.location.add(pVector);
+		updateExtents();
 	}
 }
@@ -0,0 +1,262 @@
+package gamelib.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A copy of the bounding boxes of all the colliders in a level, kept in one array per side of the box.
+ * Each collider's box is in the slot given by its id, and the slots of everything else are empty.
+ *
+ * Reading the bounds from here is cheaper than going through each entity's {@link BoundingBox},
+ * and testing a run of slots against a box is a loop over plain arrays that HotSpot can vectorize.
+ * A collider's slot must be updated whenever its bounding box changes.
+ *
+ * @author Rebecca Stevens
+ */
+final class BoundsStore {
+
+	private Entity[] entities;
+	private float[] minX, minY, minZ;
+	private float[] maxX, maxY, maxZ;
+	private int size;	// one more than the highest slot that has been used
+
+	private byte[] mask;
+
+	/**
+	 * Create an empty store.
+	 */
+	BoundsStore() {
+		this.entities = new Entity[64];
+		this.minX = emptyMins(64);
+		this.minY = emptyMins(64);
+		this.minZ = emptyMins(64);
+		this.maxX = emptyMaxes(64);
+		this.maxY = emptyMaxes(64);
+		this.maxZ = emptyMaxes(64);
+		this.mask = new byte[64];
+	}
+
+	/**
+	 * Copy the given entity's bounding box into its slot.
+	 *
+	 * @param entity
+	 */
+	void update(Entity entity) {
+		int slot = entity.getId();
+		if (slot < 0) {
+			return;
+		}
+		if (slot >= entities.length) {
+			grow(slot + 1);
+		}
+		BoundingBox bb = entity.getBoundingBox();
+		entities[slot] = entity;
+		minX[slot] = bb.getMinX();
+		minY[slot] = bb.getMinY();
+		minZ[slot] = bb.getMinZ();
+		maxX[slot] = bb.getMaxX();
+		maxY[slot] = bb.getMaxY();
+		maxZ[slot] = bb.getMaxZ();
+		if (slot >= size) {
+			size = slot + 1;
+		}
+	}
+
+	/**
+	 * Test if the given entity's slot holds its bounding box as it is now.
+	 *
+	 * @param entity
+	 * @return
+	 */
+	boolean matches(Entity entity) {
+		int slot = entity.getId();
+		if (slot < 0 || slot >= size || entities[slot] != entity) {
+			return false;
+		}
+		BoundingBox bb = entity.getBoundingBox();
+		return minX[slot] == bb.getMinX() && minY[slot] == bb.getMinY() && minZ[slot] == bb.getMinZ()
+				&& maxX[slot] == bb.getMaxX() && maxY[slot] == bb.getMaxY() && maxZ[slot] == bb.getMaxZ();
+	}
+
+	/**
+	 * Empty the given entity's slot.
+	 * An empty slot doesn't overlap anything.
+	 *
+	 * @param entity
+	 */
+	void remove(Entity entity) {
+		int slot = entity.getId();
+		if (slot < 0 || slot >= size || entities[slot] != entity) {
+			return;
+		}
+		entities[slot] = null;
+		minX[slot] = minY[slot] = minZ[slot] = Float.POSITIVE_INFINITY;
+		maxX[slot] = maxY[slot] = maxZ[slot] = Float.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Test if the box in the given slot overlaps (or touches) the given box.
+	 *
+	 * @param slot
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @return
+	 */
+	boolean overlaps(int slot, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		return	this.minX[slot] <= maxX && this.maxX[slot] >= minX
+			&&	this.minY[slot] <= maxY && this.maxY[slot] >= minY
+			&&	this.minZ[slot] <= maxZ && this.maxZ[slot] >= minZ;
+	}
+
+	/**
+	 * Set mask[i - from] to 1 for each slot i in the given range whose box overlaps (or touches) the given box and to 0 for the rest.
+	 * The loop has no branches or calls in it so that HotSpot can vectorize it.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @param from The first slot to test
+	 * @param to The slot after the last slot to test
+	 * @param mask
+	 */
+	void overlapMask(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, int from, int to, byte[] mask) {
+		float[] minXs = this.minX, minYs = this.minY, minZs = this.minZ;
+		float[] maxXs = this.maxX, maxYs = this.maxY, maxZs = this.maxZ;
+		for (int i = from; i < to; i++) {
+			mask[i - from] = (byte) ((minXs[i] <= maxX & maxXs[i] >= minX
+									& minYs[i] <= maxY & maxYs[i] >= minY
+									& minZs[i] <= maxZ & maxZs[i] >= minZ) ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Add every entity whose box overlaps (or touches) the given box to the result list, in slot order.
+	 * Every slot is tested, so this is only worth doing for boxes that cover a lot of the level.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @param result
+	 */
+	void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		if (mask.length < size) {
+			mask = new byte[entities.length];
+		}
+		overlapMask(minX, minY, minZ, maxX, maxY, maxZ, 0, size, mask);
+		for (int i = 0; i < size; i++) {
+			if (mask[i] != 0) {
+				result.add(entities[i]);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of slots that have been used.
+	 *
+	 * @return
+	 */
+	int size() {
+		return size;
+	}
+
+	float getMinX(int slot) {
+		return minX[slot];
+	}
+
+	float getMinY(int slot) {
+		return minY[slot];
+	}
+
+	float getMinZ(int slot) {
+		return minZ[slot];
+	}
+
+	float getMaxX(int slot) {
+		return maxX[slot];
+	}
+
+	float getMaxY(int slot) {
+		return maxY[slot];
+	}
+
+	float getMaxZ(int slot) {
+		return maxZ[slot];
+	}
+
+	/**
+	 * Get the min side of the box in the given slot on the given axis (0 for x, 1 for y and 2 for z).
+	 *
+	 * @param slot
+	 * @param axis
+	 * @return
+	 */
+	float getMin(int slot, int axis) {
+		switch (axis) {
+		case 0: return minX[slot];
+		case 1: return minY[slot];
+		default: return minZ[slot];
+		}
+	}
+
+	/**
+	 * Get the max side of the box in the given slot on the given axis (0 for x, 1 for y and 2 for z).
+	 *
+	 * @param slot
+	 * @param axis
+	 * @return
+	 */
+	float getMax(int slot, int axis) {
+		switch (axis) {
+		case 0: return maxX[slot];
+		case 1: return maxY[slot];
+		default: return maxZ[slot];
+		}
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = Math.max(minCapacity, entities.length * 2);
+		entities = Arrays.copyOf(entities, capacity);
+		minX = growMins(minX, capacity);
+		minY = growMins(minY, capacity);
+		minZ = growMins(minZ, capacity);
+		maxX = growMaxes(maxX, capacity);
+		maxY = growMaxes(maxY, capacity);
+		maxZ = growMaxes(maxZ, capacity);
+	}
+
+	private static float[] emptyMins(int capacity) {
+		float[] array = new float[capacity];
+		Arrays.fill(array, Float.POSITIVE_INFINITY);
+		return array;
+	}
+
+	private static float[] emptyMaxes(int capacity) {
+		float[] array = new float[capacity];
+		Arrays.fill(array, Float.NEGATIVE_INFINITY);
+		return array;
+	}
+
+	private static float[] growMins(float[] array, int capacity) {
+		int oldLength = array.length;
+		array = Arrays.copyOf(array, capacity);
+		Arrays.fill(array, oldLength, capacity, Float.POSITIVE_INFINITY);
+		return array;
+	}
+
+	private static float[] growMaxes(float[] array, int capacity) {
+		int oldLength = array.length;
+		array = Arrays.copyOf(array, capacity);
+		Arrays.fill(array, oldLength, capacity, Float.NEGATIVE_INFINITY);
+		return array;
+	}
+}
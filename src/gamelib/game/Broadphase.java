@@ -0,0 +1,179 @@
+package gamelib.game;
+
+import java.util.List;
+
+/**
+ * A spatial structure that tracks the bounding boxes of the colliding entities in a level
+ * so that collision queries only need to look at entities that are nearby.
+ *
+ * A level has two broadphases; one for its moving colliders and one for the colliders that never move (see {@link Entity#isStatic()}).
+ * Everything the level does with collisions (moving entities, finding the ground, casts and the queries)
+ * starts with {@link #query} or {@link #findPairs}; the exact tests are then done by the level,
+ * so a broadphase only has to find the entities that might be colliding.
+ * Levels use {@link SpatialHash}, {@link SweepAndPrune} or {@link DynamicAABBTree} by default;
+ * a {@link BroadphaseFactory} can be given to a level to use a different one (such as {@link BruteForce} as a reference).
+ *
+ * The bounds of an entity should be read with {@link #getMinX(Entity)} and the other bounds getters.
+ * These return the bounds as they were when the entity was last inserted or updated.
+ * A broadphase is only ever used by one thread at a time, except that a broadphase that says it can be
+ * (see {@link #isConcurrentQuerySafe()}) may be queried by more than one thread at once while the level works out its collision pairs.
+ *
+ * @author Rebecca Stevens
+ */
+public abstract class Broadphase {
+
+	/**
+	 * The bounds of the entities; set when the broadphase is given to a level.
+	 */
+	BoundsStore bounds;
+
+	/**
+	 * Start tracking the given entity.
+	 *
+	 * @param entity
+	 */
+	public abstract void insert(Entity entity);
+
+	/**
+	 * Stop tracking the given entity.
+	 *
+	 * @param entity
+	 */
+	public abstract void remove(Entity entity);
+
+	/**
+	 * Let the broadphase know that the bounds of the given entity have changed.
+	 *
+	 * @param entity
+	 */
+	public abstract void update(Entity entity);
+
+	/**
+	 * Add every tracked entity whose bounds overlap (or touch) the given box to the result list.
+	 * Each entity is added at most once.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @param result The list to add the entities to
+	 */
+	public abstract void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result);
+
+	/**
+	 * Find every pair of tracked entities whose bounds overlap (or touch).
+	 * The pairs are added to the list as consecutive elements, so pair i is (pairs[2i], pairs[2i+1]).
+	 * Each pair is added at most once and no entity is paired with itself.
+	 *
+	 * @param pairs The list to add the pairs to
+	 */
+	public abstract void findPairs(List<Entity> pairs);
+
+	/**
+	 * Stop tracking all entities.
+	 */
+	public abstract void clear();
+
+	/**
+	 * Returns whether or not {@link #query} can be called by more than one thread at the same time,
+	 * as long as nothing is inserted, removed or updated while the queries are running.
+	 * A broadphase that keeps scratch state for its queries should return false.
+	 * By default this returns false.
+	 *
+	 * @return
+	 */
+	public boolean isConcurrentQuerySafe() {
+		return false;
+	}
+
+	/**
+	 * Give this broadphase the bounds of the level it is used by.
+	 * (To be called from the {@link Level} class)
+	 *
+	 * @param bounds
+	 */
+	final void attach(BoundsStore bounds) {
+		if (this.bounds != null) {
+			throw new IllegalArgumentException("A broadphase can only be used once.");
+		}
+		this.bounds = bounds;
+	}
+
+	/**
+	 * Test if the bounds of the given entity overlap (or touch) the given box.
+	 *
+	 * @param entity
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @return
+	 */
+	protected final boolean overlaps(Entity entity, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		return bounds.overlaps(entity.getId(), minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Get the smallest x coordinate of the given entity's bounds.
+	 *
+	 * @param entity
+	 * @return
+	 */
+	protected final float getMinX(Entity entity) {
+		return bounds.getMinX(entity.getId());
+	}
+
+	/**
+	 * Get the smallest y coordinate of the given entity's bounds.
+	 *
+	 * @param entity
+	 * @return
+	 */
+	protected final float getMinY(Entity entity) {
+		return bounds.getMinY(entity.getId());
+	}
+
+	/**
+	 * Get the smallest z coordinate of the given entity's bounds.
+	 *
+	 * @param entity
+	 * @return
+	 */
+	protected final float getMinZ(Entity entity) {
+		return bounds.getMinZ(entity.getId());
+	}
+
+	/**
+	 * Get the largest x coordinate of the given entity's bounds.
+	 *
+	 * @param entity
+	 * @return
+	 */
+	protected final float getMaxX(Entity entity) {
+		return bounds.getMaxX(entity.getId());
+	}
+
+	/**
+	 * Get the largest y coordinate of the given entity's bounds.
+	 *
+	 * @param entity
+	 * @return
+	 */
+	protected final float getMaxY(Entity entity) {
+		return bounds.getMaxY(entity.getId());
+	}
+
+	/**
+	 * Get the largest z coordinate of the given entity's bounds.
+	 *
+	 * @param entity
+	 * @return
+	 */
+	protected final float getMaxZ(Entity entity) {
+		return bounds.getMaxZ(entity.getId());
+	}
+}
@@ -0,0 +1,21 @@
+package gamelib.game;
+
+/**
+ * Creates the broadphases a level uses to find which entities might be colliding.
+ * A level asks for new broadphases when it is created and whenever it needs to rebuild them
+ * (such as when its collision cell size changes), so every call must return a new broadphase.
+ *
+ * @author Rebecca Stevens
+ */
+public interface BroadphaseFactory {
+
+	/**
+	 * Create a broadphase for the given level.
+	 * Note: This is called from the level's constructor, so the level may not be fully set up yet.
+	 *
+	 * @param level The level the broadphase is for
+	 * @param forStaticEntities Whether the broadphase will hold the entities that never move (see {@link Entity#isStatic()}) or the ones that do
+	 * @return
+	 */
+	Broadphase createBroadphase(Level level, boolean forStaticEntities);
+}
@@ -0,0 +1,93 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A broadphase that keeps the entities in a list and tests every one of them for every query.
+ *
+ * It does no work when entities move and can't miss a collision,
+ * which makes it the reference that the other broadphases can be checked and benchmarked against.
+ * Queries and finding pairs get slow as the number of entities grows, so it is only suited to small levels.
+ *
+ * @author Rebecca Stevens
+ */
+public class BruteForce extends Broadphase {
+
+	private final List<Entity> entities;
+	private final Map<Entity, Integer> indices;
+
+	/**
+	 * Create an empty brute force broadphase.
+	 */
+	public BruteForce() {
+		this.entities = new ArrayList<Entity>();
+		this.indices = new HashMap<Entity, Integer>();
+	}
+
+	@Override
+	public void insert(Entity entity) {
+		if (!indices.containsKey(entity)) {
+			indices.put(entity, entities.size());
+			entities.add(entity);
+		}
+	}
+
+	@Override
+	public void remove(Entity entity) {
+		Integer index = indices.remove(entity);
+		if (index == null) {
+			return;
+		}
+		// move the last entity into the gap
+		Entity last = entities.remove(entities.size() - 1);
+		if (last != entity) {
+			entities.set(index, last);
+			indices.put(last, index);
+		}
+	}
+
+	@Override
+	public void update(Entity entity) {
+		// the bounds are read when they are needed
+	}
+
+	@Override
+	public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			if (overlaps(entity, minX, minY, minZ, maxX, maxY, maxZ)) {
+				result.add(entity);
+			}
+		}
+	}
+
+	@Override
+	public void findPairs(List<Entity> pairs) {
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			float minX = getMinX(entity), minY = getMinY(entity), minZ = getMinZ(entity);
+			float maxX = getMaxX(entity), maxY = getMaxY(entity), maxZ = getMaxZ(entity);
+			for (int j = i + 1; j < entities.size(); j++) {
+				Entity other = entities.get(j);
+				if (overlaps(other, minX, minY, minZ, maxX, maxY, maxZ)) {
+					pairs.add(entity);
+					pairs.add(other);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isConcurrentQuerySafe() {
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		entities.clear();
+		indices.clear();
+	}
+}
@@ -0,0 +1,212 @@
+package gamelib.game;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of which entities are in contact with each other so that
+ * {@link Entity#onCollisionEnter(Entity)}, {@link Entity#onCollisionStay(Entity)} and {@link Entity#onCollisionExit(Entity)}
+ * can be called once per frame after everything has moved.
+ *
+ * Two entities are in contact during a frame if either of them was stopped by the other while moving
+ * or one of them is standing on the other.
+ * Contacts are stored as a key made from the ids of the two entities,
+ * so they can be sorted and compared with the previous frame's contacts without allocating.
+ * Sleeping entities don't move so a contact between entities that are all either sleeping or static carries on until one of them wakes up.
+ * Each contact also keeps how many times its entities had been recycled (see {@link Entity#recycle()}),
+ * so a contact from before an entity was put in its level's pool ends without the respawned entity being told about it.
+ *
+ * @author Rebecca Stevens
+ */
+final class CollisionContacts {
+
+	// the contacts found this frame; the keys may not be sorted or unique until the frame ends
+	private long[] keys;
+	private int size;
+
+	// last frame's contacts; sorted by key
+	private long[] lastKeys;
+	private Entity[] lastEntities1;
+	private Entity[] lastEntities2;
+	private int[] lastRecycleCounts1;
+	private int[] lastRecycleCounts2;
+	private int lastSize;
+
+	// this frame's contacts once they are sorted
+	private Entity[] entities1;
+	private Entity[] entities2;
+	private int[] recycleCounts1;
+	private int[] recycleCounts2;
+
+	/**
+	 * Create a contact tracker with no contacts.
+	 */
+	CollisionContacts() {
+		this.keys = new long[16];
+		this.lastKeys = new long[16];
+		this.entities1 = new Entity[16];
+		this.entities2 = new Entity[16];
+		this.lastEntities1 = new Entity[16];
+		this.lastEntities2 = new Entity[16];
+		this.recycleCounts1 = new int[16];
+		this.recycleCounts2 = new int[16];
+		this.lastRecycleCounts1 = new int[16];
+		this.lastRecycleCounts2 = new int[16];
+	}
+
+	/**
+	 * Record that the two entities are in contact this frame.
+	 *
+	 * @param entity1
+	 * @param entity2
+	 */
+	void add(Entity entity1, Entity entity2) {
+		int id1 = entity1.getId();
+		int id2 = entity2.getId();
+		if (id1 < 0 || id2 < 0 || id1 == id2) {
+			return;
+		}
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		keys[size++] = key(id1, id2);
+	}
+
+	/**
+	 * Compare this frame's contacts with last frame's and let the entities know which contacts started, continued and ended.
+	 * Callbacks are made in order of the entities' ids so that they happen in the same order every time.
+	 *
+	 * @param level The level the contacts are in
+	 */
+	void dispatch(Level level) {
+		// nothing will have recorded the contacts between entities that aren't moving
+		for (int j = 0; j < lastSize; j++) {
+			if (isResting(level, lastEntities1[j], lastRecycleCounts1[j]) && isResting(level, lastEntities2[j], lastRecycleCounts2[j])) {
+				if (size == keys.length) {
+					keys = Arrays.copyOf(keys, size * 2);
+				}
+				keys[size++] = lastKeys[j];
+			}
+		}
+
+		// sort this frame's contacts and remove the duplicates
+		Arrays.sort(keys, 0, size);
+		int unique = 0;
+		for (int i = 0; i < size; i++) {
+			if (unique == 0 || keys[i] != keys[unique - 1]) {
+				keys[unique++] = keys[i];
+			}
+		}
+		size = unique;
+
+		if (entities1.length < size) {
+			entities1 = new Entity[keys.length];
+			entities2 = new Entity[keys.length];
+			recycleCounts1 = new int[keys.length];
+			recycleCounts2 = new int[keys.length];
+		}
+		for (int i = 0; i < size; i++) {
+			entities1[i] = level.getEntityById((int) (keys[i] >>> 32));
+			entities2[i] = level.getEntityById((int) keys[i]);
+			recycleCounts1[i] = entities1[i].getRecycleCount();
+			recycleCounts2[i] = entities2[i].getRecycleCount();
+		}
+
+		// walk both sorted lists together
+		int i = 0, j = 0;
+		while (i < size || j < lastSize) {
+			int compare;
+			if (i == size) {
+				compare = 1;
+			} else if (j == lastSize) {
+				compare = -1;
+			} else {
+				compare = Long.compare(keys[i], lastKeys[j]);
+				// an id could have been given to a new entity or to the same entity after it was recycled
+				if (compare == 0 && (entities1[i] != lastEntities1[j] || entities2[i] != lastEntities2[j]
+						|| recycleCounts1[i] != lastRecycleCounts1[j] || recycleCounts2[i] != lastRecycleCounts2[j])) {
+					exit(level, j);
+					j++;
+					continue;
+				}
+			}
+
+			if (compare < 0) {
+				enter(level, entities1[i], entities2[i]);
+				i++;
+			} else if (compare > 0) {
+				exit(level, j);
+				j++;
+			} else {
+				stay(level, entities1[i], entities2[i]);
+				i++;
+				j++;
+			}
+		}
+
+		// this frame's contacts become last frame's
+		long[] tempKeys = lastKeys;
+		lastKeys = keys;
+		keys = tempKeys;
+		Entity[] temp = lastEntities1;
+		lastEntities1 = entities1;
+		entities1 = temp;
+		temp = lastEntities2;
+		lastEntities2 = entities2;
+		entities2 = temp;
+		int[] tempCounts = lastRecycleCounts1;
+		lastRecycleCounts1 = recycleCounts1;
+		recycleCounts1 = tempCounts;
+		tempCounts = lastRecycleCounts2;
+		lastRecycleCounts2 = recycleCounts2;
+		recycleCounts2 = tempCounts;
+		for (int k = 0; k < lastSize; k++) {
+			entities1[k] = null;
+			entities2[k] = null;
+		}
+		lastSize = size;
+		size = 0;
+	}
+
+	private static boolean isResting(Level level, Entity entity, int recycleCount) {
+		return entity.getLevel() == level && entity.getRecycleCount() == recycleCount && (entity.isStatic() || level.isSleepingEntity(entity));
+	}
+
+	private static void enter(Level level, Entity entity1, Entity entity2) {
+		if (entity1.getLevel() == level) entity1.onCollisionEnter(entity2);
+		if (entity2.getLevel() == level) entity2.onCollisionEnter(entity1);
+	}
+
+	private static void stay(Level level, Entity entity1, Entity entity2) {
+		if (entity1.getLevel() == level) entity1.onCollisionStay(entity2);
+		if (entity2.getLevel() == level) entity2.onCollisionStay(entity1);
+	}
+
+	/**
+	 * Let the entities of one of last frame's contacts know that it has ended.
+	 * An entity that has been recycled since isn't told, as the contact belonged to its last life.
+	 *
+	 * @param level
+	 * @param j The index of the contact in last frame's contacts
+	 */
+	private void exit(Level level, int j) {
+		Entity entity1 = lastEntities1[j], entity2 = lastEntities2[j];
+		if (entity1.getLevel() == level && entity1.getRecycleCount() == lastRecycleCounts1[j]) entity1.onCollisionExit(entity2);
+		if (entity2.getLevel() == level && entity2.getRecycleCount() == lastRecycleCounts2[j]) entity2.onCollisionExit(entity1);
+	}
+
+	/**
+	 * Pack the ids of two entities into a key; the smaller id goes first.
+	 *
+	 * @param id1
+	 * @param id2
+	 * @return
+	 */
+	private static long key(int id1, int id2) {
+		if (id1 > id2) {
+			int t = id1;
+			id1 = id2;
+			id2 = t;
+		}
+		return ((long) id1 << 32) | id2;
+	}
+}
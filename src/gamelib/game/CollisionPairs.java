@@ -0,0 +1,492 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The pairs of colliders that might collide with each other during a frame.
+ *
+ * At the start of a frame each moving collider is given a frame box; its bounding box grown by how far it is
+ * expected to move during the frame. Two colliders are paired if their frame boxes overlap
+ * (a static collider's frame box is just its bounding box).
+ * A collision query for an entity that stays inside its frame box then only needs to look at the entities it is paired with.
+ *
+ * Entities that leave their frame box or start colliding part way through the frame are marked as escaped.
+ * Escaped entities are tested by every query and can't use their own pairs.
+ *
+ * Sleeping entities aren't updated so their own pairs aren't worked out;
+ * they are still paired with the awake entities near them and fall back to the broadphase if they are queried.
+ *
+ * Each node queries the broadphases for its candidates and then tests them against the frame boxes.
+ * A node only reads the broadphases and the frame boxes and only writes to its own pair list,
+ * so when both broadphases can be queried by more than one thread at once (see {@link Broadphase#isConcurrentQuerySafe()})
+ * the nodes can be split across a fork join pool, each thread with its own candidate list;
+ * the pairs come out the same as when it is done on one thread.
+ *
+ * Entities that can't be paired with each other can be updated at the same time (see {@link Islands}),
+ * so the list of escaped entities is only used while holding its lock.
+ *
+ * @author Rebecca Stevens
+ */
+final class CollisionPairs {
+
+	/**
+	 * How much extra room to give every frame box (in grid units).
+	 * This covers things like the ground probe and small changes in velocity during the frame.
+	 */
+	private static final float FRAME_MARGIN = 0.5F;
+
+	/**
+	 * The least number of nodes worth pairing on another thread.
+	 */
+	private static final int PARALLEL_NODES = 256;
+
+	private final BoundsStore bounds;
+	private Node[] nodes;					// the nodes of the moving colliders, by id
+	private final List<Node> active;
+	private final List<Entity> escaped;
+	private final List<Entity> candidates;
+	private final ThreadLocal<List<Entity>> taskCandidates;	// the candidates of the nodes being paired on each thread
+
+	// set at the start of each build
+	private Broadphase broadphase, staticBroadphase;
+	private float reachX, reachY, reachZ;	// the furthest any frame box reaches past its bounding box
+
+	private boolean parallel;
+	private boolean sorted;
+	private boolean valid;
+	private int pairCount;
+
+	/**
+	 * Create an empty pair list.
+	 *
+	 * @param bounds The bounds of the colliders
+	 */
+	CollisionPairs(BoundsStore bounds) {
+		this.bounds = bounds;
+		this.nodes = new Node[64];
+		this.active = new ArrayList<Node>();
+		this.escaped = new ArrayList<Entity>();
+		this.candidates = new ArrayList<Entity>();
+		this.taskCandidates = new ThreadLocal<List<Entity>>() {
+			@Override
+			protected List<Entity> initialValue() {
+				return new ArrayList<Entity>();
+			}
+		};
+	}
+
+	/**
+	 * Get the node of the given entity.
+	 *
+	 * @param entity
+	 * @return the node or null if the entity doesn't have one
+	 */
+	private Node getNode(Entity entity) {
+		int id = entity.getId();
+		if (id < 0 || id >= nodes.length) {
+			return null;
+		}
+		Node node = nodes[id];
+		return node != null && node.entity == entity ? node : null;
+	}
+
+	/**
+	 * Work out the pairs for this frame.
+	 *
+	 * @param colliders All the colliders in the level
+	 * @param broadphase The broadphase holding the moving colliders
+	 * @param staticBroadphase The broadphase holding the static colliders
+	 * @param is3D Whether or not the z axis is used
+	 * @param delta The amount of game time that will pass this frame
+	 */
+	void build(Collection<Entity> colliders, Broadphase broadphase, Broadphase staticBroadphase, boolean is3D, float delta) {
+		invalidate();
+		active.clear();
+		pairCount = 0;
+
+		// work out the frame boxes
+		float reachX = 0, reachY = 0, reachZ = 0;
+		for (Entity entity : colliders) {
+			if (entity.isStatic()) {
+				continue;
+			}
+			Node node = getNode(entity);
+			if (node == null) {
+				int id = entity.getId();
+				if (id >= nodes.length) {
+					Node[] bigger = new Node[Math.max(id + 1, nodes.length * 2)];
+					System.arraycopy(nodes, 0, bigger, 0, nodes.length);
+					nodes = bigger;
+				}
+				node = new Node(entity);
+				nodes[id] = node;
+			}
+			node.setFrameBox(bounds, is3D, delta);
+			node.index = active.size();
+			node.clear();
+			node.escaped = false;
+			node.paired = !entity.isSleeping();
+			active.add(node);
+
+			reachX = Math.max(reachX, node.reachX);
+			reachY = Math.max(reachY, node.reachY);
+			reachZ = Math.max(reachZ, node.reachZ);
+		}
+
+		this.broadphase = broadphase;
+		this.staticBroadphase = staticBroadphase;
+		this.reachX = reachX;
+		this.reachY = reachY;
+		this.reachZ = reachZ;
+
+		if (parallel && active.size() >= PARALLEL_NODES * 2
+		&&  broadphase.isConcurrentQuerySafe() && staticBroadphase.isConcurrentQuerySafe()) {
+			pairCount = ForkJoinPool.commonPool().invoke(new PairTask(0, active.size()));
+		} else {
+			pairCount = pairNodes(0, active.size(), candidates);
+		}
+
+		this.broadphase = null;
+		this.staticBroadphase = null;
+		valid = true;
+	}
+
+	/**
+	 * Find the pairs of the given range of active nodes.
+	 * Each node queries the broadphases for its candidates and adds the ones whose frame boxes overlap its own to its pairs.
+	 *
+	 * @param from The index of the first node
+	 * @param to The index after the last node
+	 * @param candidates The list to put each node's candidates in while it is being paired
+	 * @return The number of pairs found that are counted by these nodes
+	 */
+	private int pairNodes(int from, int to, List<Entity> candidates) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			Node node = active.get(i);
+			if (!node.paired) {
+				continue;
+			}
+
+			// anything whose frame box overlaps this frame box must have its bounding box within reach of it
+			candidates.clear();
+			staticBroadphase.query(node.minX, node.minY, node.minZ, node.maxX, node.maxY, node.maxZ, candidates);
+			int staticEnd = candidates.size();
+			broadphase.query(
+					node.minX - reachX, node.minY - reachY, node.minZ - reachZ,
+					node.maxX + reachX, node.maxY + reachY, node.maxZ + reachZ,
+					candidates);
+
+			for (int j = 0; j < candidates.size(); j++) {
+				Entity other = candidates.get(j);
+				Node otherNode = j < staticEnd ? null : getNode(other);
+				if (otherNode == null) {
+					node.add(other, null);
+					count++;
+					continue;
+				}
+				if (otherNode == node) {
+					continue;
+				}
+				if (node.overlaps(otherNode)) {
+					node.add(other, otherNode);
+					// each pair between two awake entities is found twice
+					if (otherNode.index > node.index || !otherNode.paired) {
+						count++;
+					}
+				}
+			}
+			if (sorted) {
+				node.sortById();
+			}
+		}
+		candidates.clear();
+		return count;
+	}
+
+	/**
+	 * Set whether or not the pairs are found across a fork join pool when there are a lot of moving colliders.
+	 *
+	 * @param b
+	 */
+	void setParallel(boolean b) {
+		parallel = b;
+	}
+
+	/**
+	 * Get whether or not the pairs are found across a fork join pool when there are a lot of moving colliders.
+	 *
+	 * @return
+	 */
+	boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Set whether or not each entity's pairs are sorted by id.
+	 * Otherwise they are in the order the broadphases found them, which depends on the order the entities moved in.
+	 *
+	 * @param b
+	 */
+	void setSorted(boolean b) {
+		sorted = b;
+	}
+
+	/**
+	 * Stop using the pairs until they are built again.
+	 */
+	void invalidate() {
+		synchronized (escaped) {
+			valid = false;
+			escaped.clear();
+		}
+	}
+
+	/**
+	 * Let the pairs know that a collider was added.
+	 *
+	 * @param entity
+	 */
+	void add(Entity entity) {
+		if (valid) {
+			Node node = getNode(entity);
+			if (node != null) {
+				node.escaped = true;
+			}
+			synchronized (escaped) {
+				escaped.add(entity);
+			}
+		}
+	}
+
+	/**
+	 * Let the pairs know that a collider was removed.
+	 *
+	 * @param entity
+	 */
+	void remove(Entity entity) {
+		Node node = getNode(entity);
+		if (node != null) {
+			nodes[entity.getId()] = null;
+		}
+		// the entity could still be paired with anything so just stop using the pairs for this frame
+		invalidate();
+	}
+
+	/**
+	 * Let the pairs know that the bounds of a collider have changed.
+	 *
+	 * @param entity
+	 */
+	void update(Entity entity) {
+		if (!valid) {
+			return;
+		}
+		Node node = getNode(entity);
+		if (node == null) {
+			// static colliders aren't expected to move at all
+			invalidate();
+			return;
+		}
+		if (!node.escaped && !node.contains(bounds, entity.getId())) {
+			node.escaped = true;
+			synchronized (escaped) {
+				escaped.add(entity);
+			}
+		}
+	}
+
+	/**
+	 * Add every collider the given entity is paired with whose bounds overlap (or touch) the given box to the result list.
+	 * This can only be done if the box is inside the entity's frame box.
+	 *
+	 * @param entity The entity doing the query
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @param result The list to add the colliders to
+	 * @return false if the pairs can't be used for this query and the broadphase must be used instead
+	 */
+	boolean query(Entity entity, float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		if (!valid) {
+			return false;
+		}
+		Node node = getNode(entity);
+		if (node == null || node.escaped || !node.paired
+		||  minX < node.minX || minY < node.minY || minZ < node.minZ
+		||  maxX > node.maxX || maxY > node.maxY || maxZ > node.maxZ) {
+			return false;
+		}
+
+		for (int i = 0; i < node.size; i++) {
+			Entity other = node.pairs[i];
+			Node otherNode = node.pairNodes[i];
+			// escaped entities are tested below
+			if (otherNode != null && otherNode.escaped) {
+				continue;
+			}
+			if (bounds.overlaps(other.getId(), minX, minY, minZ, maxX, maxY, maxZ)) {
+				result.add(other);
+			}
+		}
+		synchronized (escaped) {
+			for (int i = 0; i < escaped.size(); i++) {
+				Entity other = escaped.get(i);
+				if (other != entity && bounds.overlaps(other.getId(), minX, minY, minZ, maxX, maxY, maxZ)) {
+					result.add(other);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add the moving colliders the given entity was paired with when the pairs were last built to the result list.
+	 *
+	 * @param entity
+	 * @param result
+	 */
+	void addPairedColliders(Entity entity, List<Entity> result) {
+		Node node = getNode(entity);
+		if (node == null) {
+			return;
+		}
+		for (int i = 0; i < node.size; i++) {
+			if (node.pairNodes[i] != null) {
+				result.add(node.pairs[i]);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of pairs found when the pairs were last built.
+	 *
+	 * @return
+	 */
+	int getPairCount() {
+		return pairCount;
+	}
+
+	/**
+	 * Pairs a range of the active nodes, splitting the range in half until there are few enough nodes in it.
+	 */
+	private final class PairTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+
+		private PairTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (to - from <= PARALLEL_NODES) {
+				return pairNodes(from, to, taskCandidates.get());
+			}
+			int middle = (from + to) >>> 1;
+			PairTask left = new PairTask(from, middle);
+			left.fork();
+			int right = new PairTask(middle, to).compute();
+			return left.join() + right;
+		}
+	}
+
+	/**
+	 * A moving collider's frame box and the colliders it is paired with.
+	 */
+	private static final class Node {
+		private final Entity entity;
+		private float minX, minY, minZ;
+		private float maxX, maxY, maxZ;
+		private float reachX, reachY, reachZ;
+		private Entity[] pairs = new Entity[8];
+		private Node[] pairNodes = new Node[8];	// null for static colliders
+		private int size;
+		private int index;
+		private boolean escaped;
+		private boolean paired;	// whether or not the pairs were worked out for this node
+
+		private Node(Entity entity) {
+			this.entity = entity;
+		}
+
+		/**
+		 * Grow the entity's bounding box by how far it is expected to move this frame.
+		 *
+		 * @param bounds
+		 * @param is3D
+		 * @param delta
+		 */
+		private void setFrameBox(BoundsStore bounds, boolean is3D, float delta) {
+			int slot = entity.getId();
+			reachX = Math.abs(entity.getVelocityX() + entity.getVelocityXOffset()) * delta + FRAME_MARGIN;
+			reachY = Math.abs(entity.getVelocityY() + entity.getVelocityYOffset()) * delta + FRAME_MARGIN;
+			reachZ = is3D ? Math.abs(entity.getVelocityZ() + entity.getVelocityZOffset()) * delta + FRAME_MARGIN : 0;
+			minX = bounds.getMinX(slot) - reachX;
+			minY = bounds.getMinY(slot) - reachY;
+			minZ = bounds.getMinZ(slot) - reachZ;
+			maxX = bounds.getMaxX(slot) + reachX;
+			maxY = bounds.getMaxY(slot) + reachY;
+			maxZ = bounds.getMaxZ(slot) + reachZ;
+		}
+
+		private boolean overlaps(Node other) {
+			return	minX <= other.maxX && maxX >= other.minX
+				&&	minY <= other.maxY && maxY >= other.minY
+				&&	minZ <= other.maxZ && maxZ >= other.minZ;
+		}
+
+		private boolean contains(BoundsStore bounds, int slot) {
+			return	bounds.getMinX(slot) >= minX && bounds.getMaxX(slot) <= maxX
+				&&	bounds.getMinY(slot) >= minY && bounds.getMaxY(slot) <= maxY
+				&&	bounds.getMinZ(slot) >= minZ && bounds.getMaxZ(slot) <= maxZ;
+		}
+
+		private void add(Entity entity, Node node) {
+			if (size == pairs.length) {
+				Entity[] biggerPairs = new Entity[size * 2];
+				Node[] biggerPairNodes = new Node[size * 2];
+				System.arraycopy(pairs, 0, biggerPairs, 0, size);
+				System.arraycopy(pairNodes, 0, biggerPairNodes, 0, size);
+				pairs = biggerPairs;
+				pairNodes = biggerPairNodes;
+			}
+			pairs[size] = entity;
+			pairNodes[size] = node;
+			size++;
+		}
+
+		private void sortById() {
+			for (int i = 1; i < size; i++) {
+				Entity entity = pairs[i];
+				Node node = pairNodes[i];
+				int id = entity.getId();
+				int j = i - 1;
+				while (j >= 0 && pairs[j].getId() > id) {
+					pairs[j + 1] = pairs[j];
+					pairNodes[j + 1] = pairNodes[j];
+					j--;
+				}
+				pairs[j + 1] = entity;
+				pairNodes[j + 1] = node;
+			}
+		}
+
+		private void clear() {
+			for (int i = 0; i < size; i++) {
+				pairs[i] = null;
+				pairNodes[i] = null;
+			}
+			size = 0;
+		}
+	}
+}
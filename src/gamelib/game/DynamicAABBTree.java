@@ -0,0 +1,489 @@
+package gamelib.game;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A broadphase that keeps the entities in a bounding volume hierarchy.
+ * Each leaf holds one entity and each branch holds a box that contains both of its children,
+ * so a query only has to walk down the branches that overlap the query box.
+ *
+ * Leaves store a "fat" box that is a little bigger than the entity,
+ * so an entity only has to be reinserted when it moves out of its fat box.
+ * The tree is kept balanced with rotations as leaves are inserted and removed.
+ *
+ * @author Rebecca Stevens
+ */
+public class DynamicAABBTree extends Broadphase {
+
+	/**
+	 * How much bigger than its entity a leaf's box is on each side (in grid units).
+	 */
+	private static final float FAT_MARGIN = 0.2F;
+
+	private final Map<Entity, Node> leaves;
+
+	private Node root;
+	private Node freeNodes;
+	private Node[] stack;
+	private final ThreadLocal<Node[]> queryStacks;	// each thread that queries the tree walks it with its own stack
+
+	private int nextLeafId;
+
+	/**
+	 * Create an empty tree.
+	 */
+	public DynamicAABBTree() {
+		this.leaves = new LinkedHashMap<Entity, Node>();
+		this.stack = new Node[64];
+		this.queryStacks = new ThreadLocal<Node[]>() {
+			@Override
+			protected Node[] initialValue() {
+				return new Node[64];
+			}
+		};
+	}
+
+	@Override
+	public void insert(Entity entity) {
+		if (leaves.containsKey(entity)) {
+			update(entity);
+			return;
+		}
+		Node leaf = allocateNode();
+		leaf.entity = entity;
+		leaf.id = nextLeafId++;
+		leaf.height = 0;
+		setFatBox(leaf);
+		leaves.put(entity, leaf);
+		insertLeaf(leaf);
+	}
+
+	@Override
+	public void remove(Entity entity) {
+		Node leaf = leaves.remove(entity);
+		if (leaf != null) {
+			removeLeaf(leaf);
+			freeNode(leaf);
+		}
+	}
+
+	@Override
+	public void update(Entity entity) {
+		Node leaf = leaves.get(entity);
+		if (leaf == null) {
+			return;
+		}
+
+		int slot = entity.getId();
+		if (leaf.minX <= bounds.getMinX(slot) && leaf.minY <= bounds.getMinY(slot) && leaf.minZ <= bounds.getMinZ(slot)
+		&&  leaf.maxX >= bounds.getMaxX(slot) && leaf.maxY >= bounds.getMaxY(slot) && leaf.maxZ >= bounds.getMaxZ(slot)) {
+			// still inside its fat box
+			return;
+		}
+
+		removeLeaf(leaf);
+		setFatBox(leaf);
+		insertLeaf(leaf);
+	}
+
+	@Override
+	public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		if (root == null) {
+			return;
+		}
+
+		Node[] stack = queryStacks.get();
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			Node node = stack[--top];
+			if (!node.overlaps(minX, minY, minZ, maxX, maxY, maxZ)) {
+				continue;
+			}
+			if (node.isLeaf()) {
+				if (overlaps(node.entity, minX, minY, minZ, maxX, maxY, maxZ)) {
+					result.add(node.entity);
+				}
+			} else {
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+					queryStacks.set(stack);
+				}
+				stack[top++] = node.child1;
+				stack[top++] = node.child2;
+			}
+		}
+	}
+
+	@Override
+	public void findPairs(List<Entity> pairs) {
+		if (root == null) {
+			return;
+		}
+
+		for (Node leaf : leaves.values()) {
+			int slot = leaf.entity.getId();
+			float minX = bounds.getMinX(slot), minY = bounds.getMinY(slot), minZ = bounds.getMinZ(slot);
+			float maxX = bounds.getMaxX(slot), maxY = bounds.getMaxY(slot), maxZ = bounds.getMaxZ(slot);
+
+			int top = 0;
+			stack[top++] = root;
+			while (top > 0) {
+				Node node = stack[--top];
+				if (!node.overlaps(minX, minY, minZ, maxX, maxY, maxZ)) {
+					continue;
+				}
+				if (node.isLeaf()) {
+					// only report each pair from the leaf that was inserted first
+					if (node.id > leaf.id && overlaps(node.entity, minX, minY, minZ, maxX, maxY, maxZ)) {
+						pairs.add(leaf.entity);
+						pairs.add(node.entity);
+					}
+				} else {
+					if (top + 2 > stack.length) {
+						growStack();
+					}
+					stack[top++] = node.child1;
+					stack[top++] = node.child2;
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isConcurrentQuerySafe() {
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		leaves.clear();
+		root = null;
+		freeNodes = null;
+	}
+
+	/**
+	 * Set the leaf's box to its entity's box plus the margin.
+	 *
+	 * @param leaf
+	 */
+	private void setFatBox(Node leaf) {
+		int slot = leaf.entity.getId();
+		leaf.minX = bounds.getMinX(slot) - FAT_MARGIN;
+		leaf.minY = bounds.getMinY(slot) - FAT_MARGIN;
+		leaf.minZ = bounds.getMinZ(slot) - FAT_MARGIN;
+		leaf.maxX = bounds.getMaxX(slot) + FAT_MARGIN;
+		leaf.maxY = bounds.getMaxY(slot) + FAT_MARGIN;
+		leaf.maxZ = bounds.getMaxZ(slot) + FAT_MARGIN;
+	}
+
+	/**
+	 * Add the leaf to the tree next to the node that makes the tree's boxes grow the least.
+	 *
+	 * @param leaf
+	 */
+	private void insertLeaf(Node leaf) {
+		if (root == null) {
+			root = leaf;
+			leaf.parent = null;
+			return;
+		}
+
+		// find the best sibling for the leaf
+		Node index = root;
+		while (!index.isLeaf()) {
+			float area = index.area();
+			float combinedArea = Node.unionArea(index, leaf);
+
+			// the cost of making a new parent for this node and the leaf
+			float cost = 2 * combinedArea;
+
+			// the minimum cost of pushing the leaf further down the tree
+			float inheritanceCost = 2 * (combinedArea - area);
+
+			float cost1 = descendCost(index.child1, leaf) + inheritanceCost;
+			float cost2 = descendCost(index.child2, leaf) + inheritanceCost;
+
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? index.child1 : index.child2;
+		}
+
+		// make a new parent for the sibling and the leaf
+		Node sibling = index;
+		Node oldParent = sibling.parent;
+		Node newParent = allocateNode();
+		newParent.parent = oldParent;
+		newParent.setUnion(sibling, leaf);
+		newParent.height = sibling.height + 1;
+
+		if (oldParent != null) {
+			if (oldParent.child1 == sibling) {
+				oldParent.child1 = newParent;
+			} else {
+				oldParent.child2 = newParent;
+			}
+		} else {
+			root = newParent;
+		}
+		newParent.child1 = sibling;
+		newParent.child2 = leaf;
+		sibling.parent = newParent;
+		leaf.parent = newParent;
+
+		refit(leaf.parent);
+	}
+
+	/**
+	 * The cost of putting the leaf somewhere under the given node.
+	 *
+	 * @param node
+	 * @param leaf
+	 * @return
+	 */
+	private static float descendCost(Node node, Node leaf) {
+		if (node.isLeaf()) {
+			return Node.unionArea(node, leaf);
+		}
+		return Node.unionArea(node, leaf) - node.area();
+	}
+
+	/**
+	 * Take the leaf out of the tree. Its parent is replaced by its sibling.
+	 *
+	 * @param leaf
+	 */
+	private void removeLeaf(Node leaf) {
+		if (leaf == root) {
+			root = null;
+			return;
+		}
+
+		Node parent = leaf.parent;
+		Node grandParent = parent.parent;
+		Node sibling = parent.child1 == leaf ? parent.child2 : parent.child1;
+
+		if (grandParent != null) {
+			if (grandParent.child1 == parent) {
+				grandParent.child1 = sibling;
+			} else {
+				grandParent.child2 = sibling;
+			}
+			sibling.parent = grandParent;
+			freeNode(parent);
+			refit(grandParent);
+		} else {
+			root = sibling;
+			sibling.parent = null;
+			freeNode(parent);
+		}
+		leaf.parent = null;
+	}
+
+	/**
+	 * Walk from the given node up to the root, rebalancing and fixing the boxes and heights on the way.
+	 *
+	 * @param node
+	 */
+	private void refit(Node node) {
+		while (node != null) {
+			node = balance(node);
+			node.height = 1 + Math.max(node.child1.height, node.child2.height);
+			node.setUnion(node.child1, node.child2);
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * If one side of the given node is more than one level taller than the other, rotate the taller child up.
+	 *
+	 * @param a
+	 * @return the node that is now where the given node was
+	 */
+	private Node balance(Node a) {
+		if (a.isLeaf() || a.height < 2) {
+			return a;
+		}
+
+		Node b = a.child1;
+		Node c = a.child2;
+		int balance = c.height - b.height;
+
+		if (balance > 1) {
+			// rotate c up
+			Node f = c.child1;
+			Node g = c.child2;
+
+			c.child1 = a;
+			c.parent = a.parent;
+			a.parent = c;
+			replaceChild(c.parent, a, c);
+
+			if (f.height > g.height) {
+				c.child2 = f;
+				a.child2 = g;
+				g.parent = a;
+				a.setUnion(b, g);
+				c.setUnion(a, f);
+				a.height = 1 + Math.max(b.height, g.height);
+				c.height = 1 + Math.max(a.height, f.height);
+			} else {
+				c.child2 = g;
+				a.child2 = f;
+				f.parent = a;
+				a.setUnion(b, f);
+				c.setUnion(a, g);
+				a.height = 1 + Math.max(b.height, f.height);
+				c.height = 1 + Math.max(a.height, g.height);
+			}
+			return c;
+		}
+
+		if (balance < -1) {
+			// rotate b up
+			Node d = b.child1;
+			Node e = b.child2;
+
+			b.child1 = a;
+			b.parent = a.parent;
+			a.parent = b;
+			replaceChild(b.parent, a, b);
+
+			if (d.height > e.height) {
+				b.child2 = d;
+				a.child1 = e;
+				e.parent = a;
+				a.setUnion(c, e);
+				b.setUnion(a, d);
+				a.height = 1 + Math.max(c.height, e.height);
+				b.height = 1 + Math.max(a.height, d.height);
+			} else {
+				b.child2 = e;
+				a.child1 = d;
+				d.parent = a;
+				a.setUnion(c, d);
+				b.setUnion(a, e);
+				a.height = 1 + Math.max(c.height, d.height);
+				b.height = 1 + Math.max(a.height, e.height);
+			}
+			return b;
+		}
+
+		return a;
+	}
+
+	/**
+	 * Replace the parent's child (or the root if there is no parent).
+	 *
+	 * @param parent
+	 * @param oldChild
+	 * @param newChild
+	 */
+	private void replaceChild(Node parent, Node oldChild, Node newChild) {
+		if (parent == null) {
+			root = newChild;
+		} else if (parent.child1 == oldChild) {
+			parent.child1 = newChild;
+		} else {
+			parent.child2 = newChild;
+		}
+	}
+
+	/**
+	 * Get a node from the free list or make a new one.
+	 *
+	 * @return
+	 */
+	private Node allocateNode() {
+		Node node = freeNodes;
+		if (node == null) {
+			return new Node();
+		}
+		freeNodes = node.parent;
+		node.parent = null;
+		return node;
+	}
+
+	/**
+	 * Put a node on the free list so it can be reused.
+	 *
+	 * @param node
+	 */
+	private void freeNode(Node node) {
+		node.entity = null;
+		node.child1 = null;
+		node.child2 = null;
+		node.height = -1;
+		node.parent = freeNodes;
+		freeNodes = node;
+	}
+
+	private void growStack() {
+		Node[] bigger = new Node[stack.length * 2];
+		System.arraycopy(stack, 0, bigger, 0, stack.length);
+		stack = bigger;
+	}
+
+	/**
+	 * A node in the tree.
+	 * Leaves have an entity and no children, branches have two children and no entity.
+	 */
+	private static final class Node {
+		private Entity entity;
+		private int id;
+		private Node parent, child1, child2;
+		private int height;
+		private float minX, minY, minZ;
+		private float maxX, maxY, maxZ;
+
+		private boolean isLeaf() {
+			return child1 == null;
+		}
+
+		private boolean overlaps(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+			return	this.minX <= maxX && this.maxX >= minX
+				&&	this.minY <= maxY && this.maxY >= minY
+				&&	this.minZ <= maxZ && this.maxZ >= minZ;
+		}
+
+		private void setUnion(Node a, Node b) {
+			minX = Math.min(a.minX, b.minX);
+			minY = Math.min(a.minY, b.minY);
+			minZ = Math.min(a.minZ, b.minZ);
+			maxX = Math.max(a.maxX, b.maxX);
+			maxY = Math.max(a.maxY, b.maxY);
+			maxZ = Math.max(a.maxZ, b.maxZ);
+		}
+
+		/**
+		 * Half the surface area of this node's box.
+		 *
+		 * @return
+		 */
+		private float area() {
+			return area(maxX - minX, maxY - minY, maxZ - minZ);
+		}
+
+		/**
+		 * Half the surface area of the box containing both nodes.
+		 *
+		 * @param a
+		 * @param b
+		 * @return
+		 */
+		private static float unionArea(Node a, Node b) {
+			return area(
+					Math.max(a.maxX, b.maxX) - Math.min(a.minX, b.minX),
+					Math.max(a.maxY, b.maxY) - Math.min(a.minY, b.minY),
+					Math.max(a.maxZ, b.maxZ) - Math.min(a.minZ, b.minZ));
+		}
+
+		private static float area(float dx, float dy, float dz) {
+			return dx * dy + dy * dz + dz * dx;
+		}
+	}
+}
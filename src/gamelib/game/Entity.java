@@ -1,8 +1,7 @@
 package gamelib.game;
 
 import java.security.InvalidParameterException;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import gamelib.Drawable;
@@ -25,12 +24,25 @@ public abstract class Entity extends GameObject implements Drawable {
 	private BoundingBox boundingBox;
 	
 	private boolean gravityEffected;
+	private boolean sweptCollision;
+	
+	private boolean sleepEnabled;
+	private boolean sleeping;
+	private int restingFrames;	// the number of frames in a row this entity has been at rest
 	
 	private int collisionGroup;
 	private CollisionMode collisionMode;
-	private Set<Entity> collisionIgnore;
+	private long collisionLayer;	// the bit for this entity's collision group
+	private long collisionMask;		// the bits of the collision groups this entity collides with
+	private int[] collisionIgnore;		// the ids of the entities to ignore
+	private int collisionIgnoreCount;
+	private Entity[] ignoredBy;		// the entities ignoring this one, so they can stop when this entity's id is freed
+	private int ignoredByCount;
+	
+	private int id;	// set by the level while the GameObject constructor runs, so it must not have an initializer
 	
 	private Entity ground;
+	private float groundCheckedAtY;	// the y location of the bottom of the bounding box when the ground was last checked
 
 	private Entity attachedTo;
 	private final Set<Entity> attachedEntities;
@@ -38,10 +50,44 @@ public abstract class Entity extends GameObject implements Drawable {
 	
 	private Entity collidedWith;
 	
+	private int prepared;	// what the level's integration pass left this entity to do (see prepareUpdate)
+	private boolean integrated;	// whether the level's integration pass has already accelerated this entity this frame
+	
+	private boolean recycling;	// whether the level should put this entity in its pool once it has been removed
+	private int recycleCount;	// how many times this entity has been put in its level's pool
+	
+	// reused every frame so that moving doesn't create garbage
+	private final PVector moveFrom, moveTo, moveStep, moveDelta, moveDistance;
+	private final PVector pushLocation, pushDelta, carryLocation, boundsLocation, transferVelocity;
+	
 	enum CollisionMode {
 		LESS_THAN_OR_EQUAL_TO, EQUAL_TO, GREATER_THAN;
 	}
 	
+	private static final int[] NO_IDS = new int[0];
+	private static final Entity[] NO_ENTITIES = new Entity[0];
+	
+	// what is left to do in _update once the entity has been updated
+	private static final int NOT_PREPARED = 0;
+	private static final int PREPARED_TO_STOP = 1;
+	private static final int PREPARED_TO_STAY = 2;
+	private static final int PREPARED_TO_MOVE = 3;
+	
+	/**
+	 * How slow an entity must be moving (in grid units per second) to be at rest.
+	 */
+	private static final float SLEEP_VELOCITY = 0.05F;
+	
+	/**
+	 * How many frames in a row an entity must be at rest before it is put to sleep.
+	 */
+	private static final int SLEEP_FRAMES = 60;
+	
+	/**
+	 * The highest collision group an entity can be in.
+	 */
+	public static final int MAX_COLLISION_GROUP = 64;
+	
 	/**
 	 * Create a 2D Entity.
 	 * 
@@ -171,18 +217,32 @@ public abstract class Entity extends GameObject implements Drawable {
 			throw new InvalidParameterException("Only CENTER and CORNER draw modes are supported.");
 		}
 		
-		this.attachedEntities = new HashSet<Entity>();
-		this.entitiesOnMe = new HashSet<Entity>();
-		this.collisionIgnore = new HashSet<Entity>();
+		this.attachedEntities = new LinkedHashSet<Entity>();
+		this.entitiesOnMe = new LinkedHashSet<Entity>();
+		this.collisionIgnore = NO_IDS;
+		this.ignoredBy = NO_ENTITIES;
 		
 		this.mass = 1;
 		this.gravityEffected = false;
 		this.collisionMode = CollisionMode.LESS_THAN_OR_EQUAL_TO;
 		
 		this.ground = null;
+		this.groundCheckedAtY = Float.NaN;
+		this.recycleCount = 0;
 		
 		this.maxRotation = new PVector(Float.NaN, Float.NaN, Float.NaN);
 		this.minRotation = new PVector(Float.NaN, Float.NaN, Float.NaN);
+		
+		this.moveFrom = new PVector();
+		this.moveTo = new PVector();
+		this.moveStep = new PVector();
+		this.moveDelta = new PVector();
+		this.moveDistance = new PVector();
+		this.pushLocation = new PVector();
+		this.pushDelta = new PVector();
+		this.carryLocation = new PVector();
+		this.boundsLocation = new PVector();
+		this.transferVelocity = new PVector();
 	}
 
 	/**
@@ -192,61 +252,151 @@ public abstract class Entity extends GameObject implements Drawable {
 	 * @param delta The amount of game time that has passed since the last frame
 	 */
 	final void _update(float delta) {
-		if (getLevel() == null) {
+		int prepared = this.prepared;
+		this.prepared = NOT_PREPARED;
+		
+		if (getLevel() == null || attachedTo != null) {
+			integrated = false;
 			return;
 		}
-		if (attachedTo != null) {
+		
+		if (prepared == NOT_PREPARED) {
+			prepared = prepare(delta);
+		}
+		if (prepared == PREPARED_TO_STOP) {
 			return;
 		}
 		
+		if(prepared == PREPARED_TO_MOVE){
+			PVector currentLocation = getLocation(moveFrom);
+			PVector newLocation = getMoveToLocation(delta, moveTo);
+			
+			if (sweptCollision) {
+				moveSwept(newLocation, currentLocation);
+			} else {
+				moveStepped(newLocation, currentLocation);
+			}
+		}
+		
+		applyLocationLimits();
+		applyRotationLimits();
+		groundDetection();
+		if (collidedWith != null) {
+			getLevel().collided(this, collidedWith);
+		}
+		updateSleep();
+	}
+	
+	/**
+	 * Update the entity ahead of the level's integration pass, leaving the move until {@link #_update(float)} is called.
+	 * If the entity is going to move, it is flagged so that the level accelerates it
+	 * and {@link #getMoveToLocation(float)} doesn't accelerate it again.
+	 * (To be called from the {@link Level} class)
+	 * 
+	 * @param delta The amount of game time that has passed since the last frame
+	 * @return Whether or not the level needs to accelerate this entity
+	 */
+	final boolean prepareUpdate(float delta) {
+		if (getLevel() == null || attachedTo != null || isStatic()) {
+			return false;
+		}
+		
+		prepared = prepare(delta);
+		if (prepared != PREPARED_TO_MOVE) {
+			return false;
+		}
+		
+		boolean onGround = isOnGround();
+		if (gravityEffected && !onGround) {
+			flagForIntegration(MotionStore.FALLING, 0);
+		} else if (onGround) {
+			flagForIntegration(MotionStore.SLIDING, ground.getGroundFriction());
+		} else {
+			return false;
+		}
+		integrated = true;
+		return true;
+	}
+	
+	/**
+	 * Update the entity and everything attached to it, up to the point where it moves.
+	 * 
+	 * @param delta The amount of game time that has passed since the last frame
+	 * @return What is left to do in {@link #_update(float)}
+	 */
+	private int prepare(float delta) {
 		collidedWith = null;
 		
 		update(delta);
 		
 		if (getLevel() == null) {
-			return;
+			return PREPARED_TO_STOP;
+		}
+		if (isStatic()) {
+			applyRotationLimits();
+			// the level never moves a static entity but its own code still can
+			moveBoundingBox();
+			if (getLevel().updateStaticBounds(this)) {
+				wakeEntitiesOnMe();
+			}
+			for(Entity ent : attachedEntities){
+				ent.updateAttached(delta);
+			}
+			return PREPARED_TO_STOP;
 		}
 		
 		applyMotionLimits();
-		this.boundingBox.setLocation(getLocation());
+		updateBounds();
 		
 		boolean allChildrenCanMove = true;
 		for(Entity ent : attachedEntities){
 			if(!ent.updateAttached(delta)) allChildrenCanMove = false;
 		}
-		
-		if(allChildrenCanMove){
-			PVector currentLocation = getLocation();
-			PVector newLocation = getMoveToLocation(delta);
-			
-			if (!moveTry(newLocation, currentLocation)) {
-				if (!moveTry(new PVector(newLocation.x, currentLocation.y, currentLocation.z), currentLocation)) {
-					setVelocityX(0);
-					setVelocityOffsetX(0);
-				} else {
-					currentLocation.x = newLocation.x;
-				}
-				if (!moveTry(new PVector(currentLocation.x, newLocation.y, currentLocation.z), currentLocation)) {
-					setVelocityY(0);
-					setVelocityOffsetY(0);
-				} else {
-					currentLocation.y = newLocation.y;
-				}
-				if (!moveTry(new PVector(currentLocation.x, currentLocation.y, newLocation.z), currentLocation)) {
-					setVelocityZ(0);
-					setVelocityOffsetZ(0);
-				} else {
-					currentLocation.z = newLocation.z;
-				}
+		return allChildrenCanMove ? PREPARED_TO_MOVE : PREPARED_TO_STAY;
+	}
+	
+	/**
+	 * Count how long this entity has been at rest and put it to sleep once it has been at rest for long enough.
+	 */
+	private void updateSleep() {
+		if (!sleepEnabled || getLevel() == null) {
+			return;
+		}
+		if (isResting()) {
+			restingFrames++;
+			if (restingFrames >= SLEEP_FRAMES) {
+				sleep();
 			}
+		} else {
+			restingFrames = 0;
 		}
-		
-		applyLocationLimits();
-		applyRotationLimits();
-		groundDetection();
-		if (collidedWith != null) {
-			onCollidesWith(collidedWith);
+	}
+	
+	/**
+	 * Returns whether or not this entity is at rest.
+	 * An entity is at rest if it is barely moving and isn't going to start moving by itself;
+	 * it isn't falling, isn't standing on something that is moving and nothing is attached to it.
+	 * 
+	 * @return
+	 */
+	private boolean isResting() {
+		if (isStatic() || attachedTo != null || !attachedEntities.isEmpty()) {
+			return false;
+		}
+		if (gravityEffected && ground == null) {
+			return false;
 		}
+		if (!isBarelyMoving(this)) {
+			return false;
+		}
+		return ground == null || ground.isStatic() || ground.sleeping || isBarelyMoving(ground);
+	}
+	
+	private static boolean isBarelyMoving(Entity entity) {
+		float vx = entity.getVelocityX() + entity.getVelocityXOffset();
+		float vy = entity.getVelocityY() + entity.getVelocityYOffset();
+		float vz = entity.getVelocityZ() + entity.getVelocityZOffset();
+		return vx * vx + vy * vy + vz * vz < SLEEP_VELOCITY * SLEEP_VELOCITY;
 	}
 
 	private final boolean updateAttached(float delta){
@@ -260,10 +410,77 @@ public abstract class Entity extends GameObject implements Drawable {
 		setVelocity(0, 0, 0);
 		setVelocityOffset(0, 0, 0);
 		
-		PVector newLocation = getMoveToLocation(delta);
+		PVector newLocation = getMoveToLocation(delta, moveTo);
 		return getLevel().willCollideWithWhenMoved(this, newLocation) == null;
 	}
 
+	/**
+	 * Move this entity towards the given location by trying the whole move and then each axis on its own.
+	 * 
+	 * @param newLocation
+	 * @param currentLocation
+	 */
+	private void moveStepped(PVector newLocation, PVector currentLocation) {
+		if (!moveTry(newLocation, currentLocation)) {
+			if (!moveTry(moveStep.set(newLocation.x, currentLocation.y, currentLocation.z), currentLocation)) {
+				setVelocityX(0);
+				setVelocityOffsetX(0);
+			} else {
+				currentLocation.x = newLocation.x;
+			}
+			if (!moveTry(moveStep.set(currentLocation.x, newLocation.y, currentLocation.z), currentLocation)) {
+				setVelocityY(0);
+				setVelocityOffsetY(0);
+			} else {
+				currentLocation.y = newLocation.y;
+			}
+			if (!moveTry(moveStep.set(currentLocation.x, currentLocation.y, newLocation.z), currentLocation)) {
+				setVelocityZ(0);
+				setVelocityOffsetZ(0);
+			} else {
+				currentLocation.z = newLocation.z;
+			}
+		}
+	}
+	
+	/**
+	 * Move this entity towards the given location, stopping at the first thing it hits and sliding along it.
+	 * 
+	 * @param newLocation
+	 * @param currentLocation
+	 */
+	private void moveSwept(PVector newLocation, PVector currentLocation) {
+		SweepResult sweep = getLevel().sweep(this,
+				newLocation.x - currentLocation.x,
+				newLocation.y - currentLocation.y,
+				newLocation.z - currentLocation.z);
+		
+		// pushing works out how far the pushee can move one axis at a time
+		if (sweep.hit instanceof PushableEntity) {
+			moveStepped(newLocation, currentLocation);
+			return;
+		}
+		
+		if (collidedWith == null) {
+			collidedWith = sweep.hit;
+		}
+		if (sweep.blockedX) {
+			setVelocityX(0);
+			setVelocityOffsetX(0);
+		}
+		if (sweep.blockedY) {
+			setVelocityY(0);
+			setVelocityOffsetY(0);
+		}
+		if (sweep.blockedZ) {
+			setVelocityZ(0);
+			setVelocityOffsetZ(0);
+		}
+		
+		PVector dLocation = moveDelta.set(sweep.dx, sweep.dy, sweep.dz);
+		moveNow(moveStep.set(currentLocation).add(dLocation), dLocation);
+	}
+
 	/**
 	 * Try and move this entity to the given location.
 	 * 
@@ -273,11 +490,15 @@ public abstract class Entity extends GameObject implements Drawable {
 	private boolean moveTry(PVector newLocation, PVector currentLocation) {
 		Entity willCollideWith = getLevel().willCollideWithWhenMoved(this, newLocation);
 		
+		if (willCollideWith != null) {
+			getLevel().addContact(this, willCollideWith);
+			willCollideWith.wakeUp();
+		}
 		if (collidedWith == null) {
 			collidedWith = willCollideWith;
 		}
 		
-		PVector dLocation = PVector.sub(newLocation, currentLocation);
+		PVector dLocation = moveDelta.set(newLocation).sub(currentLocation);
 		
 		if(willCollideWith != null && willCollideWith instanceof PushableEntity){
 			return moveAndPush((PushableEntity) willCollideWith, newLocation, dLocation);
@@ -293,26 +514,48 @@ public abstract class Entity extends GameObject implements Drawable {
 	private void moveNow(PVector newLocation, PVector dLocation) {
 		Level level = getLevel();
 		setLocation(newLocation);
+		updateBounds();
 		for(Entity ent : attachedEntities){
-			PVector nl = ent.getLocation();
+			PVector nl = ent.getLocation(carryLocation);
 			nl.add(dLocation);
 			if(level.willCollideWithWhenMoved(ent, nl ) == null){
 				ent.setLocation(nl);
+				ent.updateBounds();
 			}
 		}
 		for(Entity ent : entitiesOnMe){
-			PVector nl = ent.getLocation();
+			ent.wakeUp();
+			PVector nl = ent.getLocation(carryLocation);
 			nl.add(dLocation);
 			if(level.willCollideWithWhenMoved(ent, nl ) == null){
 				ent.setLocation(nl);
+				ent.updateBounds();
 			}
 		}
 	}
 	
+	/**
+	 * Move the bounding box to where this entity is without telling the level.
+	 */
+	void moveBoundingBox() {
+		boundingBox.setLocation(getLocation(boundsLocation));
+	}
+	
+	/**
+	 * Move the bounding box to where this entity is and let the level know it has moved.
+	 */
+	void updateBounds() {
+		moveBoundingBox();
+		Level level = getLevel();
+		if (level != null) {
+			level.updateEntityBounds(this);
+		}
+	}
+	
 	private boolean moveAndPush(PushableEntity pushee, PVector newLocation, PVector dLocation) {
 		float resistance = pushee.getResistance();
-		PVector pusheeDLocation = PVector.mult(dLocation, 1-resistance);
-		PVector pusheeNewLocation = PVector.add(pushee.getLocation(), pusheeDLocation);
+		PVector pusheeDLocation = pushDelta.set(dLocation).mult(1-resistance);
+		PVector pusheeNewLocation = pushee.getLocation(pushLocation).add(pusheeDLocation);
 		
 		if(getLevel().willCollideWithWhenMoved(pushee, pusheeNewLocation) != null) {
 			return false;
@@ -324,9 +567,9 @@ public abstract class Entity extends GameObject implements Drawable {
 		((Entity)(pushee)).moveNow(pusheeNewLocation, pusheeDLocation);
 		this.moveNow(newLocation, dLocation);
 		
-		setVelocity(getVelocity().mult(1 - resistance));
-		setVelocityOffset(getVelocityOffset().mult(1 - resistance));	// TODO is this needed
-		pushee.addVelocity(getVelocity());
+		setVelocity(getVelocity(transferVelocity).mult(1 - resistance));
+		setVelocityOffset(getVelocityOffset(transferVelocity).mult(1 - resistance));	// TODO is this needed
+		pushee.addVelocity(getVelocity(transferVelocity));
 		
 		return true;
 	}
@@ -337,15 +580,19 @@ public abstract class Entity extends GameObject implements Drawable {
 	 * @param delta The amount of game time that has passed since the last frame
 	 * @return The location that the entity will move to
 	 */
+	@Override
 	protected PVector getMoveToLocation(float delta){
 		Level level = getLevel();
 		boolean onGround = isOnGround();
 		
-		if(gravityEffected && !onGround){
-			applyAcceleration(level.getGravity(), level.getAirFriction(), delta);
-		}
-		if(onGround){
-			applyAcceleration(0, 0, 0, ground.getGroundFriction(), delta);
+		if(integrated){
+			// the level has already accelerated this entity
+			integrated = false;
+		}else if(gravityEffected && !onGround){
+			PVector gravity = level.getGravity();
+			applyAcceleration(gravity.x, gravity.y, gravity.z, level.getAirFriction(), delta, moveDistance);
+		}else if(onGround){
+			applyAcceleration(0, 0, 0, ground.getGroundFriction(), delta, moveDistance);
 		}
 		
 		return super.getMoveToLocation(delta);
@@ -358,6 +605,129 @@ public abstract class Entity extends GameObject implements Drawable {
 	 */
 	public abstract void onCollidesWith(Entity entityCollidedWith);
 	
+	/**
+	 * Called after everything in the level has moved when this entity first comes into contact with another entity.
+	 * Two entities are in contact while one of them is being stopped by the other or is standing on the other.
+	 * 
+	 * @param other
+	 */
+	public void onCollisionEnter(Entity other) {
+	}
+	
+	/**
+	 * Called after everything in the level has moved for each frame after the first that this entity stays in contact with another entity.
+	 * 
+	 * @param other
+	 */
+	public void onCollisionStay(Entity other) {
+	}
+	
+	/**
+	 * Called after everything in the level has moved when this entity stops being in contact with another entity.
+	 * This is also called when the other entity is removed from the level.
+	 * 
+	 * @param other
+	 */
+	public void onCollisionExit(Entity other) {
+	}
+	
+	/**
+	 * Called when this entity is put in its level's pool after {@link #recycle()}.
+	 * By then the entity has been stopped and taken off of everything it was on or attached to;
+	 * override this to reset anything a subclass changes while the entity is in the level
+	 * (e.g. the time a bullet has left to live) so that it is ready to be respawned.
+	 */
+	protected void onRecycle() {
+	}
+	
+	/**
+	 * Remove this entity from the level and keep it in the level's pool for its class
+	 * so that {@link Level#respawn(Class, float, float, float)} can reuse it instead of creating a new entity.
+	 * The entity is put in the pool once the level has finished removing it at the end of the frame.
+	 * Nothing else should hold on to the entity once it has been recycled.
+	 */
+	public final void recycle() {
+		if (getLevel() == null) {
+			throw new RuntimeException("Cannot recycle an entity that isn't in a level.");
+		}
+		recycling = true;
+		remove();
+	}
+	
+	/**
+	 * Returns whether or not this entity has been recycled and is waiting to be put in its level's pool.
+	 * (To be called from the {@link Level} class)
+	 * 
+	 * @return
+	 */
+	final boolean isRecycling() {
+		return recycling;
+	}
+	
+	/**
+	 * Clear everything this entity picked up while it was in the level so that it can be respawned.
+	 * The entity's size, mass, collision settings and limits are kept.
+	 * (To be called from the {@link Level} class once the entity has been removed)
+	 */
+	final void resetForPool() {
+		if (attachedTo != null) {
+			attachedTo.attachedEntities.remove(this);
+			attachedTo = null;
+		}
+		for (Entity ent : attachedEntities) {
+			ent.attachedTo = null;
+		}
+		attachedEntities.clear();
+		
+		if (ground != null) {
+			synchronized (ground.entitiesOnMe) {
+				ground.entitiesOnMe.remove(this);
+			}
+			ground = null;
+		}
+		// the entities standing on this one lose their ground, as they would if it moved out from under them
+		while (!entitiesOnMe.isEmpty()) {
+			Entity ent = entitiesOnMe.iterator().next();
+			if (ent.ground == this) {
+				ent.ground = null;
+				ent.groundCheckedAtY = Float.NaN;
+			}
+			takeOff(ent);
+		}
+		groundCheckedAtY = Float.NaN;
+		
+		collidedWith = null;
+		collisionIgnoreCount = 0;
+		sleeping = false;
+		restingFrames = 0;
+		prepared = NOT_PREPARED;
+		integrated = false;
+		
+		resetMotion();
+		rotation.set(0, 0, 0);
+		rotationOffset.set(0, 0, 0);
+		
+		// contacts from before this point belong to the entity's last life
+		recycleCount++;
+		
+		onRecycle();
+	}
+	
+	/**
+	 * Put this entity back in the given level at the given location after it has been in the level's pool.
+	 * (To be called from the {@link Level} class)
+	 * 
+	 * @param level
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
+	final void respawn(Level level, float x, float y, float z) {
+		recycling = false;
+		setLocation(x, y, z);
+		setLevel(level);
+	}
+	
 	/**
 	 * Draw the entity.
 	 * This method calls {@link #draw(PGraphics)}.
@@ -447,8 +817,19 @@ public abstract class Entity extends GameObject implements Drawable {
 	}
 	
 	private void groundDetection(){
+		Level level = getLevel();
 		Entity lastGround = ground;
-		ground = getLevel().getGround(this);
+		float bottom = level.is3D() ? boundingBox.getMaxY() : boundingBox.getMinY();
+		
+		// if we haven't moved up or down, we are most likely still on the same ground
+		if(lastGround == null || bottom != groundCheckedAtY || !level.isStillGround(this, lastGround)){
+			ground = level.getGround(this);
+		}
+		groundCheckedAtY = bottom;
+		
+		// resting on the ground keeps us in contact with it
+		if(ground != null) level.addContact(this, ground);
+		
 		if(lastGround != ground){
 			if(lastGround != null) lastGround.takeOff(this);
 			if(ground != null) ground.putOn(this);
@@ -545,7 +926,10 @@ public abstract class Entity extends GameObject implements Drawable {
 	private void putOn(Entity entity){
 		assert(entity != this);
 		entity.entitiesOnMe.remove(this);
-		this.entitiesOnMe.add(entity);
+		// a static entity can be the ground of entities that are being updated at the same time
+		synchronized (entitiesOnMe) {
+			this.entitiesOnMe.add(entity);
+		}
 	}
 	
 	/**
@@ -554,8 +938,11 @@ public abstract class Entity extends GameObject implements Drawable {
 	 * @param entity
 	 */
 	private void takeOff(Entity entity){
-		this.entitiesOnMe.remove(entity);
-		entity.addVelocity(getVelocity());
+		synchronized (entitiesOnMe) {
+			this.entitiesOnMe.remove(entity);
+		}
+		// the entity's own vector; this entity may be the ground of entities being updated by other threads
+		entity.addVelocity(getVelocity(entity.transferVelocity));
 	}
 	
 	/**
@@ -564,7 +951,22 @@ public abstract class Entity extends GameObject implements Drawable {
 	 * @param entity
 	 */
 	public void ignoreInCollisions(Entity entity){
-		collisionIgnore.add(entity);
+		if (isIgnoringInCollisions(entity)) {
+			return;
+		}
+		if (collisionIgnoreCount == collisionIgnore.length) {
+			int[] bigger = new int[Math.max(2, collisionIgnoreCount * 2)];
+			System.arraycopy(collisionIgnore, 0, bigger, 0, collisionIgnoreCount);
+			collisionIgnore = bigger;
+		}
+		collisionIgnore[collisionIgnoreCount++] = entity.id;
+		
+		if (entity.ignoredByCount == entity.ignoredBy.length) {
+			Entity[] bigger = new Entity[Math.max(2, entity.ignoredByCount * 2)];
+			System.arraycopy(entity.ignoredBy, 0, bigger, 0, entity.ignoredByCount);
+			entity.ignoredBy = bigger;
+		}
+		entity.ignoredBy[entity.ignoredByCount++] = this;
 	}
 
 	/**
@@ -573,7 +975,85 @@ public abstract class Entity extends GameObject implements Drawable {
 	 * @param entity
 	 */
 	public void unignoreInCollisions(Entity entity){
-		collisionIgnore.remove(entity);
+		if (removeIgnoredId(entity.id)) {
+			entity.removeIgnoredBy(this);
+		}
+	}
+
+	/**
+	 * Take the given id out of the ids of the entities to ignore.
+	 * 
+	 * @param id
+	 * @return Whether or not the id was there
+	 */
+	private boolean removeIgnoredId(int id){
+		for (int i = 0; i < collisionIgnoreCount; i++) {
+			if (collisionIgnore[i] == id) {
+				collisionIgnore[i] = collisionIgnore[--collisionIgnoreCount];
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Take the given entity out of the entities ignoring this one.
+	 * 
+	 * @param entity
+	 */
+	private void removeIgnoredBy(Entity entity){
+		for (int i = 0; i < ignoredByCount; i++) {
+			if (ignoredBy[i] == entity) {
+				ignoredBy[i] = ignoredBy[--ignoredByCount];
+				ignoredBy[ignoredByCount] = null;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Stop every entity that is ignoring this one from ignoring it and stop this entity ignoring any others,
+	 * as otherwise they would ignore the next entity given the id.
+	 * This only looks at the entities involved, so freeing an id doesn't depend on how many entities are in the level.
+	 * (To be called from the {@link Level} class before this entity's id is freed)
+	 * 
+	 * @param level The level giving out the ids
+	 */
+	void clearCollisionIgnores(Level level){
+		for (int i = 0; i < ignoredByCount; i++) {
+			ignoredBy[i].removeIgnoredId(id);
+			ignoredBy[i] = null;
+		}
+		ignoredByCount = 0;
+		
+		for (int i = 0; i < collisionIgnoreCount; i++) {
+			Entity entity = level.getEntityById(collisionIgnore[i]);
+			if (entity != null) {
+				entity.removeIgnoredBy(this);
+			}
+		}
+		collisionIgnoreCount = 0;
+	}
+	
+	/**
+	 * Returns whether or not this entity is ignoring the given entity during collision detection.
+	 * 
+	 * @param entity
+	 * @return
+	 */
+	public boolean isIgnoringInCollisions(Entity entity){
+		int count = collisionIgnoreCount;
+		if (count == 0) {
+			return false;
+		}
+		int id = entity.id;
+		int[] ids = collisionIgnore;
+		for (int i = 0; i < count; i++) {
+			if (ids[i] == id) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -636,7 +1116,17 @@ public abstract class Entity extends GameObject implements Drawable {
 	 * @return the location
 	 */
 	public PVector getSize(){
-		return new PVector(getWidth(), getHeight(), getDepth());
+		return getSize(new PVector());
+	}
+
+	/**
+	 * Get the size of this entity (in grid units) without creating a new vector.
+	 * 
+	 * @param out The vector to store the size in
+	 * @return out
+	 */
+	public PVector getSize(PVector out){
+		return out.set(getWidth(), getHeight(), getDepth());
 	}
 	
 	/**
@@ -645,7 +1135,17 @@ public abstract class Entity extends GameObject implements Drawable {
 	 * @return the location
 	 */
 	public PVector getSizeInPixels(){
-		return new PVector(getWidthInPixels(), getHeightInPixels(), getDepthInPixels());
+		return getSizeInPixels(new PVector());
+	}
+
+	/**
+	 * Get the size of this entity (in pixels) without creating a new vector.
+	 * 
+	 * @param out The vector to store the size in
+	 * @return out
+	 */
+	public PVector getSizeInPixels(PVector out){
+		return out.set(getWidthInPixels(), getHeightInPixels(), getDepthInPixels());
 	}
 
 	/**
@@ -679,7 +1179,17 @@ public abstract class Entity extends GameObject implements Drawable {
 	 * @return the rotation
 	 */
 	public PVector getRotation3D(){
-		return new PVector(getRotation3DTilt(), getRotation3DPan(), getRotation3DRoll());
+		return getRotation3D(new PVector());
+	}
+
+	/**
+	 * Get the 3D rotation of this entity without creating a new vector.
+	 * 
+	 * @param out The vector to store the rotation in
+	 * @return out
+	 */
+	public PVector getRotation3D(PVector out){
+		return out.set(getRotation3DTilt(), getRotation3DPan(), getRotation3DRoll());
 	}
 
 	/**
@@ -739,6 +1249,16 @@ public abstract class Entity extends GameObject implements Drawable {
 		return rotationOffset.copy();
 	}
 
+	/**
+	 * Get the 3D rotation offset of this entity without creating a new vector.
+	 * 
+	 * @param out The vector to store the rotation offset in
+	 * @return out
+	 */
+	public PVector getRotation3DOffset(PVector out){
+		return out.set(rotationOffset);
+	}
+
 	/**
 	 * Get the tilt rotation offset of this entity.
 	 * 
@@ -801,6 +1321,16 @@ public abstract class Entity extends GameObject implements Drawable {
 	public PVector getScale(){
 		return scale.copy();
 	}
+
+	/**
+	 * Get the scale of this entity without creating a new vector.
+	 * 
+	 * @param out The vector to store the scale in
+	 * @return out
+	 */
+	public PVector getScale(PVector out){
+		return out.set(scale);
+	}
 	
 	/**
 	 * Get the mass of this entity.
@@ -811,6 +1341,15 @@ public abstract class Entity extends GameObject implements Drawable {
 		return mass;
 	}
 	
+	/**
+	 * Get the entity this entity is attached to.
+	 * 
+	 * @return the entity or null if this entity isn't attached to anything
+	 */
+	Entity getAttachedTo() {
+		return attachedTo;
+	}
+	
 	public Entity getGroundEntity() {
 		return ground;
 	}
@@ -862,13 +1401,64 @@ public abstract class Entity extends GameObject implements Drawable {
 		return collisionMode;
 	}
 	
+	/**
+	 * Get the collision layer of this entity.
+	 * This is a single bit; bit n-1 is set for collision group n. Collision group 0 has no bits set.
+	 * 
+	 * @return
+	 */
+	public long getCollisionLayer() {
+		return collisionLayer;
+	}
+	
+	/**
+	 * Get the collision layers this entity will collide with.
+	 * Another entity can collide with this one if this mask contains its layer.
+	 * 
+	 * @return
+	 */
+	public long getCollisionMask() {
+		return collisionMask;
+	}
+	
 	/**
 	 * Get a set of the entities this entity will explicitly ignore during collision detection.
+	 * This makes a new set each time it is called.
 	 * 
 	 * @return
 	 */
 	public Set<Entity> getCollisionIgnoreEntities(){
-		return Collections.unmodifiableSet(collisionIgnore);
+		Set<Entity> ignored = new LinkedHashSet<Entity>();
+		Level level = getLevel();
+		if (level != null) {
+			for (int i = 0; i < collisionIgnoreCount; i++) {
+				Entity entity = level.getEntityById(collisionIgnore[i]);
+				if (entity != null) {
+					ignored.add(entity);
+				}
+			}
+		}
+		return ignored;
+	}
+	
+	/**
+	 * Get how many times this entity has been put in its level's pool (see {@link #recycle()}).
+	 * Used to tell the contacts an entity had before it was recycled from the ones it has after it is respawned.
+	 * 
+	 * @return
+	 */
+	final int getRecycleCount() {
+		return recycleCount;
+	}
+	
+	/**
+	 * Get this entity's id.
+	 * Ids are given out by the level; they start from 0 and are reused once an entity is removed from the level.
+	 * 
+	 * @return
+	 */
+	public int getId() {
+		return id;
 	}
 
 	/**
@@ -878,6 +1468,47 @@ public abstract class Entity extends GameObject implements Drawable {
 		return gravityEffected;
 	}
 	
+	/**
+	 * Get whether or not this entity uses swept collision detection.
+	 * 
+	 * @return
+	 */
+	public boolean isSweptCollision(){
+		return sweptCollision;
+	}
+	
+	/**
+	 * Get whether or not this entity is put to sleep when it comes to rest.
+	 * 
+	 * @return
+	 */
+	public boolean isSleepEnabled(){
+		return sleepEnabled;
+	}
+	
+	/**
+	 * Returns whether or not this entity is asleep.
+	 * A sleeping entity is not updated until it is woken up.
+	 * 
+	 * @return
+	 */
+	public boolean isSleeping(){
+		return sleeping;
+	}
+	
+	/**
+	 * Returns whether or not this entity never moves.
+	 * Static entities are kept apart from the moving ones for collision detection
+	 * and are not moved or tested for collisions when they update.
+	 * One can still be moved or resized by its own code; the level picks up its new bounds after its next update.
+	 * This must always return the same value for a given entity.
+	 * 
+	 * @return
+	 */
+	public boolean isStatic() {
+		return false;
+	}
+	
 	/**
 	 * Returns whether or not this entity is on the ground.
 	 * 
@@ -887,6 +1518,16 @@ public abstract class Entity extends GameObject implements Drawable {
 		return ground != null;
 	}
 
+	/**
+	 * Set this entity's id.
+	 * (To be called from the {@link Level} class)
+	 * 
+	 * @param id
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+
 	/**
 	 * Set the mass of the entity.
 	 * The mass must be greater than 0.
@@ -920,16 +1561,85 @@ public abstract class Entity extends GameObject implements Drawable {
 		gravityEffected = b;
 	}
 
+	/**
+	 * Set whether or not this entity uses swept collision detection.
+	 * A swept entity finds the first thing it will hit along its whole move and slides along it for the rest of the move,
+	 * so it won't pass through thin entities when it moves fast.
+	 * 
+	 * @param b
+	 */
+	public void setSweptCollision(boolean b){
+		sweptCollision = b;
+	}
+	
+	/**
+	 * Set whether or not this entity is put to sleep when it comes to rest.
+	 * An entity is at rest once it has barely moved for a number of frames in a row while standing on something that isn't moving (or while not effected by gravity).
+	 * A sleeping entity's {@link #update(float)} method isn't called, so only entities that don't start moving on their own should sleep.
+	 * 
+	 * @param b
+	 */
+	public void setSleepEnabled(boolean b){
+		sleepEnabled = b;
+		if (!b) {
+			wakeUp();
+		}
+		restingFrames = 0;
+	}
+	
+	/**
+	 * Put this entity to sleep.
+	 * It will stay asleep until something touches it, it is moved or its velocity is changed,
+	 * the entity it is standing on moves or {@link #wakeUp()} is called.
+	 */
+	public void sleep(){
+		Level level = getLevel();
+		if (sleeping || level == null || isStatic()) {
+			return;
+		}
+		sleeping = true;
+		level.sleepEntity(this);
+	}
+	
+	/**
+	 * Wake this entity up if it is asleep.
+	 */
+	@Override
+	public void wakeUp(){
+		if (!sleeping) {
+			return;
+		}
+		sleeping = false;
+		restingFrames = 0;
+		Level level = getLevel();
+		if (level != null) {
+			level.wakeEntity(this);
+		}
+	}
+	
+	/**
+	 * Wake up all the entities standing on this entity.
+	 * (To be called from the {@link Level} and {@link TileLayer} classes)
+	 */
+	void wakeEntitiesOnMe(){
+		for (Entity ent : entitiesOnMe) {
+			ent.wakeUp();
+		}
+	}
+
 	/**
 	 * Set the collision group that this entity is apart of.
-	 * The group number cannot be negative. If group value equals 0 then the entity will not collide with any thing.
+	 * The group number cannot be negative or greater than {@link #MAX_COLLISION_GROUP}. If group value equals 0 then the entity will not collide with any thing.
+	 * This resets the collision mask to match the collision mode.
 	 * 
 	 * @param group The group to put this entity in
 	 */
 	public void setCollisionGroup(int group){
 		if(group < 0) throw new RuntimeException("Cannot set an entity's collision group to a negative namuber.");
+		if(group > MAX_COLLISION_GROUP) throw new RuntimeException("Cannot set an entity's collision group higher than " + MAX_COLLISION_GROUP + ".");
 		int oldGroup = collisionGroup;
 		collisionGroup = group;
+		updateCollisionMask();
 		getLevel().updateEntityCollisionGroup(this, oldGroup);
 	}
 
@@ -951,6 +1661,7 @@ public abstract class Entity extends GameObject implements Drawable {
 		}
 		else{
 			collisionMode = mode;
+			updateCollisionMask();
 		}
 	}
 
@@ -967,16 +1678,57 @@ public abstract class Entity extends GameObject implements Drawable {
 		setCollisionMode(mode);
 	}
 
+	/**
+	 * Set exactly which collision layers this entity will collide with.
+	 * Bit n-1 of the mask is for collision group n.
+	 * This is reset when the collision group or mode changes.
+	 * 
+	 * @param mask
+	 */
+	public void setCollisionMask(long mask){
+		collisionMask = collisionGroup == 0 ? 0 : mask;
+	}
+	
+	/**
+	 * Work out the collision layer and mask from the collision group and mode.
+	 */
+	private void updateCollisionMask(){
+		if(collisionGroup == 0){
+			collisionLayer = 0;
+			collisionMask = 0;
+			return;
+		}
+		
+		collisionLayer = 1L << (collisionGroup - 1);
+		long groupAndBelow = collisionGroup == MAX_COLLISION_GROUP ? -1L : (1L << collisionGroup) - 1;
+		
+		switch(collisionMode){
+		case EQUAL_TO:
+			collisionMask = collisionLayer;
+			break;
+		case LESS_THAN_OR_EQUAL_TO:
+			collisionMask = groupAndBelow;
+			break;
+		case GREATER_THAN:
+			collisionMask = ~groupAndBelow;
+			break;
+		default:
+			collisionMask = 0;
+		}
+	}
+
 	public void setBoundingBox3D(BoundingBox3D boundingBox) {
 		if(boundingBox == null) throw new IllegalArgumentException("Cannot set an entity's bounding box to null.");
 		if(!getLevel().is3D()) throw new UnsupportedOperationException("Cannot use a 3D bounding box in a 2D level.");
 		this.boundingBox = boundingBox;
+		updateBounds();
 	}
 
 	public void setBoundingBox2D(BoundingBox2D boundingBox) {
 		if(boundingBox == null) throw new IllegalArgumentException("Cannot set an entity's bounding box to null.");
 		if(getLevel().is3D()) throw new UnsupportedOperationException("Cannot use a 2D bounding box in a 3D level.");
 		this.boundingBox = boundingBox;
+		updateBounds();
 	}
 	
 	/**
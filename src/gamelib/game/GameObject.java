@@ -5,15 +5,26 @@ import processing.core.PVector;
 
 public abstract class GameObject implements Updatable {
 
-	private final PVector location;
-	private final PVector velocity;
+	// the location, velocity, offsets and limits; only used while the motion isn't in a level's store (see MotionStore)
+	private float x, y, z;
+	private float velocityX, velocityY, velocityZ;
+	private float xOffset, yOffset, zOffset;
+	private float velocityXOffset, velocityYOffset, velocityZOffset;
+	private float minX, minY, minZ;
+	private float maxX, maxY, maxZ;
+	private float minVelocityX, minVelocityY, minVelocityZ;
+	private float maxVelocityX, maxVelocityY, maxVelocityZ;
+	private float maxHorizontalVelocity;
+	private byte flags;
+	private float groundFriction;
 	
-	private final PVector locationOffset;
-	private final PVector velocityOffset;
+	// the level's store and the slot in it that the motion is in; null while the fields above are used
+	private MotionStore motion;
+	private int slot;
 	
-	private final PVector maxLocation, minLocation;
-	private final PVector maxVelocity, minVelocity;
-	private float maxHorizontalVelocity;
+	// reused every frame so that moving doesn't create garbage
+	private final PVector moveToLocation;
+	private final PVector scratchVelocity;
 	
 	private Level level;
 	
@@ -38,17 +49,27 @@ public abstract class GameObject implements Updatable {
 	 */
 	public GameObject(Level level, float x, float y, float z) {
 		setLevel(level);
-		this.location = new PVector(x, y, z);
-		this.velocity = new PVector();
-		
-		this.locationOffset = new PVector();
-		this.velocityOffset = new PVector();
-		
-		this.maxLocation = new PVector(Float.NaN, Float.NaN, Float.NaN);
-		this.minLocation = new PVector(Float.NaN, Float.NaN, Float.NaN);
-		this.maxVelocity = new PVector(Float.NaN, Float.NaN, Float.NaN);
-		this.minVelocity = new PVector(Float.NaN, Float.NaN, Float.NaN);
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.minX = Float.NaN;
+		this.minY = Float.NaN;
+		this.minZ = Float.NaN;
+		this.maxX = Float.NaN;
+		this.maxY = Float.NaN;
+		this.maxZ = Float.NaN;
+		this.minVelocityX = Float.NaN;
+		this.minVelocityY = Float.NaN;
+		this.minVelocityZ = Float.NaN;
+		this.maxVelocityX = Float.NaN;
+		this.maxVelocityY = Float.NaN;
+		this.maxVelocityZ = Float.NaN;
 		this.maxHorizontalVelocity = Float.NaN;
+		this.motion = null;
+		this.slot = -1;
+		
+		this.moveToLocation = new PVector();
+		this.scratchVelocity = new PVector();
 	}
 	
 	/**
@@ -69,10 +90,18 @@ public abstract class GameObject implements Updatable {
 		}
 		
 		applyMotionLimits();
-		setLocation(getMoveToLocation(delta));
+		setLocation(getMoveToLocation(delta, moveToLocation));
 		applyLocationLimits();
 	}
 	
+	/**
+	 * Wake this object up if it is asleep.
+	 * This is called whenever the object's location or velocity is changed.
+	 */
+	void wakeUp() {
+		
+	}
+	
 	/**
 	 * Apply an acceleration to the entity.
 	 * 
@@ -97,7 +126,28 @@ public abstract class GameObject implements Updatable {
 	 * @return The distance traveled be the entity
 	 */
 	public PVector applyAcceleration(float ax, float ay, float az, float friction, float time){
-		return applyAcceleration(new PVector(ax, ay, az), friction, time);
+		return applyAcceleration(ax, ay, az, friction, time, new PVector());
+	}
+	
+	/**
+	 * Apply an acceleration to the entity without creating a new vector.
+	 * 
+	 * @param ax X acceleration
+	 * @param ay Y acceleration
+	 * @param az Z acceleration
+	 * @param friction The amount of friction to apply (should be between 0 and 1 though can be greater)
+	 * @param time The amount of time to accelerate for
+	 * @param distance The vector to store the distance traveled in
+	 * @return distance
+	 */
+	public PVector applyAcceleration(float ax, float ay, float az, float friction, float time, PVector distance){
+		wakeUp();
+		PVector velocity = scratchVelocity.set(velocityX(), velocityY(), velocityZ());
+		accelerate(velocity, ax, ay, az, friction, time, distance);
+		velocityX(velocity.x);
+		velocityY(velocity.y);
+		velocityZ(velocity.z);
+		return distance;
 	}
 	
 	/**
@@ -120,7 +170,7 @@ public abstract class GameObject implements Updatable {
 	 * @return The distance traveled be the entity
 	 */
 	public PVector applyAcceleration(PVector a, float friction, float time){
-		return accelerate(velocity, a, friction, time);
+		return applyAcceleration(a.x, a.y, a.z, friction, time, new PVector());
 	}
 	
 	/**
@@ -133,14 +183,48 @@ public abstract class GameObject implements Updatable {
 	 * @return The distance traveled
 	 */
 	public static PVector accelerate(PVector velocity, PVector acceleration, float friction, float time) {
-		PVector distance;
-
+		return accelerate(velocity, acceleration.x, acceleration.y, acceleration.z, friction, time, new PVector());
+	}
+	
+	/**
+	 * Accelerate the given velocity by the given acceleration, applying the give amount of friction.
+	 * 
+	 * With friction the velocity decays exponentially towards the terminal velocity (acceleration / friction);
+	 * the decay is only worked out once for all three axes.
+	 * 
+	 * @param velocity The velocity to accelerate
+	 * @param ax X acceleration
+	 * @param ay Y acceleration
+	 * @param az Z acceleration
+	 * @param friction The amount of friction to apply (should be between 0 and 1 though can be greater)
+	 * @param time The amount of time to accelerate for
+	 * @param distance The vector to store the distance traveled in (must not be the velocity)
+	 * @return distance
+	 */
+	public static PVector accelerate(PVector velocity, float ax, float ay, float az, float friction, float time, PVector distance) {
+		float vx = velocity.x, vy = velocity.y, vz = velocity.z;
+		
 		if (friction == 0) {
-			distance = PVector.add(PVector.mult(velocity, time), PVector.mult(acceleration, 0.5F * time * time));
-			velocity.add(PVector.mult(acceleration, time));
+			float halfTimeSq = 0.5F * time * time;
+			distance.set(vx * time + ax * halfTimeSq, vy * time + ay * halfTimeSq, vz * time + az * halfTimeSq);
+			velocity.set(vx + ax * time, vy + ay * time, vz + az * time);
 		} else {
-			distance = PVector.add(PVector.mult(acceleration, time / friction), PVector.mult(PVector.sub(velocity, PVector.div(acceleration, friction)), (float) ((1 - Math.exp(-friction * time)) / friction)));
-			velocity.set(PVector.add(PVector.div(acceleration, friction), PVector.mult(PVector.sub(velocity, PVector.div(acceleration, friction)), (float) Math.exp(-friction * time))));
+			double decay = Math.exp(-friction * time);
+			float remaining = (float) decay;
+			float decayTime = (float) ((1 - decay) / friction);
+			float timeOverFriction = time / friction;
+			
+			// the terminal velocity
+			float tx = ax / friction, ty = ay / friction, tz = az / friction;
+			
+			distance.set(
+					ax * timeOverFriction + (vx - tx) * decayTime,
+					ay * timeOverFriction + (vy - ty) * decayTime,
+					az * timeOverFriction + (vz - tz) * decayTime);
+			velocity.set(
+					tx + (vx - tx) * remaining,
+					ty + (vy - ty) * remaining,
+					tz + (vz - tz) * remaining);
 		}
 		
 		return distance;
@@ -150,50 +234,70 @@ public abstract class GameObject implements Updatable {
 	 * Apply the limits the location of this entity.
 	 */
 	protected void applyLocationLimits() {
-		if (!Float.isNaN(minLocation.x)) location.x = Math.max(location.x + locationOffset.x, minLocation.x) - locationOffset.x;
-		if (!Float.isNaN(minLocation.y)) location.y = Math.max(location.y + locationOffset.y, minLocation.y) - locationOffset.y;
-		if (!Float.isNaN(minLocation.z)) location.z = Math.max(location.z + locationOffset.z, minLocation.z) - locationOffset.z;
+		if ((flags() & MotionStore.LOCATION_LIMITS) == 0) {
+			return;
+		}
+		if (!Float.isNaN(minX())) x(Math.max(x() + xOffset(), minX()) - xOffset());
+		if (!Float.isNaN(minY())) y(Math.max(y() + yOffset(), minY()) - yOffset());
+		if (!Float.isNaN(minZ())) z(Math.max(z() + zOffset(), minZ()) - zOffset());
 	
-		if (!Float.isNaN(maxLocation.x)) location.x = Math.min(location.x + locationOffset.x, maxLocation.x) - locationOffset.x;
-		if (!Float.isNaN(maxLocation.y)) location.y = Math.min(location.y + locationOffset.y, maxLocation.y) - locationOffset.y;
-		if (!Float.isNaN(maxLocation.z)) location.z = Math.min(location.z + locationOffset.z, maxLocation.z) - locationOffset.z;
+		if (!Float.isNaN(maxX())) x(Math.min(x() + xOffset(), maxX()) - xOffset());
+		if (!Float.isNaN(maxY())) y(Math.min(y() + yOffset(), maxY()) - yOffset());
+		if (!Float.isNaN(maxZ())) z(Math.min(z() + zOffset(), maxZ()) - zOffset());
 	}
 
 	/**
 	 * Apply the limits the motion of this entity.
 	 */
 	protected void applyMotionLimits() {
-		if (!Float.isNaN(minVelocity.x)) velocity.x = Math.max(velocity.x + velocityOffset.x, minVelocity.x) - velocityOffset.x;
-		if (!Float.isNaN(minVelocity.y)) velocity.y = Math.max(velocity.y + velocityOffset.y, minVelocity.y) - velocityOffset.y;
-		if (!Float.isNaN(minVelocity.z)) velocity.z = Math.max(velocity.z + velocityOffset.z, minVelocity.z) - velocityOffset.z;
+		if ((flags() & MotionStore.VELOCITY_LIMITS) == 0) {
+			return;
+		}
+		if (!Float.isNaN(minVelocityX())) velocityX(Math.max(velocityX() + velocityXOffset(), minVelocityX()) - velocityXOffset());
+		if (!Float.isNaN(minVelocityY())) velocityY(Math.max(velocityY() + velocityYOffset(), minVelocityY()) - velocityYOffset());
+		if (!Float.isNaN(minVelocityZ())) velocityZ(Math.max(velocityZ() + velocityZOffset(), minVelocityZ()) - velocityZOffset());
 	
-		if (!Float.isNaN(maxVelocity.x)) velocity.x = Math.min(velocity.x + velocityOffset.x, maxVelocity.x) - velocityOffset.x;
-		if (!Float.isNaN(maxVelocity.y)) velocity.y = Math.min(velocity.y + velocityOffset.y, maxVelocity.y) - velocityOffset.y;
-		if (!Float.isNaN(maxVelocity.z)) velocity.z = Math.min(velocity.z + velocityOffset.z, maxVelocity.z) - velocityOffset.z;
+		if (!Float.isNaN(maxVelocityX())) velocityX(Math.min(velocityX() + velocityXOffset(), maxVelocityX()) - velocityXOffset());
+		if (!Float.isNaN(maxVelocityY())) velocityY(Math.min(velocityY() + velocityYOffset(), maxVelocityY()) - velocityYOffset());
+		if (!Float.isNaN(maxVelocityZ())) velocityZ(Math.min(velocityZ() + velocityZOffset(), maxVelocityZ()) - velocityZOffset());
 	
+		float maxHorizontalVelocity = maxHorizontalVelocity();
 		if(!Float.isNaN(maxHorizontalVelocity)){
-			PVector temp = getVelocity();
+			PVector temp = getVelocity(scratchVelocity);
 			temp.y =  0;
 			if(temp.mag() > maxHorizontalVelocity){
 				temp.normalize();
 				temp.mult(maxHorizontalVelocity);
-				velocity.x = temp.x - velocityOffset.x;
-				velocity.z = temp.z - velocityOffset.y;
+				velocityX(temp.x - velocityXOffset());
+				velocityZ(temp.z - velocityYOffset());
 			}
 		}
 	}
 
 	/**
 	 * Get the location the entity wants to move to.
+	 * Override this to change where an entity moves.
+	 * The vector returned is reused by the next call, so copy it to keep it.
 	 * 
 	 * @param delta The amount of game time that has passed since the last frame
 	 * @return The location that the entity wants move to
 	 */
 	protected PVector getMoveToLocation(float delta){
-		return PVector.add(location, new PVector(
-				(this.velocity.x + this.velocityOffset.x) * delta,
-				(this.velocity.y + this.velocityOffset.y) * delta,
-				(this.velocity.z + this.velocityOffset.z) * delta));
+		return moveToLocation.set(
+				x() + (velocityX() + velocityXOffset()) * delta,
+				y() + (velocityY() + velocityYOffset()) * delta,
+				z() + (velocityZ() + velocityZOffset()) * delta);
+	}
+
+	/**
+	 * Get the location the entity wants to move to, as given by {@link #getMoveToLocation(float)}.
+	 * 
+	 * @param delta The amount of game time that has passed since the last frame
+	 * @param out The vector to store the location in
+	 * @return out
+	 */
+	protected final PVector getMoveToLocation(float delta, PVector out){
+		return out.set(getMoveToLocation(delta));
 	}
 
 	/**
@@ -211,12 +315,12 @@ public abstract class GameObject implements Updatable {
 	 * @return the x location
 	 */
 	public float getX() {
-		float x = location.x + locationOffset.x;
-		if (!Float.isNaN(minLocation.x)) {
-			x = Math.max(x, minLocation.x);
+		float x = x() + xOffset();
+		if (!Float.isNaN(minX())) {
+			x = Math.max(x, minX());
 		}
-		if (!Float.isNaN(maxLocation.x)) {
-			x = Math.min(x, maxLocation.x);
+		if (!Float.isNaN(maxX())) {
+			x = Math.min(x, maxX());
 		}
 		return x;
 	}
@@ -236,12 +340,12 @@ public abstract class GameObject implements Updatable {
 	 * @return the y location
 	 */
 	public float getY() {
-		float y = location.y + locationOffset.y;
-		if (!Float.isNaN(minLocation.y)) {
-			return Math.max(y, minLocation.y);
+		float y = y() + yOffset();
+		if (!Float.isNaN(minY())) {
+			return Math.max(y, minY());
 		}
-		if (!Float.isNaN(maxLocation.y)) {
-			y = Math.min(y, maxLocation.y);
+		if (!Float.isNaN(maxY())) {
+			y = Math.min(y, maxY());
 		}
 		return y;
 	}
@@ -261,12 +365,12 @@ public abstract class GameObject implements Updatable {
 	 * @return the z location
 	 */
 	public float getZ() {
-		float z = location.z + locationOffset.z;
-		if (!Float.isNaN(minLocation.z)) {
-			return Math.max(z, minLocation.z);
+		float z = z() + zOffset();
+		if (!Float.isNaN(minZ())) {
+			return Math.max(z, minZ());
 		}
-		if (!Float.isNaN(maxLocation.z)) {
-			z = Math.min(z, maxLocation.z);
+		if (!Float.isNaN(maxZ())) {
+			z = Math.min(z, maxZ());
 		}
 		return z;
 	}
@@ -286,7 +390,17 @@ public abstract class GameObject implements Updatable {
 	 * @return the location
 	 */
 	public PVector getLocation() {
-		return PVector.add(location, locationOffset);
+		return getLocation(new PVector());
+	}
+
+	/**
+	 * Get the location of this entity (in grid units) without creating a new vector.
+	 * 
+	 * @param out The vector to store the location in
+	 * @return out
+	 */
+	public PVector getLocation(PVector out) {
+		return out.set(x() + xOffset(), y() + yOffset(), z() + zOffset());
 	}
 
 	/**
@@ -295,7 +409,17 @@ public abstract class GameObject implements Updatable {
 	 * @return the location
 	 */
 	public PVector getLocationInPixels() {
-		return new PVector(getXInPixels(), getYInPixels(), getZInPixels());
+		return getLocationInPixels(new PVector());
+	}
+
+	/**
+	 * Get the location of this entity (in pixels) without creating a new vector.
+	 * 
+	 * @param out The vector to store the location in
+	 * @return out
+	 */
+	public PVector getLocationInPixels(PVector out) {
+		return out.set(getXInPixels(), getYInPixels(), getZInPixels());
 	}
 	
 	/**
@@ -304,7 +428,7 @@ public abstract class GameObject implements Updatable {
 	 * @return the x location
 	 */
 	public float getXOffset() {
-		return locationOffset.x;
+		return xOffset();
 	}
 
 	/**
@@ -313,7 +437,7 @@ public abstract class GameObject implements Updatable {
 	 * @return the y location
 	 */
 	public float getYOffset() {
-		return locationOffset.y;
+		return yOffset();
 	}
 
 	/**
@@ -322,7 +446,7 @@ public abstract class GameObject implements Updatable {
 	 * @return the z location
 	 */
 	public float getZOffset() {
-		return locationOffset.z;
+		return zOffset();
 	}
 
 	/**
@@ -331,7 +455,17 @@ public abstract class GameObject implements Updatable {
 	 * @return the location offset
 	 */
 	public PVector getLocationOffset() {
-		return locationOffset.copy();
+		return getLocationOffset(new PVector());
+	}
+
+	/**
+	 * Get the location offset of this entity (in grid units) without creating a new vector.
+	 * 
+	 * @param out The vector to store the location offset in
+	 * @return out
+	 */
+	public PVector getLocationOffset(PVector out) {
+		return out.set(xOffset(), yOffset(), zOffset());
 	}
 	
 	/**
@@ -340,12 +474,12 @@ public abstract class GameObject implements Updatable {
 	 * @return the x velocity
 	 */
 	public float getVelocityX() {
-		float vx = velocity.x + velocityOffset.x;
-		if (!Float.isNaN(minVelocity.x)) {
-			vx = Math.max(vx, minVelocity.x);
+		float vx = velocityX() + velocityXOffset();
+		if (!Float.isNaN(minVelocityX())) {
+			vx = Math.max(vx, minVelocityX());
 		}
-		if (!Float.isNaN(maxVelocity.x)) {
-			vx = Math.min(vx, maxVelocity.x);
+		if (!Float.isNaN(maxVelocityX())) {
+			vx = Math.min(vx, maxVelocityX());
 		}
 		return vx;
 	}
@@ -356,12 +490,12 @@ public abstract class GameObject implements Updatable {
 	 * @return the y velocity
 	 */
 	public float getVelocityY() {
-		float vy = velocity.y + velocityOffset.y;
-		if (!Float.isNaN(minVelocity.y)) {
-			vy = Math.max(vy, minVelocity.y);
+		float vy = velocityY() + velocityYOffset();
+		if (!Float.isNaN(minVelocityY())) {
+			vy = Math.max(vy, minVelocityY());
 		}
-		if (!Float.isNaN(maxVelocity.y)) {
-			vy = Math.min(vy, maxVelocity.y);
+		if (!Float.isNaN(maxVelocityY())) {
+			vy = Math.min(vy, maxVelocityY());
 		}
 		return vy;
 	}
@@ -372,12 +506,12 @@ public abstract class GameObject implements Updatable {
 	 * @return the z velocity
 	 */
 	public float getVelocityZ(){
-		float vz = velocity.z + velocityOffset.z;
-		if (!Float.isNaN(minVelocity.z)) {
-			vz = Math.max(vz, minVelocity.z);
+		float vz = velocityZ() + velocityZOffset();
+		if (!Float.isNaN(minVelocityZ())) {
+			vz = Math.max(vz, minVelocityZ());
 		}
-		if (!Float.isNaN(maxVelocity.z)) {
-			vz = Math.min(vz, maxVelocity.z);
+		if (!Float.isNaN(maxVelocityZ())) {
+			vz = Math.min(vz, maxVelocityZ());
 		}
 		return vz;
 	}
@@ -388,7 +522,17 @@ public abstract class GameObject implements Updatable {
 	 * @return the velocity
 	 */
 	public PVector getVelocity(){
-		return PVector.add(velocity, velocityOffset);
+		return getVelocity(new PVector());
+	}
+
+	/**
+	 * Get the velocity of this entity without creating a new vector.
+	 * 
+	 * @param out The vector to store the velocity in
+	 * @return out
+	 */
+	public PVector getVelocity(PVector out){
+		return out.set(velocityX() + velocityXOffset(), velocityY() + velocityYOffset(), velocityZ() + velocityZOffset());
 	}
 
 	/**
@@ -397,7 +541,7 @@ public abstract class GameObject implements Updatable {
 	 * @return the x velocity
 	 */
 	public float getVelocityXOffset(){
-		return velocityOffset.x;
+		return velocityXOffset();
 	}
 
 	/**
@@ -406,7 +550,7 @@ public abstract class GameObject implements Updatable {
 	 * @return the y velocity
 	 */
 	public float getVelocityYOffset(){
-		return velocityOffset.y;
+		return velocityYOffset();
 	}
 
 	/**
@@ -415,7 +559,7 @@ public abstract class GameObject implements Updatable {
 	 * @return the z velocity
 	 */
 	public float getVelocityZOffset(){
-		return velocityOffset.z;
+		return velocityZOffset();
 	}
 
 	/**
@@ -424,7 +568,17 @@ public abstract class GameObject implements Updatable {
 	 * @return the velocity offset
 	 */
 	public PVector getVelocityOffset(){
-		return velocityOffset.copy();
+		return getVelocityOffset(new PVector());
+	}
+
+	/**
+	 * Get the velocity offset of this entity without creating a new vector.
+	 * 
+	 * @param out The vector to store the velocity offset in
+	 * @return out
+	 */
+	public PVector getVelocityOffset(PVector out){
+		return out.set(velocityXOffset(), velocityYOffset(), velocityZOffset());
 	}
 	
 	/**
@@ -433,7 +587,8 @@ public abstract class GameObject implements Updatable {
 	 * @param x
 	 */
 	public void addX(float x){
-		location.x += x;
+		wakeUp();
+		x(x() + x);
 	}
 	
 	/**
@@ -442,7 +597,8 @@ public abstract class GameObject implements Updatable {
 	 * @param y
 	 */
 	public void addY(float y){
-		location.y += y;
+		wakeUp();
+		y(y() + y);
 	}
 	
 	/**
@@ -452,7 +608,8 @@ public abstract class GameObject implements Updatable {
 	 * @param z
 	 */
 	public void addZ(float z){
-		location.z += z;
+		wakeUp();
+		z(z() + z);
 	}
 	
 	/**
@@ -463,7 +620,9 @@ public abstract class GameObject implements Updatable {
 	 * @param y
 	 */
 	public void addLocation(float x, float y){
-		location.add(x, y);
+		wakeUp();
+		x(x() + x);
+		y(y() + y);
 	}
 	
 	/**
@@ -475,7 +634,10 @@ public abstract class GameObject implements Updatable {
 	 * @param z
 	 */
 	public void addLocation(float x, float y, float z){
-		location.add(x, y, z);
+		wakeUp();
+		x(x() + x);
+		y(y() + y);
+		z(z() + z);
 	}
 
 	/**
@@ -484,7 +646,10 @@ public abstract class GameObject implements Updatable {
 	 * @param loc
 	 */
 	public void addLocation(PVector loc){
-		location.add(loc);
+		wakeUp();
+		x(x() + loc.x);
+		y(y() + loc.y);
+		z(z() + loc.z);
 	}
 
 	/**
@@ -493,7 +658,8 @@ public abstract class GameObject implements Updatable {
 	 * @param x
 	 */
 	public void addXOffset(float x){
-		locationOffset.x += x;
+		wakeUp();
+		xOffset(xOffset() + x);
 	}
 	
 	/**
@@ -502,7 +668,8 @@ public abstract class GameObject implements Updatable {
 	 * @param y
 	 */
 	public void addYOffset(float y){
-		locationOffset.y += y;
+		wakeUp();
+		yOffset(yOffset() + y);
 	}
 	
 	/**
@@ -512,7 +679,8 @@ public abstract class GameObject implements Updatable {
 	 * @param z
 	 */
 	public void addZOffset(float z){
-		locationOffset.z += z;
+		wakeUp();
+		zOffset(zOffset() + z);
 	}
 	
 	/**
@@ -523,7 +691,9 @@ public abstract class GameObject implements Updatable {
 	 * @param y
 	 */
 	public void addLocationOffset(float x, float y){
-		locationOffset.add(x, y);
+		wakeUp();
+		xOffset(xOffset() + x);
+		yOffset(yOffset() + y);
 	}
 	
 	/**
@@ -535,7 +705,10 @@ public abstract class GameObject implements Updatable {
 	 * @param z
 	 */
 	public void addLocationOffset(float x, float y, float z){
-		locationOffset.add(x, y, z);
+		wakeUp();
+		xOffset(xOffset() + x);
+		yOffset(yOffset() + y);
+		zOffset(zOffset() + z);
 	}
 
 	/**
@@ -544,7 +717,10 @@ public abstract class GameObject implements Updatable {
 	 * @param loc
 	 */
 	public void addLocationOffset(PVector loc){
-		locationOffset.add(loc);
+		wakeUp();
+		xOffset(xOffset() + loc.x);
+		yOffset(yOffset() + loc.y);
+		zOffset(zOffset() + loc.z);
 	}
 	
 	/**
@@ -553,7 +729,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vx
 	 */
 	public void addVelocityX(float vx){
-		velocity.x += vx;
+		wakeUp();
+		velocityX(velocityX() + vx);
 	}
 	
 	/**
@@ -562,7 +739,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vy
 	 */
 	public void addVelocityY(float vy){
-		velocity.y += vy;
+		wakeUp();
+		velocityY(velocityY() + vy);
 	}
 	
 	/**
@@ -572,7 +750,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vz
 	 */
 	public void addVelocityZ(float vz){
-		velocity.z += vz;
+		wakeUp();
+		velocityZ(velocityZ() + vz);
 	}
 	
 	/**
@@ -583,7 +762,9 @@ public abstract class GameObject implements Updatable {
 	 * @param vy
 	 */
 	public void addVelocity(float vx, float vy){
-		velocity.add(vx, vy);
+		wakeUp();
+		velocityX(velocityX() + vx);
+		velocityY(velocityY() + vy);
 	}
 	
 	/**
@@ -595,7 +776,10 @@ public abstract class GameObject implements Updatable {
 	 * @param vz
 	 */
 	public void addVelocity(float vx, float vy, float vz){
-		velocity.add(vx, vy, vz);
+		wakeUp();
+		velocityX(velocityX() + vx);
+		velocityY(velocityY() + vy);
+		velocityZ(velocityZ() + vz);
 	}
 	
 	/**
@@ -604,7 +788,10 @@ public abstract class GameObject implements Updatable {
 	 * @param v
 	 */
 	public void addVelocity(PVector v){
-		velocity.add(v);
+		wakeUp();
+		velocityX(velocityX() + v.x);
+		velocityY(velocityY() + v.y);
+		velocityZ(velocityZ() + v.z);
 	}
 	
 	/**
@@ -613,7 +800,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vx
 	 */
 	public void addVelocityOffsetX(float vx){
-		velocityOffset.x += vx;
+		wakeUp();
+		velocityXOffset(velocityXOffset() + vx);
 	}
 	
 	/**
@@ -622,7 +810,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vy
 	 */
 	public void addVelocityOffsetY(float vy){
-		velocityOffset.y += vy;
+		wakeUp();
+		velocityYOffset(velocityYOffset() + vy);
 	}
 	
 	/**
@@ -632,7 +821,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vz
 	 */
 	public void addVelocityOffsetZ(float vz){
-		velocityOffset.z += vz;
+		wakeUp();
+		velocityZOffset(velocityZOffset() + vz);
 	}
 	
 	/**
@@ -643,7 +833,9 @@ public abstract class GameObject implements Updatable {
 	 * @param vy
 	 */
 	public void addVelocityOffset(float vx, float vy){
-		velocityOffset.add(vx, vy, 0);
+		wakeUp();
+		velocityXOffset(velocityXOffset() + vx);
+		velocityYOffset(velocityYOffset() + vy);
 	}
 	
 	/**
@@ -655,7 +847,10 @@ public abstract class GameObject implements Updatable {
 	 * @param vz
 	 */
 	public void addVelocityOffset(float vx, float vy, float vz){
-		velocityOffset.add(vx, vy, vz);
+		wakeUp();
+		velocityXOffset(velocityXOffset() + vx);
+		velocityYOffset(velocityYOffset() + vy);
+		velocityZOffset(velocityZOffset() + vz);
 	}
 	
 	/**
@@ -664,9 +859,175 @@ public abstract class GameObject implements Updatable {
 	 * @param v
 	 */
 	public void addVelocityOffset(PVector v){
-		velocityOffset.add(v);
+		wakeUp();
+		velocityXOffset(velocityXOffset() + v.x);
+		velocityYOffset(velocityYOffset() + v.y);
+		velocityZOffset(velocityZOffset() + v.z);
+	}
+	
+	/**
+	 * Get the level's store that this object's location, velocity, offsets and limits are kept in.
+	 * 
+	 * @return the store or null if this object keeps its own motion
+	 */
+	final MotionStore getMotionStore() {
+		return motion;
+	}
+	
+	/**
+	 * Move this object's location, velocity, offsets and limits into the given slot of the given store.
+	 * (To be called from the {@link Level} class)
+	 * 
+	 * @param motion
+	 * @param slot
+	 */
+	final void setMotionStore(MotionStore motion, int slot) {
+		unpackMotion();
+		motion.ensureCapacity(slot);
+		motion.x[slot] = x;
+		motion.y[slot] = y;
+		motion.z[slot] = z;
+		motion.velocityX[slot] = velocityX;
+		motion.velocityY[slot] = velocityY;
+		motion.velocityZ[slot] = velocityZ;
+		motion.xOffset[slot] = xOffset;
+		motion.yOffset[slot] = yOffset;
+		motion.zOffset[slot] = zOffset;
+		motion.velocityXOffset[slot] = velocityXOffset;
+		motion.velocityYOffset[slot] = velocityYOffset;
+		motion.velocityZOffset[slot] = velocityZOffset;
+		motion.minX[slot] = minX;
+		motion.minY[slot] = minY;
+		motion.minZ[slot] = minZ;
+		motion.maxX[slot] = maxX;
+		motion.maxY[slot] = maxY;
+		motion.maxZ[slot] = maxZ;
+		motion.minVelocityX[slot] = minVelocityX;
+		motion.minVelocityY[slot] = minVelocityY;
+		motion.minVelocityZ[slot] = minVelocityZ;
+		motion.maxVelocityX[slot] = maxVelocityX;
+		motion.maxVelocityY[slot] = maxVelocityY;
+		motion.maxVelocityZ[slot] = maxVelocityZ;
+		motion.maxHorizontalVelocity[slot] = maxHorizontalVelocity;
+		motion.flags[slot] = flags;
+		motion.groundFriction[slot] = groundFriction;
+		this.motion = motion;
+		this.slot = slot;
+	}
+	
+	/**
+	 * Move this object's location, velocity, offsets and limits out of the level's store and back into its own fields.
+	 * (To be called from the {@link Level} class)
+	 */
+	final void unpackMotion() {
+		if (motion == null) {
+			return;
+		}
+		x = motion.x[slot];
+		y = motion.y[slot];
+		z = motion.z[slot];
+		velocityX = motion.velocityX[slot];
+		velocityY = motion.velocityY[slot];
+		velocityZ = motion.velocityZ[slot];
+		xOffset = motion.xOffset[slot];
+		yOffset = motion.yOffset[slot];
+		zOffset = motion.zOffset[slot];
+		velocityXOffset = motion.velocityXOffset[slot];
+		velocityYOffset = motion.velocityYOffset[slot];
+		velocityZOffset = motion.velocityZOffset[slot];
+		minX = motion.minX[slot];
+		minY = motion.minY[slot];
+		minZ = motion.minZ[slot];
+		maxX = motion.maxX[slot];
+		maxY = motion.maxY[slot];
+		maxZ = motion.maxZ[slot];
+		minVelocityX = motion.minVelocityX[slot];
+		minVelocityY = motion.minVelocityY[slot];
+		minVelocityZ = motion.minVelocityZ[slot];
+		maxVelocityX = motion.maxVelocityX[slot];
+		maxVelocityY = motion.maxVelocityY[slot];
+		maxVelocityZ = motion.maxVelocityZ[slot];
+		maxHorizontalVelocity = motion.maxHorizontalVelocity[slot];
+		flags = motion.flags[slot];
+		groundFriction = motion.groundFriction[slot];
+		this.motion = null;
+		this.slot = -1;
+	}
+	
+	/**
+	 * Stop this object and clear its location and velocity offsets; the location and the limits are kept.
+	 * (To be called when an entity is recycled)
+	 */
+	final void resetMotion() {
+		xOffset(0);
+		yOffset(0);
+		zOffset(0);
+		velocityX(0);
+		velocityY(0);
+		velocityZ(0);
+		velocityXOffset(0);
+		velocityYOffset(0);
+		velocityZOffset(0);
+		flags((byte) (flags() & (MotionStore.LOCATION_LIMITS | MotionStore.VELOCITY_LIMITS)));
+	}
+	
+	/**
+	 * Flag this object to be accelerated by the level's integration pass.
+	 * (To be called from the {@link Entity} class)
+	 * 
+	 * @param flag {@link MotionStore#FALLING} or {@link MotionStore#SLIDING}
+	 * @param groundFriction The friction of the ground it is sliding on
+	 */
+	final void flagForIntegration(byte flag, float groundFriction) {
+		flags((byte) (flags() | flag));
+		if (flag == MotionStore.SLIDING) {
+			groundFriction(groundFriction);
+		}
 	}
 	
+	/**
+	 * Accelerate this object if it has been flagged for integration and clear the flags,
+	 * like {@link MotionStore#integrate} does for the objects in a store.
+	 * (To be called from the {@link Level} class for objects that keep their own motion)
+	 * 
+	 * @param gravityX
+	 * @param gravityY
+	 * @param gravityZ
+	 * @param airFriction
+	 * @param time The amount of time to accelerate for
+	 */
+	final void integrateMotion(float gravityX, float gravityY, float gravityZ, float airFriction, float time) {
+		if ((flags & MotionStore.FALLING) != 0) {
+			accelerate(scratchVelocity.set(velocityX, velocityY, velocityZ), gravityX, gravityY, gravityZ, airFriction, time, moveToLocation);
+		} else if ((flags & MotionStore.SLIDING) != 0) {
+			accelerate(scratchVelocity.set(velocityX, velocityY, velocityZ), 0, 0, 0, groundFriction, time, moveToLocation);
+		} else {
+			return;
+		}
+		// the distance put in moveToLocation isn't needed; it is worked out again when the object moves
+		velocityX = scratchVelocity.x;
+		velocityY = scratchVelocity.y;
+		velocityZ = scratchVelocity.z;
+		flags &= ~(MotionStore.FALLING | MotionStore.SLIDING);
+	}
+	
+	/**
+	 * Update the flags saying whether any of the location or velocity limits are set.
+	 * This must be called whenever one of the limits is changed.
+	 */
+	private void updateLimitFlags() {
+		boolean locationLimits = !Float.isNaN(minX()) || !Float.isNaN(minY()) || !Float.isNaN(minZ())
+				|| !Float.isNaN(maxX()) || !Float.isNaN(maxY()) || !Float.isNaN(maxZ());
+		boolean velocityLimits = !Float.isNaN(minVelocityX()) || !Float.isNaN(minVelocityY()) || !Float.isNaN(minVelocityZ())
+				|| !Float.isNaN(maxVelocityX()) || !Float.isNaN(maxVelocityY()) || !Float.isNaN(maxVelocityZ())
+				|| !Float.isNaN(maxHorizontalVelocity());
+
+		int f = flags() & ~(MotionStore.LOCATION_LIMITS | MotionStore.VELOCITY_LIMITS);
+		if (locationLimits) f |= MotionStore.LOCATION_LIMITS;
+		if (velocityLimits) f |= MotionStore.VELOCITY_LIMITS;
+		flags((byte) f);
+	}
+
 	/**
 	 * Set the level that this entity is in.
 	 * 
@@ -687,7 +1048,8 @@ public abstract class GameObject implements Updatable {
 	 * @param x
 	 */
 	public void setX(float x){
-		location.x = x;
+		wakeUp();
+		x(x);
 	}
 	
 	/**
@@ -696,7 +1058,8 @@ public abstract class GameObject implements Updatable {
 	 * @param y
 	 */
 	public void setY(float y){
-		location.y = y;
+		wakeUp();
+		y(y);
 	}
 	
 	/**
@@ -706,7 +1069,8 @@ public abstract class GameObject implements Updatable {
 	 * @param z
 	 */
 	public void setZ(float z){
-		location.z = z;
+		wakeUp();
+		z(z);
 	}
 	
 	/**
@@ -717,7 +1081,9 @@ public abstract class GameObject implements Updatable {
 	 * @param y
 	 */
 	public void setLocation(float x, float y){
-		location.set(x, y, location.z);
+		wakeUp();
+		x(x);
+		y(y);
 	}
 	
 	/**
@@ -729,7 +1095,10 @@ public abstract class GameObject implements Updatable {
 	 * @param z
 	 */
 	public void setLocation(float x, float y, float z){
-		location.set(x, y, z);
+		wakeUp();
+		x(x);
+		y(y);
+		z(z);
 	}
 
 	/**
@@ -738,7 +1107,10 @@ public abstract class GameObject implements Updatable {
 	 * @param loc
 	 */
 	public void setLocation(PVector loc){
-		location.set(loc);
+		wakeUp();
+		x(loc.x);
+		y(loc.y);
+		z(loc.z);
 	}
 
 	/**
@@ -747,7 +1119,8 @@ public abstract class GameObject implements Updatable {
 	 * @param x
 	 */
 	public void setXOffset(float x){
-		locationOffset.x = x;
+		wakeUp();
+		xOffset(x);
 	}
 	
 	/**
@@ -756,7 +1129,8 @@ public abstract class GameObject implements Updatable {
 	 * @param y
 	 */
 	public void setYOffset(float y){
-		locationOffset.y = y;
+		wakeUp();
+		yOffset(y);
 	}
 	
 	/**
@@ -766,7 +1140,8 @@ public abstract class GameObject implements Updatable {
 	 * @param z
 	 */
 	public void setZOffset(float z){
-		locationOffset.z = z;
+		wakeUp();
+		zOffset(z);
 	}
 	
 	/**
@@ -777,7 +1152,9 @@ public abstract class GameObject implements Updatable {
 	 * @param y
 	 */
 	public void setLocationOffset(float x, float y){
-		locationOffset.set(x, y, locationOffset.z);
+		wakeUp();
+		xOffset(x);
+		yOffset(y);
 	}
 	
 	/**
@@ -789,7 +1166,10 @@ public abstract class GameObject implements Updatable {
 	 * @param z
 	 */
 	public void setLocationOffset(float x, float y, float z){
-		locationOffset.set(x, y, z);
+		wakeUp();
+		xOffset(x);
+		yOffset(y);
+		zOffset(z);
 	}
 
 	/**
@@ -798,7 +1178,10 @@ public abstract class GameObject implements Updatable {
 	 * @param loc
 	 */
 	public void setLocationOffset(PVector loc){
-		locationOffset.set(loc);
+		wakeUp();
+		xOffset(loc.x);
+		yOffset(loc.y);
+		zOffset(loc.z);
 	}
 	
 	/**
@@ -807,7 +1190,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vx
 	 */
 	public void setVelocityX(float vx){
-		velocity.x = vx;
+		wakeUp();
+		velocityX(vx);
 	}
 	
 	/**
@@ -816,7 +1200,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vy
 	 */
 	public void setVelocityY(float vy){
-		velocity.y = vy;
+		wakeUp();
+		velocityY(vy);
 	}
 	
 	/**
@@ -826,7 +1211,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vz
 	 */
 	public void setVelocityZ(float vz){
-		velocity.z = vz;
+		wakeUp();
+		velocityZ(vz);
 	}
 	
 	/**
@@ -837,7 +1223,9 @@ public abstract class GameObject implements Updatable {
 	 * @param vy
 	 */
 	public void setVelocity(float vx, float vy){
-		velocity.set(vx, vy, velocity.z);
+		wakeUp();
+		velocityX(vx);
+		velocityY(vy);
 	}
 	
 	/**
@@ -849,7 +1237,10 @@ public abstract class GameObject implements Updatable {
 	 * @param vz
 	 */
 	public void setVelocity(float vx, float vy, float vz){
-		velocity.set(vx, vy, vz);
+		wakeUp();
+		velocityX(vx);
+		velocityY(vy);
+		velocityZ(vz);
 	}
 	
 	/**
@@ -858,7 +1249,10 @@ public abstract class GameObject implements Updatable {
 	 * @param v
 	 */
 	public void setVelocity(PVector v){
-		velocity.set(v);
+		wakeUp();
+		velocityX(v.x);
+		velocityY(v.y);
+		velocityZ(v.z);
 	}
 	
 	/**
@@ -867,7 +1261,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vx
 	 */
 	public void setVelocityOffsetX(float vx){
-		velocityOffset.x = vx;
+		wakeUp();
+		velocityXOffset(vx);
 	}
 	
 	/**
@@ -876,7 +1271,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vy
 	 */
 	public void setVelocityOffsetY(float vy){
-		velocityOffset.y = vy;
+		wakeUp();
+		velocityYOffset(vy);
 	}
 	
 	/**
@@ -886,7 +1282,8 @@ public abstract class GameObject implements Updatable {
 	 * @param vz
 	 */
 	public void setVelocityOffsetZ(float vz){
-		velocityOffset.z = vz;
+		wakeUp();
+		velocityZOffset(vz);
 	}
 	
 	/**
@@ -897,7 +1294,9 @@ public abstract class GameObject implements Updatable {
 	 * @param vy
 	 */
 	public void setVelocityOffset(float vx, float vy){
-		velocityOffset.set(vx, vy, velocityOffset.z);
+		wakeUp();
+		velocityXOffset(vx);
+		velocityYOffset(vy);
 	}
 	
 	/**
@@ -909,7 +1308,10 @@ public abstract class GameObject implements Updatable {
 	 * @param vz
 	 */
 	public void setVelocityOffset(float vx, float vy, float vz){
-		velocityOffset.set(vx, vy, vz);
+		wakeUp();
+		velocityXOffset(vx);
+		velocityYOffset(vy);
+		velocityZOffset(vz);
 	}
 	
 	/**
@@ -918,7 +1320,10 @@ public abstract class GameObject implements Updatable {
 	 * @param v
 	 */
 	public void setVelocityOffset(PVector v){
-		velocityOffset.set(v);
+		wakeUp();
+		velocityXOffset(v.x);
+		velocityYOffset(v.y);
+		velocityZOffset(v.z);
 	}
 	
 	/**
@@ -942,7 +1347,8 @@ public abstract class GameObject implements Updatable {
 	 * @param minX The minimum x location this entity can be
 	 */
 	public void limitXMin(float minX) {
-		minLocation.x = minX;
+		minX(minX);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -951,7 +1357,8 @@ public abstract class GameObject implements Updatable {
 	 * @param minX The minimum y location this entity can be
 	 */
 	public void limitYMin(float minY) {
-		minLocation.y = minY;
+		minY(minY);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -960,7 +1367,8 @@ public abstract class GameObject implements Updatable {
 	 * @param minX The minimum z location this entity can be
 	 */
 	public void limitZMin(float minZ) {
-		minLocation.z = minZ;
+		minZ(minZ);
+		updateLimitFlags();
 	}
 
 	/**
@@ -969,7 +1377,8 @@ public abstract class GameObject implements Updatable {
 	 * @param maxX The maximum x location this entity can be
 	 */
 	public void limitXMax(float maxX) {
-		maxLocation.x = maxX;
+		maxX(maxX);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -978,7 +1387,8 @@ public abstract class GameObject implements Updatable {
 	 * @param maxY The maximum y location this entity can be
 	 */
 	public void limitYMax(float maxY) {
-		maxLocation.y = maxY;
+		maxY(maxY);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -987,7 +1397,8 @@ public abstract class GameObject implements Updatable {
 	 * @param maxZ The maximum z location this entity can be
 	 */
 	public void limitZMax(float maxZ) {
-		maxLocation.z = maxZ;
+		maxZ(maxZ);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -996,7 +1407,8 @@ public abstract class GameObject implements Updatable {
 	 * @param minX The minimum x velocity this entity can be
 	 */
 	public void limitVelocityXMin(float minX) {
-		minVelocity.x = minX;
+		minVelocityX(minX);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -1005,7 +1417,8 @@ public abstract class GameObject implements Updatable {
 	 * @param minY The minimum y velocity this entity can be
 	 */
 	public void limitVelocityYMin(float minY) {
-		minVelocity.y = minY;
+		minVelocityY(minY);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -1014,7 +1427,8 @@ public abstract class GameObject implements Updatable {
 	 * @param minZ The minimum z velocity this entity can be
 	 */
 	public void limitVelocityZMin(float minZ) {
-		minVelocity.z = minZ;
+		minVelocityZ(minZ);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -1023,7 +1437,8 @@ public abstract class GameObject implements Updatable {
 	 * @param maxX The maximum x velocity this entity can be
 	 */
 	public void limitVelocityXMax(float maxX) {
-		maxVelocity.x = maxX;
+		maxVelocityX(maxX);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -1032,7 +1447,8 @@ public abstract class GameObject implements Updatable {
 	 * @param maxY The maximum y velocity this entity can be
 	 */
 	public void limitVelocityYMax(float maxY) {
-		maxVelocity.y = maxY;
+		maxVelocityY(maxY);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -1041,19 +1457,26 @@ public abstract class GameObject implements Updatable {
 	 * @param maxZ The maximum z velocity this entity can be
 	 */
 	public void limitVelocityZMax(float maxZ) {
-		maxVelocity.z = maxZ;
+		maxVelocityZ(maxZ);
+		updateLimitFlags();
 	}
 	
 	public void limitVelocityHorizontal(float maxHorizontalVelocity){
-		this.maxHorizontalVelocity = maxHorizontalVelocity;
+		maxHorizontalVelocity(maxHorizontalVelocity);
+		updateLimitFlags();
 	}
 	
 	/**
 	 * Remove the limits applied to the location of this entity.
 	 */
 	public void removeLimitLocation(){
-		minLocation.set(Float.NaN, Float.NaN, Float.NaN);
-		maxLocation.set(Float.NaN, Float.NaN, Float.NaN);
+		minX(Float.NaN);
+		minY(Float.NaN);
+		minZ(Float.NaN);
+		maxX(Float.NaN);
+		maxY(Float.NaN);
+		maxZ(Float.NaN);
+		updateLimitFlags();
 	}
 	
 	/**
@@ -1084,51 +1507,62 @@ public abstract class GameObject implements Updatable {
 	 * Remove the limits applied to the min x location of this entity.
 	 */
 	public void removeLimitXMin(){
-		minLocation.x = Float.NaN;
+		minX(Float.NaN);
+		updateLimitFlags();
 	}
 	
 	/**
 	 * Remove the limits applied to the min y location of this entity.
 	 */
 	public void removeLimitYMin(){
-		minLocation.y = Float.NaN;
+		minY(Float.NaN);
+		updateLimitFlags();
 	}
 	
 	/**
 	 * Remove the limits applied to the min z location of this entity.
 	 */
 	public void removeLimitZMin(){
-		minLocation.z = Float.NaN;
+		minZ(Float.NaN);
+		updateLimitFlags();
 	}
 	
 	/**
 	 * Remove the limits applied to the max x location of this entity.
 	 */
 	public void removeLimitXMax(){
-		maxLocation.x = Float.NaN;
+		maxX(Float.NaN);
+		updateLimitFlags();
 	}
 	
 	/**
 	 * Remove the limits applied to the max y location of this entity.
 	 */
 	public void removeLimitYMax(){
-		maxLocation.y = Float.NaN;
+		maxY(Float.NaN);
+		updateLimitFlags();
 	}
 	
 	/**
 	 * Remove the limits applied to the max z location of this entity.
 	 */
 	public void removeLimitZMax(){
-		maxLocation.z = Float.NaN;
+		maxZ(Float.NaN);
+		updateLimitFlags();
 	}
 	
 	/**
 	 * Remove the limits applied to this entity's velocity.
 	 */
 	public void removeLimitVelocity(){
-		minVelocity.set(Float.NaN, Float.NaN, Float.NaN);
-		maxVelocity.set(Float.NaN, Float.NaN, Float.NaN);
-		maxHorizontalVelocity = Float.NaN;
+		minVelocityX(Float.NaN);
+		minVelocityY(Float.NaN);
+		minVelocityZ(Float.NaN);
+		maxVelocityX(Float.NaN);
+		maxVelocityY(Float.NaN);
+		maxVelocityZ(Float.NaN);
+		maxHorizontalVelocity(Float.NaN);
+		updateLimitFlags();
 	}
 
 	/**
@@ -1159,48 +1593,380 @@ public abstract class GameObject implements Updatable {
 	 * Remove the limits applied to this entity's min x velocity.
 	 */
 	public void removeLimitVelocityXMin(){
-		minVelocity.x =  Float.NaN;
+		minVelocityX(Float.NaN);
+		updateLimitFlags();
 	}
 
 	/**
 	 * Remove the limits applied to this entity's min y velocity.
 	 */
 	public void removeLimitVelocityYMin(){
-		minVelocity.y =  Float.NaN;
+		minVelocityY(Float.NaN);
+		updateLimitFlags();
 	}
 
 	/**
 	 * Remove the limits applied to this entity's min z velocity.
 	 */
 	public void removeLimitVelocityZMin(){
-		minVelocity.z =  Float.NaN;
+		minVelocityZ(Float.NaN);
+		updateLimitFlags();
 	}
 
 	/**
 	 * Remove the limits applied to this entity's max x velocity.
 	 */
 	public void removeLimitVelocityXMax(){
-		maxVelocity.x =  Float.NaN;
+		maxVelocityX(Float.NaN);
+		updateLimitFlags();
 	}
 
 	/**
 	 * Remove the limits applied to this entity's max y velocity.
 	 */
 	public void removeLimitVelocityYMax(){
-		maxVelocity.y =  Float.NaN;
+		maxVelocityY(Float.NaN);
+		updateLimitFlags();
 	}
 
 	/**
 	 * Remove the limits applied to this entity's max z velocity.
 	 */
 	public void removeLimitVelocityZMax(){
-		maxVelocity.z =  Float.NaN;
+		maxVelocityZ(Float.NaN);
+		updateLimitFlags();
 	}
 	
 	/**
 	 * Remove the limits applied to this entity's horizontal velocity.
 	 */
 	public void removeLimitVelocityHorizontal(){
-		this.maxHorizontalVelocity = Float.NaN;
+		maxHorizontalVelocity(Float.NaN);
+		updateLimitFlags();
+	}
+
+	/*
+	 * Each part of the motion is read and written through these so that it comes from the level's store when it is in one
+	 * and from this object's fields when it isn't.
+	 */
+
+	private float x() {
+		return motion == null ? x : motion.x[slot];
+	}
+	
+	private void x(float x) {
+		if (motion == null) {
+			this.x = x;
+		} else {
+			motion.x[slot] = x;
+		}
+	}
+
+	private float y() {
+		return motion == null ? y : motion.y[slot];
+	}
+	
+	private void y(float y) {
+		if (motion == null) {
+			this.y = y;
+		} else {
+			motion.y[slot] = y;
+		}
+	}
+
+	private float z() {
+		return motion == null ? z : motion.z[slot];
+	}
+	
+	private void z(float z) {
+		if (motion == null) {
+			this.z = z;
+		} else {
+			motion.z[slot] = z;
+		}
+	}
+
+	private float velocityX() {
+		return motion == null ? velocityX : motion.velocityX[slot];
+	}
+	
+	private void velocityX(float velocityX) {
+		if (motion == null) {
+			this.velocityX = velocityX;
+		} else {
+			motion.velocityX[slot] = velocityX;
+		}
+	}
+
+	private float velocityY() {
+		return motion == null ? velocityY : motion.velocityY[slot];
+	}
+	
+	private void velocityY(float velocityY) {
+		if (motion == null) {
+			this.velocityY = velocityY;
+		} else {
+			motion.velocityY[slot] = velocityY;
+		}
+	}
+
+	private float velocityZ() {
+		return motion == null ? velocityZ : motion.velocityZ[slot];
+	}
+	
+	private void velocityZ(float velocityZ) {
+		if (motion == null) {
+			this.velocityZ = velocityZ;
+		} else {
+			motion.velocityZ[slot] = velocityZ;
+		}
+	}
+
+	private float xOffset() {
+		return motion == null ? xOffset : motion.xOffset[slot];
+	}
+	
+	private void xOffset(float xOffset) {
+		if (motion == null) {
+			this.xOffset = xOffset;
+		} else {
+			motion.xOffset[slot] = xOffset;
+		}
+	}
+
+	private float yOffset() {
+		return motion == null ? yOffset : motion.yOffset[slot];
+	}
+	
+	private void yOffset(float yOffset) {
+		if (motion == null) {
+			this.yOffset = yOffset;
+		} else {
+			motion.yOffset[slot] = yOffset;
+		}
+	}
+
+	private float zOffset() {
+		return motion == null ? zOffset : motion.zOffset[slot];
+	}
+	
+	private void zOffset(float zOffset) {
+		if (motion == null) {
+			this.zOffset = zOffset;
+		} else {
+			motion.zOffset[slot] = zOffset;
+		}
+	}
+
+	private float velocityXOffset() {
+		return motion == null ? velocityXOffset : motion.velocityXOffset[slot];
+	}
+	
+	private void velocityXOffset(float velocityXOffset) {
+		if (motion == null) {
+			this.velocityXOffset = velocityXOffset;
+		} else {
+			motion.velocityXOffset[slot] = velocityXOffset;
+		}
+	}
+
+	private float velocityYOffset() {
+		return motion == null ? velocityYOffset : motion.velocityYOffset[slot];
+	}
+	
+	private void velocityYOffset(float velocityYOffset) {
+		if (motion == null) {
+			this.velocityYOffset = velocityYOffset;
+		} else {
+			motion.velocityYOffset[slot] = velocityYOffset;
+		}
+	}
+
+	private float velocityZOffset() {
+		return motion == null ? velocityZOffset : motion.velocityZOffset[slot];
+	}
+	
+	private void velocityZOffset(float velocityZOffset) {
+		if (motion == null) {
+			this.velocityZOffset = velocityZOffset;
+		} else {
+			motion.velocityZOffset[slot] = velocityZOffset;
+		}
+	}
+
+	private float minX() {
+		return motion == null ? minX : motion.minX[slot];
+	}
+	
+	private void minX(float minX) {
+		if (motion == null) {
+			this.minX = minX;
+		} else {
+			motion.minX[slot] = minX;
+		}
+	}
+
+	private float minY() {
+		return motion == null ? minY : motion.minY[slot];
+	}
+	
+	private void minY(float minY) {
+		if (motion == null) {
+			this.minY = minY;
+		} else {
+			motion.minY[slot] = minY;
+		}
+	}
+
+	private float minZ() {
+		return motion == null ? minZ : motion.minZ[slot];
+	}
+	
+	private void minZ(float minZ) {
+		if (motion == null) {
+			this.minZ = minZ;
+		} else {
+			motion.minZ[slot] = minZ;
+		}
+	}
+
+	private float maxX() {
+		return motion == null ? maxX : motion.maxX[slot];
+	}
+	
+	private void maxX(float maxX) {
+		if (motion == null) {
+			this.maxX = maxX;
+		} else {
+			motion.maxX[slot] = maxX;
+		}
+	}
+
+	private float maxY() {
+		return motion == null ? maxY : motion.maxY[slot];
+	}
+	
+	private void maxY(float maxY) {
+		if (motion == null) {
+			this.maxY = maxY;
+		} else {
+			motion.maxY[slot] = maxY;
+		}
+	}
+
+	private float maxZ() {
+		return motion == null ? maxZ : motion.maxZ[slot];
+	}
+	
+	private void maxZ(float maxZ) {
+		if (motion == null) {
+			this.maxZ = maxZ;
+		} else {
+			motion.maxZ[slot] = maxZ;
+		}
+	}
+
+	private float minVelocityX() {
+		return motion == null ? minVelocityX : motion.minVelocityX[slot];
+	}
+	
+	private void minVelocityX(float minVelocityX) {
+		if (motion == null) {
+			this.minVelocityX = minVelocityX;
+		} else {
+			motion.minVelocityX[slot] = minVelocityX;
+		}
+	}
+
+	private float minVelocityY() {
+		return motion == null ? minVelocityY : motion.minVelocityY[slot];
+	}
+	
+	private void minVelocityY(float minVelocityY) {
+		if (motion == null) {
+			this.minVelocityY = minVelocityY;
+		} else {
+			motion.minVelocityY[slot] = minVelocityY;
+		}
+	}
+
+	private float minVelocityZ() {
+		return motion == null ? minVelocityZ : motion.minVelocityZ[slot];
+	}
+	
+	private void minVelocityZ(float minVelocityZ) {
+		if (motion == null) {
+			this.minVelocityZ = minVelocityZ;
+		} else {
+			motion.minVelocityZ[slot] = minVelocityZ;
+		}
+	}
+
+	private float maxVelocityX() {
+		return motion == null ? maxVelocityX : motion.maxVelocityX[slot];
+	}
+	
+	private void maxVelocityX(float maxVelocityX) {
+		if (motion == null) {
+			this.maxVelocityX = maxVelocityX;
+		} else {
+			motion.maxVelocityX[slot] = maxVelocityX;
+		}
+	}
+
+	private float maxVelocityY() {
+		return motion == null ? maxVelocityY : motion.maxVelocityY[slot];
+	}
+	
+	private void maxVelocityY(float maxVelocityY) {
+		if (motion == null) {
+			this.maxVelocityY = maxVelocityY;
+		} else {
+			motion.maxVelocityY[slot] = maxVelocityY;
+		}
+	}
+
+	private float maxVelocityZ() {
+		return motion == null ? maxVelocityZ : motion.maxVelocityZ[slot];
+	}
+	
+	private void maxVelocityZ(float maxVelocityZ) {
+		if (motion == null) {
+			this.maxVelocityZ = maxVelocityZ;
+		} else {
+			motion.maxVelocityZ[slot] = maxVelocityZ;
+		}
+	}
+
+	private float maxHorizontalVelocity() {
+		return motion == null ? maxHorizontalVelocity : motion.maxHorizontalVelocity[slot];
+	}
+	
+	private void maxHorizontalVelocity(float maxHorizontalVelocity) {
+		if (motion == null) {
+			this.maxHorizontalVelocity = maxHorizontalVelocity;
+		} else {
+			motion.maxHorizontalVelocity[slot] = maxHorizontalVelocity;
+		}
+	}
+
+	private byte flags() {
+		return motion == null ? flags : motion.flags[slot];
+	}
+	
+	private void flags(byte flags) {
+		if (motion == null) {
+			this.flags = flags;
+		} else {
+			motion.flags[slot] = flags;
+		}
+	}
+
+	private void groundFriction(float groundFriction) {
+		if (motion == null) {
+			this.groundFriction = groundFriction;
+		} else {
+			motion.groundFriction[slot] = groundFriction;
+		}
 	}
 }
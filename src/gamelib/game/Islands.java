@@ -0,0 +1,340 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the entities that are updated each frame into islands that can't affect each other, so that the islands can be updated at the same time.
+ *
+ * Two entities are in the same island if one is attached to the other, one is standing on the other (unless it is static)
+ * or they are paired in the frame's {@link CollisionPairs}.
+ * Static entities never move so they don't join islands together; they, and any game objects that aren't entities,
+ * are updated on the level's thread before the islands are.
+ *
+ * The islands are grouped into chunks of about the same size and each chunk is updated by a fork join task with its own {@link Worker}.
+ * Anything an entity does that would change the level while the islands are updating is recorded in its chunk's worker
+ * and carried out by the level once every chunk has finished, in the same order as the chunks.
+ *
+ * @author Rebecca Stevens
+ */
+final class Islands {
+
+	/**
+	 * The least number of entities worth updating on another thread.
+	 */
+	private static final int MIN_CHUNK_SIZE = 64;
+
+	/**
+	 * The least number of entities worth splitting into islands at all.
+	 */
+	private static final int MIN_ENTITIES = 256;
+
+	private final List<GameObject> serialObjects;
+	private final List<Entity> ordered;	// the entities to put in islands, in update order
+	private final List<Entity> scratch;
+
+	private int[] parents;	// union find over entity ids
+	private int[] islandOfRoot;	// the island of each root id
+	private int[] islandOfEntity;	// the island of each entity in ordered
+	private int[] islandEnds;
+	private Entity[] members;	// the entities in each island, one island after another
+	private int islandCount;
+
+	private final List<Worker> workers;
+	private int[] chunkEnds;	// the island each chunk ends at
+	private int chunkCount;
+
+	private final ThreadLocal<Worker> current;
+
+	/**
+	 * Create an empty set of islands.
+	 */
+	Islands() {
+		this.serialObjects = new ArrayList<GameObject>();
+		this.ordered = new ArrayList<Entity>();
+		this.scratch = new ArrayList<Entity>();
+		this.parents = new int[16];
+		this.islandOfRoot = new int[16];
+		this.islandOfEntity = new int[16];
+		this.islandEnds = new int[16];
+		this.members = new Entity[16];
+		this.workers = new ArrayList<Worker>();
+		this.chunkEnds = new int[16];
+		this.current = new ThreadLocal<Worker>();
+	}
+
+	/**
+	 * Split the given game objects into islands.
+	 *
+	 * @param gameObjects The game objects to update this frame in the order they are to be updated
+	 * @param pairs This frame's collision pairs
+	 * @param idCount One more than the highest entity id
+	 * @return false if there aren't enough islands to be worth updating them at the same time
+	 */
+	boolean build(Collection<GameObject> gameObjects, CollisionPairs pairs, int idCount) {
+		serialObjects.clear();
+		ordered.clear();
+		islandCount = 0;
+		chunkCount = 0;
+		if (gameObjects.size() < MIN_ENTITIES) {
+			return false;
+		}
+
+		if (parents.length < idCount) {
+			parents = new int[Math.max(idCount, parents.length * 2)];
+		}
+		for (int i = 0; i < idCount; i++) {
+			parents[i] = i;
+		}
+
+		for (GameObject go : gameObjects) {
+			if (!(go instanceof Entity) || ((Entity) go).isStatic()) {
+				serialObjects.add(go);
+				continue;
+			}
+			Entity entity = (Entity) go;
+			ordered.add(entity);
+
+			union(entity, entity.getAttachedTo());
+			union(entity, entity.getGroundEntity());
+			scratch.clear();
+			pairs.addPairedColliders(entity, scratch);
+			for (int i = 0; i < scratch.size(); i++) {
+				union(entity, scratch.get(i));
+			}
+		}
+		scratch.clear();
+
+		// number the islands in the order their first entities are updated
+		int size = ordered.size();
+		if (islandOfRoot.length < idCount) {
+			islandOfRoot = new int[Math.max(idCount, islandOfRoot.length * 2)];
+		}
+		if (islandOfEntity.length < size) {
+			islandOfEntity = new int[Math.max(size, islandOfEntity.length * 2)];
+		}
+		Arrays.fill(islandOfRoot, 0, idCount, -1);
+		for (int i = 0; i < size; i++) {
+			int root = find(ordered.get(i).getId());
+			if (islandOfRoot[root] < 0) {
+				islandOfRoot[root] = islandCount++;
+			}
+			islandOfEntity[i] = islandOfRoot[root];
+		}
+		if (islandCount < 2) {
+			serialObjects.clear();
+			ordered.clear();
+			return false;
+		}
+
+		// put the entities of each island next to each other, keeping their update order
+		if (islandEnds.length < islandCount) {
+			islandEnds = new int[Math.max(islandCount, islandEnds.length * 2)];
+		}
+		Arrays.fill(islandEnds, 0, islandCount, 0);
+		for (int i = 0; i < size; i++) {
+			islandEnds[islandOfEntity[i]]++;
+		}
+		for (int i = 1; i < islandCount; i++) {
+			islandEnds[i] += islandEnds[i - 1];
+		}
+		if (members.length < size) {
+			members = new Entity[Math.max(size, members.length * 2)];
+		}
+		for (int i = size - 1; i >= 0; i--) {
+			members[--islandEnds[islandOfEntity[i]]] = ordered.get(i);
+		}
+		for (int i = 0; i < islandCount; i++) {
+			islandEnds[i] = i + 1 < islandCount ? islandEnds[i + 1] : size;
+		}
+
+		buildChunks(size);
+		return true;
+	}
+
+	/**
+	 * Group the islands into chunks with about the same number of entities in each.
+	 *
+	 * @param size The number of entities in the islands
+	 */
+	private void buildChunks(int size) {
+		int target = Math.max(MIN_CHUNK_SIZE, size / (ForkJoinPool.getCommonPoolParallelism() * 4));
+		int start = 0;
+		for (int i = 0; i < islandCount; i++) {
+			if (islandEnds[i] - start >= target || i == islandCount - 1) {
+				if (chunkCount == chunkEnds.length) {
+					chunkEnds = Arrays.copyOf(chunkEnds, chunkCount * 2);
+				}
+				chunkEnds[chunkCount++] = i + 1;
+				start = islandEnds[i];
+			}
+		}
+		while (workers.size() < chunkCount) {
+			workers.add(new Worker());
+		}
+	}
+
+	/**
+	 * Update the entities in every island, using the common fork join pool.
+	 *
+	 * @param delta The amount of game time that has passed since the last frame
+	 */
+	void update(float delta) {
+		ForkJoinPool.commonPool().invoke(new ChunkTask(0, chunkCount, delta));
+	}
+
+	/**
+	 * Get the game objects that must be updated on the level's thread.
+	 *
+	 * @return
+	 */
+	List<GameObject> getSerialObjects() {
+		return serialObjects;
+	}
+
+	/**
+	 * Get the workers of the chunks that were updated, in chunk order.
+	 *
+	 * @return
+	 */
+	List<Worker> getWorkers() {
+		return workers.subList(0, chunkCount);
+	}
+
+	/**
+	 * Get the worker of the chunk being updated by this thread.
+	 *
+	 * @return
+	 */
+	Worker getWorker() {
+		return current.get();
+	}
+
+	/**
+	 * Get the number of islands found when the islands were last built.
+	 *
+	 * @return
+	 */
+	int getIslandCount() {
+		return islandCount;
+	}
+
+	private void union(Entity entity1, Entity entity2) {
+		if (entity2 == null || entity2.isStatic() || entity2.getId() < 0) {
+			return;
+		}
+		int root1 = find(entity1.getId());
+		int root2 = find(entity2.getId());
+		if (root1 != root2) {
+			parents[Math.max(root1, root2)] = Math.min(root1, root2);
+		}
+	}
+
+	private int find(int id) {
+		while (parents[id] != id) {
+			parents[id] = parents[parents[id]];
+			id = parents[id];
+		}
+		return id;
+	}
+
+	/**
+	 * Updates a range of chunks, splitting the range in half until there is only one chunk in it.
+	 */
+	private final class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+		private final float delta;
+
+		private ChunkTask(int from, int to, float delta) {
+			this.from = from;
+			this.to = to;
+			this.delta = delta;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(from, middle, delta), new ChunkTask(middle, to, delta));
+				return;
+			}
+
+			current.set(workers.get(from));
+			try {
+				int start = from == 0 ? 0 : islandEnds[chunkEnds[from - 1] - 1];
+				int end = islandEnds[chunkEnds[from] - 1];
+				for (int i = start; i < end; i++) {
+					members[i]._update(delta);
+				}
+			} finally {
+				current.remove();
+			}
+		}
+	}
+
+	/**
+	 * The things a chunk of islands needs of its own while it is updating
+	 * and the changes to the level it has to leave until every chunk has finished.
+	 */
+	static final class Worker {
+
+		/**
+		 * A list to put the colliders found by a query in.
+		 */
+		final List<Entity> candidates = new ArrayList<Entity>();
+
+		/**
+		 * A list to put the colliders found by a public query or cast in.
+		 */
+		final List<Entity> queryCandidates = new ArrayList<Entity>();
+
+		/**
+		 * The result of the last sweep.
+		 */
+		final SweepResult sweepResult = new SweepResult();
+
+		/**
+		 * The contacts found; pair i is (contacts[2i], contacts[2i+1]).
+		 */
+		final List<Entity> contacts = new ArrayList<Entity>();
+
+		/**
+		 * The entities that collided with something and what they collided with, in the same layout as the contacts.
+		 */
+		final List<Entity> collisions = new ArrayList<Entity>();
+
+		/**
+		 * The entities that fell asleep.
+		 */
+		final List<Entity> toSleep = new ArrayList<Entity>();
+
+		/**
+		 * The entities that woke up.
+		 */
+		final List<Entity> toWake = new ArrayList<Entity>();
+
+		/**
+		 * The entities whose collision groups changed.
+		 */
+		final List<Entity> groupChanges = new ArrayList<Entity>();
+
+		/**
+		 * Forget everything recorded.
+		 */
+		void clear() {
+			candidates.clear();
+			queryCandidates.clear();
+			contacts.clear();
+			collisions.clear();
+			toSleep.clear();
+			toWake.clear();
+			groupChanges.clear();
+		}
+	}
+}
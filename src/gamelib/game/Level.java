@@ -1,11 +1,14 @@
 package gamelib.game;
 
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,18 +27,70 @@ import processing.core.PVector;
  */
 public abstract class Level implements Updatable, Drawable {
 
+	/**
+	 * How far below an entity to look for the ground (in grid units).
+	 */
+	private static final float GROUND_DISTANCE = 1F / 12F;
+	
+	/**
+	 * The default width of the cells used by the collision broadphase (in grid units).
+	 */
+	public static final float DEFAULT_COLLISION_CELL_SIZE = 4;
+	
+	/**
+	 * How far two entities can overlap and still be treated as just touching when sweeping (in grid units).
+	 */
+	private static final float SWEEP_TOLERANCE = 1E-4F;
+
+	/**
+	 * Sorts raycast hits nearest first.
+	 */
+	private static final Comparator<RaycastHit> RAYCAST_HIT_ORDER = new Comparator<RaycastHit>() {
+		@Override
+		public int compare(RaycastHit hit1, RaycastHit hit2) {
+			return Float.compare(hit1.getDistance(), hit2.getDistance());
+		}
+	};
+
 	private final Set<GameObject> gameObjects;
 	private final Set<Entity> entities;
+	private final List<Entity> entitiesById;
+	private int[] freeEntityIds;
+	private int freeEntityIdCount;
 	private final Collection<Entity> unmodifiableEntities;
+	private MotionStore motion;		// the motion of the entities, by id; null if each entity keeps its own
+	private boolean batchedIntegration;
+	private final List<Entity> integrating;	// the entities waiting for the integration pass this frame
 	
 	private final Set<Entity> entitiesToAdd;
 	private final Set<GameObject> gameObjectsToAdd;
 	private final Set<GameObject> gameObjectsToRemove;
 	
+	private final Map<Class<? extends Entity>, List<Entity>> entityPools;	// recycled entities, by class
+	
+	private final Set<Entity> sleepingEntities;		// taken out of gameObjects until they wake up
+	private final Set<Entity> entitiesToSleep;
+	private final Set<Entity> entitiesToWake;
+	
 	private final Set<DynamicLight> dLights;	// dynamic Lights
 	private final Set<Light> lights;			// all Lights
 	
-	private final Map<Integer, Set<Entity>> collisionGroups;
+	private final Set<Entity> colliders;
+	private final BoundsStore bounds;		// the bounds of the colliders, by id
+	private Broadphase broadphase;			// moving colliders
+	private Broadphase staticBroadphase;	// colliders that never move
+	private final BroadphaseFactory broadphaseFactory;
+	private float collisionCellSize;
+	private final CollisionPairs collisionPairs;
+	private final CollisionContacts collisionContacts;
+	private final List<Entity> collisionCandidates;
+	private final List<Entity> queryCandidates;	// for the public queries and casts, which can be made in the middle of a move
+	private final SweepResult sweepResult;
+	
+	private final Islands islands;
+	private boolean parallelUpdate;
+	private boolean updatingIslands;	// whether or not islands are being updated on other threads right now
+	private final Object updateLock;	// held while changing the level from an island
 	
 	private Camera camera;
 	
@@ -73,18 +128,65 @@ public abstract class Level implements Updatable, Drawable {
 	 * @param gridWidth - Set the scale of the grid
 	 */
 	public Level(Camera camera, int gridWidth){
+		this(camera, gridWidth, DEFAULT_COLLISION_CELL_SIZE);
+	}
+	
+	/**
+	 * Create a level.
+	 * 
+	 * @param camera - The camera to use
+	 * @param gridWidth - Set the scale of the grid
+	 * @param collisionCellSize - The width of the cells used to speed up collision detection (in grid units)
+	 */
+	public Level(Camera camera, int gridWidth, float collisionCellSize){
+		this(camera, gridWidth, collisionCellSize, null);
+	}
+	
+	/**
+	 * Create a level.
+	 * 
+	 * @param camera - The camera to use
+	 * @param gridWidth - Set the scale of the grid
+	 * @param collisionCellSize - The width of the cells used to speed up collision detection (in grid units)
+	 * @param broadphaseFactory - Creates the broadphases used to speed up collision detection; null to use the level's default ones
+	 */
+	public Level(Camera camera, int gridWidth, float collisionCellSize, BroadphaseFactory broadphaseFactory){
+		if (collisionCellSize <= 0) {
+			throw new InvalidParameterException("The collision cell size must be greater than zero.");
+		}
 		this.gameObjects = new LinkedHashSet<GameObject>();
 		this.entities = new LinkedHashSet<Entity>();
 		this.unmodifiableEntities = Collections.unmodifiableCollection(entities);
+		this.entitiesById = new ArrayList<Entity>();
+		this.freeEntityIds = new int[16];
+		this.integrating = new ArrayList<Entity>();
 		
 		this.entitiesToAdd = new LinkedHashSet<Entity>();
 		this.gameObjectsToAdd = new LinkedHashSet<GameObject>();
 		this.gameObjectsToRemove = new LinkedHashSet<GameObject>();
 		
+		this.entityPools = new HashMap<Class<? extends Entity>, List<Entity>>();
+		
+		this.sleepingEntities = new LinkedHashSet<Entity>();
+		this.entitiesToSleep = new LinkedHashSet<Entity>();
+		this.entitiesToWake = new LinkedHashSet<Entity>();
+		
 		this.dLights = new LinkedHashSet<DynamicLight>();
 		this.lights = new LinkedHashSet<Light>();
 		
-		this.collisionGroups = new HashMap<Integer, Set<Entity>>();
+		this.colliders = new LinkedHashSet<Entity>();
+		this.collisionCellSize = collisionCellSize;
+		this.bounds = new BoundsStore();
+		this.broadphaseFactory = broadphaseFactory;
+		this.broadphase = newBroadphase(false);
+		this.staticBroadphase = newBroadphase(true);
+		this.collisionPairs = new CollisionPairs(bounds);
+		this.collisionContacts = new CollisionContacts();
+		this.collisionCandidates = new ArrayList<Entity>();
+		this.queryCandidates = new ArrayList<Entity>();
+		this.sweepResult = new SweepResult();
+		this.islands = new Islands();
+		this.updateLock = new Object();
 		
 		if (camera == null) {
 			this.camera = new CameraStatic(this);
@@ -106,6 +208,11 @@ public abstract class Level implements Updatable, Drawable {
 	public void update(float delta) {
 		preUpdate(delta);
 		if (entitiesToAdd.size() > 0) {
+			if (motion != null) {
+				for (Entity entity : entitiesToAdd) {
+					packMotion(entity);
+				}
+			}
 			addEntities(entitiesToAdd);
 			entitiesToAdd.clear();
 		}
@@ -113,10 +220,22 @@ public abstract class Level implements Updatable, Drawable {
 			addGameObjects(gameObjectsToAdd);
 			gameObjectsToAdd.clear();
 		}
+		applySleepChanges();
+		collisionPairs.build(colliders, broadphase, staticBroadphase, is3D(), delta);
 		camera._update(delta);
-		for(GameObject e : gameObjects){
-			e._update(delta);
+		if (batchedIntegration) {
+			integrate(delta);
+		}
+		if (parallelUpdate && islands.build(gameObjects, collisionPairs, entitiesById.size())) {
+			updateIslands(delta);
+		} else {
+			for(GameObject e : gameObjects){
+				e._update(delta);
+			}
 		}
+		collisionPairs.invalidate();
+		collisionContacts.dispatch(this);
+		applySleepChanges();
 		for(DynamicLight l : dLights){
 			l.update(delta);
 		}
@@ -127,6 +246,85 @@ public abstract class Level implements Updatable, Drawable {
 		postUpdate(delta);
 	}
 
+	/**
+	 * Update every entity up to the point where it moves and then accelerate all of the entities that are going to move in one pass.
+	 * 
+	 * @param delta The amount of game time that has passed since the last frame
+	 */
+	private void integrate(float delta) {
+		for (GameObject go : gameObjects) {
+			if (go instanceof Entity) {
+				Entity entity = (Entity) go;
+				if (entity.prepareUpdate(delta)) {
+					integrating.add(entity);
+				}
+			}
+		}
+		if (integrating.isEmpty()) {
+			return;
+		}
+		
+		PVector gravity = getGravity();
+		float airFriction = getAirFriction();
+		boolean packed = false;
+		for (int i = 0; i < integrating.size(); i++) {
+			Entity entity = integrating.get(i);
+			if (entity.getMotionStore() != null) {
+				packed = true;
+			} else {
+				// each entity keeps its own motion unless the level's motion is packed
+				entity.integrateMotion(gravity.x, gravity.y, gravity.z, airFriction, delta);
+			}
+		}
+		if (packed) {
+			motion.integrate(0, Math.min(entitiesById.size(), motion.capacity()), gravity.x, gravity.y, gravity.z, airFriction, delta);
+		}
+		integrating.clear();
+	}
+
+	/**
+	 * Update the islands on the common fork join pool and then make the changes to the level that they left until they had finished.
+	 * 
+	 * @param delta The amount of game time that has passed since the last frame
+	 */
+	private void updateIslands(float delta) {
+		for (GameObject go : islands.getSerialObjects()) {
+			go._update(delta);
+		}
+		
+		updatingIslands = true;
+		try {
+			islands.update(delta);
+		} finally {
+			updatingIslands = false;
+		}
+		
+		for (Islands.Worker worker : islands.getWorkers()) {
+			for (int i = 0; i < worker.groupChanges.size(); i++) {
+				Entity entity = worker.groupChanges.get(i);
+				if (entity.getCollisionGroup() == 0) {
+					removeCollider(entity);
+				} else if (entity.getLevel() == this) {
+					addCollider(entity);
+				}
+			}
+			for (int i = 0; i < worker.contacts.size(); i += 2) {
+				collisionContacts.add(worker.contacts.get(i), worker.contacts.get(i + 1));
+			}
+			entitiesToSleep.addAll(worker.toSleep);
+			entitiesToWake.addAll(worker.toWake);
+		}
+		for (Islands.Worker worker : islands.getWorkers()) {
+			for (int i = 0; i < worker.collisions.size(); i += 2) {
+				Entity entity = worker.collisions.get(i);
+				if (entity.getLevel() == this) {
+					entity.onCollidesWith(worker.collisions.get(i + 1));
+				}
+			}
+			worker.clear();
+		}
+	}
+
 	/**
 	 * Called each frame before the level updates.
 	 * 
@@ -208,8 +406,19 @@ public abstract class Level implements Updatable, Drawable {
 	 * @param entity
 	 */
 	void addEntity(Entity entity) {
+		if (updatingIslands) {
+			synchronized (updateLock) {
+				addEntityNow(entity);
+			}
+		} else {
+			addEntityNow(entity);
+		}
+	}
+	
+	private void addEntityNow(Entity entity) {
+		entity.setId(takeEntityId(entity));
 		entitiesToAdd.add(entity);
-		addEntityToCollisionGroup(entity);
+		addCollider(entity);
 		addGameObject(entity);
 	}
 
@@ -230,7 +439,13 @@ public abstract class Level implements Updatable, Drawable {
 	 * @param object
 	 */
 	void addGameObject(GameObject object) {
-		gameObjectsToAdd.add(object);
+		if (updatingIslands) {
+			synchronized (updateLock) {
+				gameObjectsToAdd.add(object);
+			}
+		} else {
+			gameObjectsToAdd.add(object);
+		}
 	}
 
 	/**
@@ -245,36 +460,309 @@ public abstract class Level implements Updatable, Drawable {
 		entities.addAll(toAdd);
 	}
 	
+	/**
+	 * Give out an id for the given entity, reusing the id of a removed entity if there is one.
+	 * 
+	 * @param entity
+	 * @return
+	 */
+	private int takeEntityId(Entity entity) {
+		if (freeEntityIdCount > 0) {
+			int id = freeEntityIds[--freeEntityIdCount];
+			entitiesById.set(id, entity);
+			return id;
+		}
+		entitiesById.add(entity);
+		return entitiesById.size() - 1;
+	}
+	
+	/**
+	 * Free the given entity's id so that it can be reused.
+	 * Any entity that is ignoring the entity in collisions stops doing so,
+	 * as otherwise it would ignore the next entity given the id, and the entity stops ignoring any others.
+	 * 
+	 * @param entity
+	 */
+	private void freeEntityId(Entity entity) {
+		int id = entity.getId();
+		if (id < 0 || id >= entitiesById.size() || entitiesById.get(id) != entity) {
+			return;
+		}
+		entity.clearCollisionIgnores(this);
+		entitiesById.set(id, null);
+		if (freeEntityIdCount == freeEntityIds.length) {
+			int[] bigger = new int[freeEntityIdCount * 2];
+			System.arraycopy(freeEntityIds, 0, bigger, 0, freeEntityIdCount);
+			freeEntityIds = bigger;
+		}
+		freeEntityIds[freeEntityIdCount++] = id;
+		unpackMotion(entity);
+		entity.setId(-1);
+	}
+	
+	/**
+	 * Move the given entity's motion into its slot in the level's motion store.
+	 * 
+	 * @param entity
+	 */
+	private void packMotion(Entity entity) {
+		if (entity.getId() >= 0) {
+			entity.setMotionStore(motion, entity.getId());
+		}
+	}
+	
+	/**
+	 * Give the given entity its own motion store again if its motion is in the level's store.
+	 * 
+	 * @param entity
+	 */
+	private void unpackMotion(Entity entity) {
+		if (motion != null && entity.getMotionStore() == motion) {
+			entity.unpackMotion();
+		}
+	}
+	
+	/**
+	 * Get the entity with the given id.
+	 * 
+	 * @param id
+	 * @return the entity or null if no entity in this level has the id
+	 */
+	Entity getEntityById(int id) {
+		if (id < 0 || id >= entitiesById.size()) {
+			return null;
+		}
+		return entitiesById.get(id);
+	}
+	
 	void addLight(Light light){
 		lights.add(light);
 		if(light instanceof DynamicLight) dLights.add((DynamicLight) light);
 	}
 	
 	/**
-	 * Add the given entity to the collision group map.
+	 * Start doing collision detection with the given entity if it is in a collision group.
 	 * 
 	 * @param entity
 	 */
-	private void addEntityToCollisionGroup(Entity entity) {
-		int group = entity.getCollisionGroup();
-		Set<Entity> set = collisionGroups.get(group);
-		
-		if (set == null) {
-			set = new LinkedHashSet<Entity>();
-			collisionGroups.put(group, set);
+	private void addCollider(Entity entity) {
+		if (entity.getCollisionGroup() == 0) {
+			return;
+		}
+		if (colliders.add(entity)) {
+			entity.moveBoundingBox();
+			bounds.update(entity);
+			if (entity.isStatic()) {
+				staticBroadphase.insert(entity);
+			} else {
+				broadphase.insert(entity);
+			}
+			collisionPairs.add(entity);
+		}
+	}
+	
+	/**
+	 * Stop doing collision detection with the given entity.
+	 * 
+	 * @param entity
+	 */
+	private void removeCollider(Entity entity) {
+		if (colliders.remove(entity)) {
+			if (entity.isStatic()) {
+				staticBroadphase.remove(entity);
+			} else {
+				broadphase.remove(entity);
+			}
+			collisionPairs.remove(entity);
+			bounds.remove(entity);
 		}
-		set.add(entity);
 	}
 	
 	/**
-	 * Update the given entity's location in the collision group map.
+	 * Update the given entity's collision group.
+	 * Entities in collision group 0 don't collide with anything so they are not tracked.
 	 * 
 	 * @param entity The entity to update
 	 * @param oldGroup The entity's previous collision group
 	 */
 	void updateEntityCollisionGroup(Entity entity, int oldGroup) {
-		collisionGroups.get(oldGroup).remove(entity);
-		addEntityToCollisionGroup(entity);
+		if (updatingIslands) {
+			islands.getWorker().groupChanges.add(entity);
+			return;
+		}
+		if (entity.getCollisionGroup() == 0) {
+			removeCollider(entity);
+		} else if (oldGroup == 0) {
+			addCollider(entity);
+		}
+	}
+	
+	/**
+	 * Create the broadphase used to speed up collision detection between moving entities.
+	 * By default this is a spatial hash with cells of {@link #getCollisionCellSize()}.
+	 * Note: This is called from the level's constructor.
+	 * 
+	 * @return
+	 */
+	Broadphase createBroadphase() {
+		return new SpatialHash(collisionCellSize, is3D());
+	}
+	
+	/**
+	 * Create the broadphase used for the entities that never move (see {@link Entity#isStatic()}).
+	 * It is only changed when a static entity is added or removed.
+	 * By default this is a spatial hash with cells of {@link #getCollisionCellSize()}.
+	 * Note: This is called from the level's constructor.
+	 * 
+	 * @return
+	 */
+	Broadphase createStaticBroadphase() {
+		return new SpatialHash(collisionCellSize, is3D());
+	}
+	
+	/**
+	 * Create a broadphase with the level's broadphase factory if it has one and give it the level's bounds.
+	 * 
+	 * @param forStaticEntities
+	 * @return
+	 */
+	private Broadphase newBroadphase(boolean forStaticEntities) {
+		Broadphase newBroadphase;
+		if (broadphaseFactory != null) {
+			newBroadphase = broadphaseFactory.createBroadphase(this, forStaticEntities);
+			if (newBroadphase == null) {
+				throw new IllegalArgumentException("The broadphase factory must create a broadphase.");
+			}
+		} else if (forStaticEntities) {
+			newBroadphase = createStaticBroadphase();
+		} else {
+			newBroadphase = createBroadphase();
+		}
+		newBroadphase.attach(bounds);
+		return newBroadphase;
+	}
+	
+	/**
+	 * Get the factory that creates this level's broadphases.
+	 * 
+	 * @return the factory or null if the level uses its default broadphases
+	 */
+	public BroadphaseFactory getBroadphaseFactory() {
+		return broadphaseFactory;
+	}
+	
+	/**
+	 * Replace the broadphases with new ones and add all the colliders to them.
+	 */
+	void rebuildBroadphase() {
+		broadphase = newBroadphase(false);
+		staticBroadphase = newBroadphase(true);
+		for (Entity entity : colliders) {
+			if (entity.isStatic()) {
+				staticBroadphase.insert(entity);
+			} else {
+				broadphase.insert(entity);
+			}
+		}
+	}
+	
+	/**
+	 * Add every collider whose bounds overlap (or touch) the given box to the result list.
+	 * Boxes that cover more cells than there are colliders are tested against every collider's bounds in one pass instead.
+	 * 
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @param result
+	 */
+	private void queryColliders(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		if (updatingIslands) {
+			synchronized (updateLock) {
+				queryCollidersNow(minX, minY, minZ, maxX, maxY, maxZ, result);
+			}
+		} else {
+			queryCollidersNow(minX, minY, minZ, maxX, maxY, maxZ, result);
+		}
+	}
+	
+	private void queryCollidersNow(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		float cells = ((maxX - minX) / collisionCellSize + 1) * ((maxY - minY) / collisionCellSize + 1);
+		if (is3D()) {
+			cells *= (maxZ - minZ) / collisionCellSize + 1;
+		}
+		if (cells > bounds.size()) {
+			bounds.query(minX, minY, minZ, maxX, maxY, maxZ, result);
+		} else {
+			staticBroadphase.query(minX, minY, minZ, maxX, maxY, maxZ, result);
+			broadphase.query(minX, minY, minZ, maxX, maxY, maxZ, result);
+		}
+	}
+	
+	/**
+	 * Add every collider that the given entity might collide with whose bounds overlap (or touch) the given box to the result list.
+	 * This uses the entity's collision pairs for this frame if it can.
+	 * 
+	 * @param entity The entity doing the query
+	 * @param minX
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @param result
+	 */
+	private void queryCollidersFor(Entity entity, float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		if (!collisionPairs.query(entity, minX, minY, minZ, maxX, maxY, maxZ, result)) {
+			queryColliders(minX, minY, minZ, maxX, maxY, maxZ, result);
+		}
+	}
+	
+	/**
+	 * Let the level know that the given entity's bounding box has moved.
+	 * (To be called from the {@link Entity} class)
+	 * 
+	 * @param entity
+	 */
+	void updateEntityBounds(Entity entity) {
+		if (entity.getCollisionGroup() == 0) {
+			return;
+		}
+		if (updatingIslands) {
+			synchronized (updateLock) {
+				updateBroadphase(entity);
+			}
+		} else {
+			updateBroadphase(entity);
+		}
+		collisionPairs.update(entity);
+	}
+	
+	/**
+	 * Let the level know where a static entity's bounding box is, if it has been moved or resized
+	 * since the level last saw it.
+	 * (To be called from the {@link Entity} class)
+	 *
+	 * @param entity
+	 * @return Whether or not the bounding box had changed
+	 */
+	boolean updateStaticBounds(Entity entity) {
+		if (entity.getCollisionGroup() == 0 || bounds.matches(entity)) {
+			return false;
+		}
+		updateEntityBounds(entity);
+		return true;
+	}
+
+	private void updateBroadphase(Entity entity) {
+		bounds.update(entity);
+		if (entity.isStatic()) {
+			staticBroadphase.update(entity);
+		} else {
+			broadphase.update(entity);
+		}
 	}
 
 	/**
@@ -283,50 +771,42 @@ public abstract class Level implements Updatable, Drawable {
 	 * 
 	 * @param entity - The entity to test
 	 * @return the ground object or null if not on the ground
-	 * TODO increase efficiency
 	 */
 	Entity getGround(Entity entity) {
-		int group = entity.getCollisionGroup();
-		if (group == 0) {
+		if (entity.getCollisionMask() == 0) {
 			return null;
 		}
 		
-		switch (entity.getCollisionMode()) {
-		case LESS_THAN_OR_EQUAL_TO:
-			for (Integer key : collisionGroups.keySet()) {
-				if (key != 0 && key <= group) {
-					for (Entity ent : collisionGroups.get(key)) {
-						if (isGroundEntity(entity, ent)) {
-							return ent;
-						}
-					}
-				}
-			}
-			return null;
-			
-		case GREATER_THAN:
-			for (Integer key : collisionGroups.keySet()) {
-				if (key != 0 && key > group) {
-					for (Entity ent : collisionGroups.get(key)) {
-						if (isGroundEntity(entity, ent)) {
-							return ent;
-						}
-					}
-				}
-			}
-			return null;
-			
-		case EQUAL_TO:
-			for (Entity ent : collisionGroups.get(group)) {
-				if (isGroundEntity(entity, ent)) {
-					return ent;
-				}
+		BoundingBox bb = entity.getBoundingBox();
+		List<Entity> candidates = getCandidateList();
+		candidates.clear();
+		if (is3D()) {
+			float y = bb.getMaxY() + GROUND_DISTANCE;
+			queryCollidersFor(entity, bb.getMinX(), y, bb.getMinZ(), bb.getMaxX(), y, bb.getMaxZ(), candidates);
+		} else {
+			float y = bb.getMinY() - GROUND_DISTANCE;
+			queryCollidersFor(entity, bb.getMinX(), y, 0, bb.getMaxX(), y, 0, candidates);
+		}
+		
+		for (int i = 0; i < candidates.size(); i++) {
+			Entity ent = candidates.get(i);
+			if (isGroundEntity(entity, ent)) {
+				return ent;
 			}
-			return null;
-			
-		default:
-			return null;
 		}
+		return null;
+	}
+	
+	/**
+	 * Test if the entity is still standing on the ground it was on.
+	 * This is much cheaper than finding the ground with {@link #getGround(Entity)}.
+	 * 
+	 * @param entity
+	 * @param ground The entity's previous ground
+	 * @return
+	 */
+	boolean isStillGround(Entity entity, Entity ground) {
+		return ground.getLevel() == this && isGroundEntity(entity, ground);
 	}
 	
 	/**
@@ -347,24 +827,34 @@ public abstract class Level implements Updatable, Drawable {
 		BoundingBox thisbb = entityLookingForGround.getBoundingBox();
 		BoundingBox otherbb = posibleGround.getBoundingBox();
 		
-		float groundDist = 1F / 12F;	//TODO extract
+		if (posibleGround instanceof TileLayer) {
+			TileLayer tiles = (TileLayer) posibleGround;
+			float y = thisbb.getMinY() - GROUND_DISTANCE;
+			return	tiles.isSolidAt(thisbb.getCenterX(), y)
+				||	tiles.isSolidAt(thisbb.getMinX(),    y)
+				||	tiles.isSolidAt(thisbb.getMaxX(),    y);
+		}
 		
+		// the probe points are all at the same height so check that first
 		if (is3D()) {
-			if (otherbb.contains(new PVector(thisbb.getCenterX(), thisbb.getMaxY() + groundDist, thisbb.getCenterZ()))
-			||  otherbb.contains(new PVector(thisbb.getMinX(),    thisbb.getMaxY() + groundDist, thisbb.getMinZ()))
-			||  otherbb.contains(new PVector(thisbb.getMinX(),    thisbb.getMaxY() + groundDist, thisbb.getMaxZ()))
-			||  otherbb.contains(new PVector(thisbb.getMaxX(),    thisbb.getMaxY() + groundDist, thisbb.getMinZ()))
-			||  otherbb.contains(new PVector(thisbb.getMaxX(),    thisbb.getMaxY() + groundDist, thisbb.getMaxZ()))) {
-				return true;
+			float y = thisbb.getMaxY() + GROUND_DISTANCE;
+			if (y < otherbb.getMinY() || y > otherbb.getMaxY()) {
+				return false;
 			}
+			return	otherbb.contains(thisbb.getCenterX(), y, thisbb.getCenterZ())
+				||	otherbb.contains(thisbb.getMinX(),    y, thisbb.getMinZ())
+				||	otherbb.contains(thisbb.getMinX(),    y, thisbb.getMaxZ())
+				||	otherbb.contains(thisbb.getMaxX(),    y, thisbb.getMinZ())
+				||	otherbb.contains(thisbb.getMaxX(),    y, thisbb.getMaxZ());
 		} else {
-			if (otherbb.contains(new PVector(thisbb.getCenterX(), thisbb.getMinY() - groundDist))
-			||  otherbb.contains(new PVector(thisbb.getMinX(),    thisbb.getMinY() - groundDist))
-			||  otherbb.contains(new PVector(thisbb.getMaxX(),    thisbb.getMinY() - groundDist))) {
-				return true;
-			}				
+			float y = thisbb.getMinY() - GROUND_DISTANCE;
+			if (y < otherbb.getMinY() || y >= otherbb.getMaxY()) {
+				return false;
+			}
+			return	otherbb.contains(thisbb.getCenterX(), y, 0)
+				||	otherbb.contains(thisbb.getMinX(),    y, 0)
+				||	otherbb.contains(thisbb.getMaxX(),    y, 0);
 		}
-		return false;
 	}
 
 	/**
@@ -374,50 +864,31 @@ public abstract class Level implements Updatable, Drawable {
 	 * @param entity The entity to move
 	 * @param newLocation The new location that this entity wants to move to
 	 * @return the entity that this entity will collide with if it move to the new location
-	 * TODO increase efficiency
 	 */
 	Entity willCollideWithWhenMoved(Entity entity, PVector newLocation) {
-		int group = entity.getCollisionGroup();
-		if (group == 0) {
+		if (entity.getCollisionMask() == 0) {
 			return null;
 		}
 		
-		switch (entity.getCollisionMode()) {
-		case LESS_THAN_OR_EQUAL_TO:
-			for (Integer key : collisionGroups.keySet()) {
-				if (key != 0 && key <= group) {
-					for (Entity ent : collisionGroups.get(key)) {
-						if (willCollide(entity, ent, newLocation)) {
-							return ent;
-						}
-					}
-				}
-			}
-			return null;
-			
-		case GREATER_THAN:
-			for (Integer key : collisionGroups.keySet()) {
-				if (key != 0 && key > group) {
-					for (Entity ent : collisionGroups.get(key)) {
-						if (willCollide(entity, ent, newLocation)) {
-							return ent;
-						}
-					}
-				}
-			}
-			return null;
-			
-		case EQUAL_TO:
-			for (Entity ent : collisionGroups.get(group)) {
-				if (willCollide(entity, ent, newLocation)) {
-					return ent;
-				}
+		BoundingBox bb = entity.getBoundingBox();
+		float halfWidth = bb.getWidth() / 2;
+		float halfHeight = bb.getHeight() / 2;
+		float halfDepth = bb.getDepth() / 2;
+		
+		List<Entity> candidates = getCandidateList();
+		candidates.clear();
+		queryCollidersFor(entity,
+				newLocation.x - halfWidth, newLocation.y - halfHeight, newLocation.z - halfDepth,
+				newLocation.x + halfWidth, newLocation.y + halfHeight, newLocation.z + halfDepth,
+				candidates);
+		
+		for (int i = 0; i < candidates.size(); i++) {
+			Entity ent = candidates.get(i);
+			if (willCollide(entity, ent, newLocation)) {
+				return ent;
 			}
-			return null;
-			
-		default:
-			return null;
 		}
+		return null;
 	}
 
 	/**
@@ -435,12 +906,302 @@ public abstract class Level implements Updatable, Drawable {
 		if (!needToCheckForCollision(movingEntity, stationaryEntity)) {
 			return false;
 		}
+		if (stationaryEntity instanceof TileLayer) {
+			BoundingBox bb = movingEntity.getBoundingBox();
+			float halfWidth = bb.getWidth() / 2;
+			float halfHeight = bb.getHeight() / 2;
+			return ((TileLayer) stationaryEntity).intersectsSolid(
+					desiredLocationOfMovingEntity.x - halfWidth, desiredLocationOfMovingEntity.y - halfHeight,
+					desiredLocationOfMovingEntity.x + halfWidth, desiredLocationOfMovingEntity.y + halfHeight);
+		}
 		if (movingEntity.getBoundingBox().intersects(stationaryEntity.getBoundingBox(), desiredLocationOfMovingEntity)) {
 			return true;
 		}
 		return false;
 	}
 	
+	/**
+	 * Record that the given entity was stopped by another entity this frame.
+	 * (To be called from the {@link Entity} class)
+	 * 
+	 * @param entity
+	 * @param other
+	 */
+	void addContact(Entity entity, Entity other) {
+		if (updatingIslands) {
+			List<Entity> contacts = islands.getWorker().contacts;
+			contacts.add(entity);
+			contacts.add(other);
+		} else {
+			collisionContacts.add(entity, other);
+		}
+	}
+	
+	/**
+	 * Let the given entity know that it collided with another entity while it was moving.
+	 * If islands are being updated the entity is told once they have all finished.
+	 * (To be called from the {@link Entity} class)
+	 * 
+	 * @param entity
+	 * @param other
+	 */
+	void collided(Entity entity, Entity other) {
+		if (updatingIslands) {
+			List<Entity> collisions = islands.getWorker().collisions;
+			collisions.add(entity);
+			collisions.add(other);
+		} else {
+			entity.onCollidesWith(other);
+		}
+	}
+	
+	/**
+	 * Get the list to put the colliders found by a query in.
+	 * Each island being updated has its own.
+	 * 
+	 * @return
+	 */
+	private List<Entity> getCandidateList() {
+		return updatingIslands ? islands.getWorker().candidates : collisionCandidates;
+	}
+	
+	/**
+	 * Get the list to put the colliders found by a public query or cast in.
+	 * It is kept apart from the list of {@link #getCandidateList()} because an entity can query the level
+	 * from its own code while it is being moved, and that list is still being read then.
+	 * Each island being updated has its own.
+	 * 
+	 * @return
+	 */
+	private List<Entity> getQueryList() {
+		return updatingIslands ? islands.getWorker().queryCandidates : queryCandidates;
+	}
+	
+	/**
+	 * Sweep the given entity's bounding box along the given move and find the first entity it will hit.
+	 * The box slides along the surface of anything it hits for the rest of the move.
+	 * Only one broadphase query is done as sliding never takes the box outside of the space the whole move covers.
+	 * Entities that the box already overlaps are ignored so that it can move out of them.
+	 * Note: This method does collision detection.
+	 * 
+	 * @param entity The entity to move
+	 * @param dx How far the entity wants to move along the x axis
+	 * @param dy How far the entity wants to move along the y axis
+	 * @param dz How far the entity wants to move along the z axis
+	 * @return the result of the sweep; this object is reused by the next sweep
+	 */
+	SweepResult sweep(Entity entity, float dx, float dy, float dz) {
+		SweepResult result = updatingIslands ? islands.getWorker().sweepResult : sweepResult;
+		result.reset(dx, dy, dz);
+		if (entity.getCollisionMask() == 0 || (dx == 0 && dy == 0 && dz == 0)) {
+			return result;
+		}
+		
+		boolean is3D = is3D();
+		BoundingBox bb = entity.getBoundingBox();
+		float minX = bb.getMinX(), minY = bb.getMinY(), minZ = bb.getMinZ();
+		float maxX = bb.getMaxX(), maxY = bb.getMaxY(), maxZ = bb.getMaxZ();
+		
+		List<Entity> candidates = getCandidateList();
+		candidates.clear();
+		queryCollidersFor(entity,
+				Math.min(minX, minX + dx), Math.min(minY, minY + dy), Math.min(minZ, minZ + dz),
+				Math.max(maxX, maxX + dx), Math.max(maxY, maxY + dy), Math.max(maxZ, maxZ + dz),
+				candidates);
+		
+		int[] hitAxis = result.hitAxis;
+		float moveX = 0, moveY = 0, moveZ = 0;
+		// each hit stops the box on one axis so there can't be more hits than axes
+		for (int i = 0; i < 3; i++) {
+			Entity first = null;
+			float firstTime = 1;
+			int firstAxis = 0;
+			
+			for (int j = 0; j < candidates.size(); j++) {
+				Entity ent = candidates.get(j);
+				if (ent == entity || !needToCheckForCollision(entity, ent)) {
+					continue;
+				}
+				
+				if (ent instanceof TileLayer) {
+					// test each solid tile the move covers as if it were its own box
+					TileLayer tiles = (TileLayer) ent;
+					int minColumn = Math.max(tiles.getColumn(Math.min(minX, minX + dx)), 0);
+					int minRow = Math.max(tiles.getRow(Math.min(minY, minY + dy)), 0);
+					int maxColumn = Math.min(tiles.getColumn(Math.max(maxX, maxX + dx)), tiles.getColumns() - 1);
+					int maxRow = Math.min(tiles.getRow(Math.max(maxY, maxY + dy)), tiles.getRows() - 1);
+					for (int r = minRow; r <= maxRow; r++) {
+						for (int c = minColumn; c <= maxColumn; c++) {
+							if (!tiles.isSolid(c, r)) {
+								continue;
+							}
+							float tileMinX = tiles.getTileMinX(c), tileMinY = tiles.getTileMinY(r);
+							float time = hitTime(minX, minY, minZ, maxX, maxY, maxZ,
+									tileMinX, tileMinY, 0, tileMinX + 1, tileMinY + 1, 0, dx, dy, dz, false, hitAxis);
+							if (time < firstTime) {
+								first = ent;
+								firstTime = time;
+								firstAxis = hitAxis[0];
+							}
+						}
+					}
+					continue;
+				}
+				
+				int other = ent.getId();
+				float otherMinX = bounds.getMinX(other), otherMinY = bounds.getMinY(other), otherMinZ = bounds.getMinZ(other);
+				float otherMaxX = bounds.getMaxX(other), otherMaxY = bounds.getMaxY(other), otherMaxZ = bounds.getMaxZ(other);
+				float time = hitTime(minX, minY, minZ, maxX, maxY, maxZ,
+						otherMinX, otherMinY, otherMinZ, otherMaxX, otherMaxY, otherMaxZ, dx, dy, dz, is3D, hitAxis);
+				if (time < firstTime) {
+					first = ent;
+					firstTime = time;
+					firstAxis = hitAxis[0];
+				}
+			}
+			
+			if (first == null) {
+				moveX += dx;
+				moveY += dy;
+				moveZ += dz;
+				break;
+			}
+			
+			float time = Math.max(firstTime, 0);
+			moveX += dx * time;
+			moveY += dy * time;
+			moveZ += dz * time;
+			minX += dx * time; maxX += dx * time;
+			minY += dy * time; maxY += dy * time;
+			minZ += dz * time; maxZ += dz * time;
+			
+			addContact(entity, first);
+			first.wakeUp();
+			if (result.hit == null) {
+				result.hit = first;
+				result.time = time;
+				switch (firstAxis) {
+				case 0: result.normalX = -Math.signum(dx); break;
+				case 1: result.normalY = -Math.signum(dy); break;
+				default: result.normalZ = -Math.signum(dz); break;
+				}
+			}
+			
+			// slide along the surface that was hit for the rest of the move
+			dx *= 1 - time;
+			dy *= 1 - time;
+			dz *= 1 - time;
+			switch (firstAxis) {
+			case 0: dx = 0; result.blockedX = true; break;
+			case 1: dy = 0; result.blockedY = true; break;
+			default: dz = 0; result.blockedZ = true; break;
+			}
+			if (dx == 0 && dy == 0 && dz == 0) {
+				break;
+			}
+		}
+		
+		result.dx = moveX;
+		result.dy = moveY;
+		result.dz = moveZ;
+		return result;
+	}
+	
+	/**
+	 * Get how far through a move along one axis the moving range will start to overlap the other range.
+	 * 
+	 * @param min The start of the moving range
+	 * @param max The end of the moving range
+	 * @param otherMin The start of the other range
+	 * @param otherMax The end of the other range
+	 * @param d How far the moving range moves
+	 * @return the time the ranges start to overlap; negative infinity if they always overlap or positive infinity if they never do
+	 */
+	private static float entryTime(float min, float max, float otherMin, float otherMax, float d) {
+		if (d > 0) {
+			return (otherMin - max) / d;
+		}
+		if (d < 0) {
+			return (otherMax - min) / d;
+		}
+		if (max <= otherMin + SWEEP_TOLERANCE || min >= otherMax - SWEEP_TOLERANCE) {
+			return Float.POSITIVE_INFINITY;
+		}
+		return Float.NEGATIVE_INFINITY;
+	}
+	
+	/**
+	 * Get how far through a move along one axis the moving range will stop overlapping the other range.
+	 * 
+	 * @param min The start of the moving range
+	 * @param max The end of the moving range
+	 * @param otherMin The start of the other range
+	 * @param otherMax The end of the other range
+	 * @param d How far the moving range moves
+	 * @return the time the ranges stop overlapping or positive infinity if they don't move apart
+	 */
+	private static float exitTime(float min, float max, float otherMin, float otherMax, float d) {
+		if (d > 0) {
+			return (otherMax - min) / d;
+		}
+		if (d < 0) {
+			return (otherMin - max) / d;
+		}
+		return Float.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * Get how far through a move the moving box will hit the other box.
+	 * 
+	 * @param minX The moving box
+	 * @param minY
+	 * @param minZ
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ
+	 * @param otherMinX The other box
+	 * @param otherMinY
+	 * @param otherMinZ
+	 * @param otherMaxX
+	 * @param otherMaxY
+	 * @param otherMaxZ
+	 * @param dx The move
+	 * @param dy
+	 * @param dz
+	 * @param is3D Whether or not to test the z axis
+	 * @param hitAxis Gets set to the axis the boxes will hit on; 0 for the x axis, 1 for the y axis or 2 for the z axis (the axis whose ranges start to overlap last)
+	 * @return the time of the hit; positive infinity if the boxes won't hit or if they already overlap
+	 */
+	private static float hitTime(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+			float otherMinX, float otherMinY, float otherMinZ, float otherMaxX, float otherMaxY, float otherMaxZ,
+			float dx, float dy, float dz, boolean is3D, int[] hitAxis) {
+		float entryX = entryTime(minX, maxX, otherMinX, otherMaxX, dx);
+		float entryY = entryTime(minY, maxY, otherMinY, otherMaxY, dy);
+		float entryZ = is3D ? entryTime(minZ, maxZ, otherMinZ, otherMaxZ, dz) : Float.NEGATIVE_INFINITY;
+		float entry, d;
+		if (entryZ > entryX && entryZ > entryY) {
+			hitAxis[0] = 2; entry = entryZ; d = dz;
+		} else if (entryY > entryX) {
+			hitAxis[0] = 1; entry = entryY; d = dy;
+		} else {
+			hitAxis[0] = 0; entry = entryX; d = dx;
+		}
+		float exit = Math.min(
+				exitTime(minX, maxX, otherMinX, otherMaxX, dx),
+				exitTime(minY, maxY, otherMinY, otherMaxY, dy));
+		if (is3D) {
+			exit = Math.min(exit, exitTime(minZ, maxZ, otherMinZ, otherMaxZ, dz));
+		}
+		
+		if (entry > exit || exit <= 0) {
+			return Float.POSITIVE_INFINITY;
+		}
+		if (entry * Math.abs(d) < -SWEEP_TOLERANCE) {
+			return Float.POSITIVE_INFINITY;	// already overlapping
+		}
+		return entry;
+	}
+	
 	/**
 	 * Test if the given bounding box collides with something.
 	 * 
@@ -449,44 +1210,445 @@ public abstract class Level implements Updatable, Drawable {
 	 */
 	final boolean collidesWithSomething(BoundingBox boundingBox) {
 		Entity entity = boundingBox.getEntity();
-		int group = entity.getCollisionGroup();
-		
-		if (group == 0) {
+		if (entity.getCollisionMask() == 0) {
 			return false;
 		}
 		
-		switch (entity.getCollisionMode()) {
-		case LESS_THAN_OR_EQUAL_TO:
-			for (Integer key : collisionGroups.keySet()) {
-				if (key != 0 && key <= group) {
-					for (Entity ent : collisionGroups.get(key)) {
-						return isColliding(entity, ent);
-					}
+		List<Entity> candidates = getCandidateList();
+		candidates.clear();
+		queryCollidersFor(entity,
+				boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMinZ(),
+				boundingBox.getMaxX(), boundingBox.getMaxY(), boundingBox.getMaxZ(),
+				candidates);
+		
+		for (int i = 0; i < candidates.size(); i++) {
+			if (isColliding(entity, candidates.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find every colliding entity whose bounding box overlaps (or touches) the given box.
+	 * Entities in collision group 0 are never found.
+	 * 
+	 * @param min The corner of the box with the smallest coordinates
+	 * @param max The corner of the box with the largest coordinates
+	 * @param collisionMask The collision layers to look for (see {@link Entity#getCollisionLayer()}); use -1 to find everything that collides
+	 * @return the entities found
+	 */
+	public List<Entity> queryAABB(PVector min, PVector max, long collisionMask) {
+		List<Entity> result = new ArrayList<Entity>();
+		queryAABB(min.x, min.y, min.z, max.x, max.y, max.z, collisionMask, result);
+		return result;
+	}
+	
+	/**
+	 * Add every colliding entity whose bounding box overlaps (or touches) the given box to the given collection.
+	 * A {@link TileLayer} is only found if one of its solid tiles overlaps (or touches) the box.
+	 * Entities in collision group 0 are never found.
+	 * Nothing is allocated if the collection has room for the entities.
+	 * 
+	 * @param minX
+	 * @param minY
+	 * @param minZ (ignored in 2D levels)
+	 * @param maxX
+	 * @param maxY
+	 * @param maxZ (ignored in 2D levels)
+	 * @param collisionMask The collision layers to look for (see {@link Entity#getCollisionLayer()}); use -1 to find everything that collides
+	 * @param result The collection to add the entities to
+	 * @return the number of entities found
+	 */
+	public int queryAABB(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, long collisionMask, Collection<? super Entity> result) {
+		if (!is3D()) {
+			minZ = 0;
+			maxZ = 0;
+		}
+		List<Entity> candidates = getQueryList();
+		candidates.clear();
+		queryColliders(minX, minY, minZ, maxX, maxY, maxZ, candidates);
+		
+		int found = 0;
+		for (int i = 0; i < candidates.size(); i++) {
+			Entity ent = candidates.get(i);
+			if ((collisionMask & ent.getCollisionLayer()) == 0) {
+				continue;
+			}
+			if (!(ent instanceof TileLayer) || ((TileLayer) ent).touchesSolid(minX, minY, maxX, maxY)) {
+				result.add(ent);
+				found++;
+			}
+		}
+		candidates.clear();
+		return found;
+	}
+	
+	/**
+	 * Find every colliding entity whose bounding box is within the given distance of the given point.
+	 * This is a circle in 2D levels and a sphere in 3D levels.
+	 * Entities in collision group 0 are never found.
+	 * 
+	 * @param center
+	 * @param radius (in grid units)
+	 * @param collisionMask The collision layers to look for (see {@link Entity#getCollisionLayer()}); use -1 to find everything that collides
+	 * @return the entities found
+	 */
+	public List<Entity> queryRadius(PVector center, float radius, long collisionMask) {
+		List<Entity> result = new ArrayList<Entity>();
+		queryRadius(center.x, center.y, center.z, radius, collisionMask, result);
+		return result;
+	}
+	
+	/**
+	 * Add every colliding entity whose bounding box is within the given distance of the given point to the given collection.
+	 * This is a circle in 2D levels and a sphere in 3D levels.
+	 * A {@link TileLayer} is only found if one of its solid tiles is within the distance.
+	 * Entities in collision group 0 are never found.
+	 * Nothing is allocated if the collection has room for the entities.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z (ignored in 2D levels)
+	 * @param radius (in grid units)
+	 * @param collisionMask The collision layers to look for (see {@link Entity#getCollisionLayer()}); use -1 to find everything that collides
+	 * @param result The collection to add the entities to
+	 * @return the number of entities found
+	 */
+	public int queryRadius(float x, float y, float z, float radius, long collisionMask, Collection<? super Entity> result) {
+		if (radius < 0) {
+			throw new InvalidParameterException("The radius of a query cannot be negative.");
+		}
+		boolean is3D = is3D();
+		if (!is3D) {
+			z = 0;
+		}
+		List<Entity> candidates = getQueryList();
+		candidates.clear();
+		queryColliders(x - radius, y - radius, is3D ? z - radius : 0, x + radius, y + radius, is3D ? z + radius : 0, candidates);
+		
+		int found = 0;
+		float radiusSq = radius * radius;
+		for (int i = 0; i < candidates.size(); i++) {
+			Entity ent = candidates.get(i);
+			if ((collisionMask & ent.getCollisionLayer()) == 0) {
+				continue;
+			}
+			if (ent instanceof TileLayer) {
+				if (((TileLayer) ent).isSolidWithin(x, y, radius)) {
+					result.add(ent);
+					found++;
 				}
+				continue;
 			}
-			return false;
+			// the distance from the point to the closest point in the box
+			int slot = ent.getId();
+			float dx = Math.max(Math.max(bounds.getMinX(slot) - x, x - bounds.getMaxX(slot)), 0);
+			float dy = Math.max(Math.max(bounds.getMinY(slot) - y, y - bounds.getMaxY(slot)), 0);
+			float dz = is3D ? Math.max(Math.max(bounds.getMinZ(slot) - z, z - bounds.getMaxZ(slot)), 0) : 0;
+			if (dx * dx + dy * dy + dz * dz <= radiusSq) {
+				result.add(ent);
+				found++;
+			}
+		}
+		candidates.clear();
+		return found;
+	}
+	
+	/**
+	 * Find the first entity the given ray hits.
+	 * 
+	 * @param origin Where the ray starts
+	 * @param direction The direction of the ray (does not need to be normalized)
+	 * @param maxDistance How far the ray goes (in grid units)
+	 * @param collisionMask The collision layers the ray can hit (see {@link Entity#getCollisionLayer()}); use -1 to hit everything that collides
+	 * @return where the ray hit or null if it didn't hit anything
+	 */
+	public RaycastHit raycast(PVector origin, PVector direction, float maxDistance, long collisionMask) {
+		return cast(origin.x, origin.y, origin.z, direction, maxDistance, 0, 0, 0, collisionMask, null, null);
+	}
+	
+	/**
+	 * Find the first entity that a ray from the center of the given entity hits.
+	 * The ray can hit the same entities the given entity collides with.
+	 * 
+	 * @param entity The entity to cast the ray from
+	 * @param direction The direction of the ray (does not need to be normalized)
+	 * @param maxDistance How far the ray goes (in grid units)
+	 * @return where the ray hit or null if it didn't hit anything
+	 */
+	public RaycastHit raycast(Entity entity, PVector direction, float maxDistance) {
+		BoundingBox bb = entity.getBoundingBox();
+		return cast(bb.getCenterX(), bb.getCenterY(), bb.getCenterZ(), direction, maxDistance, 0, 0, 0, entity.getCollisionMask(), entity, null);
+	}
+	
+	/**
+	 * Find every entity the given ray hits, nearest first.
+	 * 
+	 * @param origin Where the ray starts
+	 * @param direction The direction of the ray (does not need to be normalized)
+	 * @param maxDistance How far the ray goes (in grid units)
+	 * @param collisionMask The collision layers the ray can hit (see {@link Entity#getCollisionLayer()}); use -1 to hit everything that collides
+	 * @return the hits
+	 */
+	public List<RaycastHit> raycastAll(PVector origin, PVector direction, float maxDistance, long collisionMask) {
+		List<RaycastHit> hits = new ArrayList<RaycastHit>();
+		cast(origin.x, origin.y, origin.z, direction, maxDistance, 0, 0, 0, collisionMask, null, hits);
+		return hits;
+	}
+	
+	/**
+	 * Find every entity that a ray from the center of the given entity hits, nearest first.
+	 * The ray can hit the same entities the given entity collides with.
+	 * 
+	 * @param entity The entity to cast the ray from
+	 * @param direction The direction of the ray (does not need to be normalized)
+	 * @param maxDistance How far the ray goes (in grid units)
+	 * @return the hits
+	 */
+	public List<RaycastHit> raycastAll(Entity entity, PVector direction, float maxDistance) {
+		BoundingBox bb = entity.getBoundingBox();
+		List<RaycastHit> hits = new ArrayList<RaycastHit>();
+		cast(bb.getCenterX(), bb.getCenterY(), bb.getCenterZ(), direction, maxDistance, 0, 0, 0, entity.getCollisionMask(), entity, hits);
+		return hits;
+	}
+	
+	/**
+	 * Find the first entity a box hits when it is moved in the given direction.
+	 * 
+	 * @param origin Where the center of the box starts
+	 * @param size The width, height and depth of the box
+	 * @param direction The direction to move the box (does not need to be normalized)
+	 * @param maxDistance How far to move the box (in grid units)
+	 * @param collisionMask The collision layers the box can hit (see {@link Entity#getCollisionLayer()}); use -1 to hit everything that collides
+	 * @return where the box hit or null if it didn't hit anything
+	 */
+	public RaycastHit boxCast(PVector origin, PVector size, PVector direction, float maxDistance, long collisionMask) {
+		return cast(origin.x, origin.y, origin.z, direction, maxDistance, size.x / 2, size.y / 2, size.z / 2, collisionMask, null, null);
+	}
+	
+	/**
+	 * Find the first entity the given entity's bounding box hits when it is moved in the given direction.
+	 * The box can hit the same entities the given entity collides with.
+	 * 
+	 * @param entity The entity whose bounding box to move
+	 * @param direction The direction to move the box (does not need to be normalized)
+	 * @param maxDistance How far to move the box (in grid units)
+	 * @return where the box hit or null if it didn't hit anything
+	 */
+	public RaycastHit boxCast(Entity entity, PVector direction, float maxDistance) {
+		BoundingBox bb = entity.getBoundingBox();
+		return cast(bb.getCenterX(), bb.getCenterY(), bb.getCenterZ(), direction, maxDistance,
+				bb.getWidth() / 2, bb.getHeight() / 2, bb.getDepth() / 2, entity.getCollisionMask(), entity, null);
+	}
+	
+	/**
+	 * Cast a box (or a ray if it has no size) through the level.
+	 * The path is walked in steps of {@link #getCollisionCellSize()}; each step does one broadphase query
+	 * and only counts the hits that happen within it, so the search can stop at the first step that hits something.
+	 * 
+	 * @param ox
+	 * @param oy
+	 * @param oz
+	 * @param direction
+	 * @param maxDistance
+	 * @param halfWidth
+	 * @param halfHeight
+	 * @param halfDepth
+	 * @param collisionMask
+	 * @param caster The entity doing the cast or null; it is never hit and its ignored entities aren't either
+	 * @param hits If not null, every hit is added to this list and null is returned
+	 * @return the first hit
+	 */
+	private RaycastHit cast(float ox, float oy, float oz, PVector direction, float maxDistance,
+			float halfWidth, float halfHeight, float halfDepth, long collisionMask, Entity caster, List<RaycastHit> hits) {
+		if (!(maxDistance > 0) || Float.isInfinite(maxDistance)) {
+			throw new InvalidParameterException("The max distance of a cast must be greater than zero.");
+		}
+		boolean is3D = is3D();
+		int axes = is3D ? 3 : 2;
+		float length = (float) Math.sqrt(direction.x * direction.x + direction.y * direction.y + (is3D ? direction.z * direction.z : 0));
+		if (length == 0) {
+			throw new InvalidParameterException("The direction of a cast cannot be zero.");
+		}
+		
+		float[] o = { ox, oy, is3D ? oz : 0 };
+		float[] d = { direction.x / length, direction.y / length, is3D ? direction.z / length : 0 };
+		float[] h = { halfWidth, halfHeight, is3D ? halfDepth : 0 };
+		float[] min = new float[3];
+		float[] max = new float[3];
+		float[] box = new float[6];
+		int[] hitAxis = new int[1];
+		
+		List<Entity> candidates = getQueryList();
+		for (float start = 0; start < maxDistance; ) {
+			float end = Math.min(start + collisionCellSize, maxDistance);
+			boolean last = end >= maxDistance;
+			
+			// the box that this step of the cast covers
+			for (int a = 0; a < 3; a++) {
+				float from = o[a] + d[a] * start;
+				float to = o[a] + d[a] * end;
+				min[a] = Math.min(from, to) - h[a];
+				max[a] = Math.max(from, to) + h[a];
+			}
+			candidates.clear();
+			queryColliders(min[0], min[1], min[2], max[0], max[1], max[2], candidates);
+			
+			int firstHit = hits == null ? 0 : hits.size();
+			Entity nearest = null;
+			float nearestDistance = Float.POSITIVE_INFINITY;
+			int nearestAxis = -1;
 			
-		case GREATER_THAN:
-			for (Integer key : collisionGroups.keySet()) {
-				if (key != 0 && key > group) {
-					for (Entity ent : collisionGroups.get(key)) {
-						return isColliding(entity, ent);
+			for (int i = 0; i < candidates.size(); i++) {
+				Entity ent = candidates.get(i);
+				if (ent == caster || (collisionMask & ent.getCollisionLayer()) == 0) {
+					continue;
+				}
+				if (caster != null && caster.isIgnoringInCollisions(ent)) {
+					continue;
+				}
+				
+				float near;
+				int axis;
+				if (ent instanceof TileLayer) {
+					// the nearest solid tile this step covers
+					TileLayer tiles = (TileLayer) ent;
+					int minColumn = Math.max(tiles.getColumn(min[0]), 0);
+					int minRow = Math.max(tiles.getRow(min[1]), 0);
+					int maxColumn = Math.min(tiles.getColumn(max[0]), tiles.getColumns() - 1);
+					int maxRow = Math.min(tiles.getRow(max[1]), tiles.getRows() - 1);
+					near = Float.POSITIVE_INFINITY;
+					axis = -1;
+					for (int r = minRow; r <= maxRow; r++) {
+						for (int c = minColumn; c <= maxColumn; c++) {
+							if (!tiles.isSolid(c, r)) {
+								continue;
+							}
+							box[0] = tiles.getTileMinX(c);
+							box[1] = tiles.getTileMinY(r);
+							box[3] = box[0] + 1;
+							box[4] = box[1] + 1;
+							float distance = slabTest(o, d, h, axes, box, hitAxis);
+							if (distance < near) {
+								near = distance;
+								axis = hitAxis[0];
+							}
+						}
+					}
+					if (near == Float.POSITIVE_INFINITY || (hits != null && isHit(hits, ent))) {
+						continue;
+					}
+				} else {
+					int slot = ent.getId();
+					for (int a = 0; a < 3; a++) {
+						box[a] = bounds.getMin(slot, a);
+						box[a + 3] = bounds.getMax(slot, a);
+					}
+					near = slabTest(o, d, h, axes, box, hitAxis);
+					if (near == Float.POSITIVE_INFINITY) {
+						continue;
 					}
+					axis = hitAxis[0];
+				}
+				
+				// only count hits that happen in this step so that they are found in order
+				if (near < start || near > maxDistance || (near >= end && !last)) {
+					continue;
+				}
+				if (hits != null) {
+					hits.add(createHit(ent, near, axis, o, d));
+				} else if (near < nearestDistance) {
+					nearest = ent;
+					nearestDistance = near;
+					nearestAxis = axis;
 				}
 			}
-			return false;
 			
-		case EQUAL_TO:
-			for (Entity ent : collisionGroups.get(group)) {
-				return isColliding(entity, ent);
+			if (hits != null) {
+				Collections.sort(hits.subList(firstHit, hits.size()), RAYCAST_HIT_ORDER);
+			} else if (nearest != null) {
+				return createHit(nearest, nearestDistance, nearestAxis, o, d);
 			}
-			return false;
-			
-		default:
-			return false;
+			start = end;
 		}
+		return null;
 	}
-
+	
+	/**
+	 * Slab test a ray against a box grown by the size of the cast box.
+	 * 
+	 * @param o Where the ray starts
+	 * @param d The direction of the ray
+	 * @param h Half the size of the cast box
+	 * @param axes The number of axes to test
+	 * @param box The box to test; the min corner followed by the max corner
+	 * @param axis Where to put the axis the box was hit on; -1 if the ray starts inside the box
+	 * @return how far along the ray the box is hit or positive infinity if the ray misses it
+	 */
+	private static float slabTest(float[] o, float[] d, float[] h, int axes, float[] box, int[] axis) {
+		float near = Float.NEGATIVE_INFINITY;
+		float far = Float.POSITIVE_INFINITY;
+		axis[0] = -1;
+		for (int a = 0; a < axes; a++) {
+			float boxMin = box[a] - h[a];
+			float boxMax = box[a + 3] + h[a];
+			if (d[a] == 0) {
+				if (o[a] < boxMin || o[a] > boxMax) {
+					return Float.POSITIVE_INFINITY;
+				}
+				continue;
+			}
+			float t1 = (boxMin - o[a]) / d[a];
+			float t2 = (boxMax - o[a]) / d[a];
+			if (t1 > t2) {
+				float t = t1;
+				t1 = t2;
+				t2 = t;
+			}
+			if (t1 > near) {
+				near = t1;
+				axis[0] = a;
+			}
+			far = Math.min(far, t2);
+		}
+		if (near > far || far < 0) {
+			return Float.POSITIVE_INFINITY;
+		}
+		if (near < 0) {
+			axis[0] = -1;	// started inside the box
+			return 0;
+		}
+		return near;
+	}
+	
+	/**
+	 * Test if the given entity has already been hit.
+	 * 
+	 * @param hits
+	 * @param entity
+	 * @return
+	 */
+	private static boolean isHit(List<RaycastHit> hits, Entity entity) {
+		for (int i = 0; i < hits.size(); i++) {
+			if (hits.get(i).getEntity() == entity) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static RaycastHit createHit(Entity entity, float distance, int axis, float[] o, float[] d) {
+		PVector point = new PVector(o[0] + d[0] * distance, o[1] + d[1] * distance, o[2] + d[2] * distance);
+		PVector normal = new PVector();
+		switch (axis) {
+		case 0: normal.x = -Math.signum(d[0]); break;
+		case 1: normal.y = -Math.signum(d[1]); break;
+		case 2: normal.z = -Math.signum(d[2]); break;
+		}
+		return new RaycastHit(entity, distance, point, normal);
+	}
+	
 	/**
 	 * Make this the active level
 	 */
@@ -509,6 +1671,14 @@ public abstract class Level implements Updatable, Drawable {
 		if(!needToCheckForCollision(entity1, entity2)) {
 			return false;
 		}
+		if(entity2 instanceof TileLayer){
+			BoundingBox bb = entity1.getBoundingBox();
+			return ((TileLayer) entity2).intersectsSolid(bb.getMinX(), bb.getMinY(), bb.getMaxX(), bb.getMaxY());
+		}
+		if(entity1 instanceof TileLayer){
+			BoundingBox bb = entity2.getBoundingBox();
+			return ((TileLayer) entity1).intersectsSolid(bb.getMinX(), bb.getMinY(), bb.getMaxX(), bb.getMaxY());
+		}
 		if(entity1.getBoundingBox().intersects(entity2.getBoundingBox())){
 			return true;
 		}
@@ -574,6 +1744,79 @@ public abstract class Level implements Updatable, Drawable {
 		return zoom;
 	}
 	
+	/**
+	 * Get the width of the cells used to speed up collision detection (in grid units).
+	 * 
+	 * @return
+	 */
+	public float getCollisionCellSize() {
+		return collisionCellSize;
+	}
+	
+	/**
+	 * Get the number of pairs of colliders that were found might collide with each other at the start of this frame.
+	 * 
+	 * @return
+	 */
+	public int getCollisionPairCount() {
+		return collisionPairs.getPairCount();
+	}
+	
+	/**
+	 * Get whether or not the pairs of colliders that might collide are worked out on more than one thread.
+	 * 
+	 * @return
+	 */
+	public boolean isParallelNarrowphase() {
+		return collisionPairs.isParallel();
+	}
+	
+	/**
+	 * Get whether or not the motion of the entities is kept in arrays owned by the level.
+	 * 
+	 * @return
+	 */
+	public boolean isPackedMotion() {
+		return motion != null;
+	}
+	
+	/**
+	 * Get whether or not the level accelerates all of its entities in one pass.
+	 * 
+	 * @return
+	 */
+	public boolean isBatchedIntegration() {
+		return batchedIntegration;
+	}
+	
+	/**
+	 * Get whether or not entities that can't affect each other are updated on more than one thread.
+	 * 
+	 * @return
+	 */
+	public boolean isParallelUpdate() {
+		return parallelUpdate;
+	}
+	
+	/**
+	 * Get the number of islands of entities that were updated on their own this frame.
+	 * This is 0 if the entities were all updated on one thread.
+	 * 
+	 * @return
+	 */
+	public int getIslandCount() {
+		return islands.getIslandCount();
+	}
+	
+	/**
+	 * Get the number of entities that are asleep and so aren't being updated.
+	 * 
+	 * @return
+	 */
+	public int getSleepingEntityCount() {
+		return sleepingEntities.size();
+	}
+	
 	/**
 	 * Get a collection of all the entities in the level.
 	 * .
@@ -600,6 +1843,20 @@ public abstract class Level implements Updatable, Drawable {
 		this.airFriction = airFriction;
 	}
 
+	/**
+	 * Set the width of the cells used to speed up collision detection (in grid units).
+	 * Cells should be about the size of the typical moving entity in the level.
+	 * 
+	 * @param collisionCellSize
+	 */
+	public void setCollisionCellSize(float collisionCellSize) {
+		if (collisionCellSize <= 0) {
+			throw new InvalidParameterException("The collision cell size must be greater than zero.");
+		}
+		this.collisionCellSize = collisionCellSize;
+		rebuildBroadphase();
+	}
+
 	/**
 	 * Set the active camera used in the level.
 	 * @param camera
@@ -645,6 +1902,94 @@ public abstract class Level implements Updatable, Drawable {
 		drawBoundingBoxes = b;
 	}
 	
+	/**
+	 * Set whether or not the pairs of colliders that might collide are worked out on more than one thread.
+	 * When this is on and there are a lot of moving colliders at the start of a frame, they are split into ranges
+	 * that query the broadphases and test their candidates across the common fork join pool.
+	 * This is only done if both broadphases can be queried by more than one thread at once (see {@link Broadphase#isConcurrentQuerySafe()}).
+	 * The pairs that are found are the same either way.
+	 * 
+	 * @param b
+	 */
+	public void setParallelNarrowphase(boolean b){
+		collisionPairs.setParallel(b);
+	}
+	
+	/**
+	 * Set whether or not the motion of the entities is kept in arrays owned by the level.
+	 * 
+	 * An entity's location, velocity, offsets and limits are normally kept in fields of its own.
+	 * When this is on, the level keeps them for all of its entities in one array per component, indexed by the entities' ids,
+	 * so that going over every entity reads memory in order. Entities are moved into the arrays when they are added to the level
+	 * and moved back into their own fields when they are removed. The entities move the same either way.
+	 * 
+	 * @param b
+	 */
+	public void setPackedMotion(boolean b){
+		if (b == (motion != null)) {
+			return;
+		}
+		if (b) {
+			motion = new MotionStore(Math.max(entitiesById.size(), 64));
+			for (Entity entity : entitiesById) {
+				if (entity != null) {
+					packMotion(entity);
+				}
+			}
+		} else {
+			for (Entity entity : entitiesById) {
+				if (entity != null) {
+					unpackMotion(entity);
+				}
+			}
+			motion = null;
+		}
+	}
+	
+	/**
+	 * Set whether or not the level accelerates all of its entities in one pass.
+	 * 
+	 * Each entity is normally updated, accelerated by gravity or slowed by friction and then moved before the next entity is updated.
+	 * When this is on, every entity's {@link Entity#update(float)} method is called first (on the level's thread),
+	 * then gravity and friction are applied to all of the entities that are going to move in one pass over their velocities,
+	 * and then the entities are moved. This works best with {@link #setPackedMotion(boolean)}, where the pass reads the velocities in order.
+	 * 
+	 * Entities that are falling or sliding on their own move exactly as they would otherwise, but an entity
+	 * will see every other entity's update before it moves, and velocity given to an entity by another entity moving this frame
+	 * (such as a push) isn't slowed by friction until the next frame.
+	 * Overriding {@link GameObject#applyAcceleration(float, float, float, float, float, PVector)} has no effect on the pass.
+	 * 
+	 * @param b
+	 */
+	public void setBatchedIntegration(boolean b){
+		batchedIntegration = b;
+	}
+	
+	/**
+	 * Set whether or not entities that can't affect each other are updated on more than one thread.
+	 * 
+	 * When this is on and there are a lot of entities, they are split into islands at the start of each frame.
+	 * Entities are in the same island if they are attached to each other, one is standing on the other
+	 * or they are close enough that they might collide this frame. The islands are then updated across the common fork join pool.
+	 * Static entities and game objects that aren't entities are updated first, on the level's thread.
+	 * 
+	 * While the islands are updating, {@link Entity#onCollidesWith(Entity)} calls and changes to collision groups are held back
+	 * until every island has finished, and adding or removing game objects is done under a lock.
+	 * An entity's {@link Entity#update(float)} method must only change the entities in its own island.
+	 * While this is on, the entities an entity might collide with are checked in order of their ids
+	 * so that the islands come out the same no matter how the threads were scheduled.
+	 * Entities that move a lot further than their velocity says they will (e.g. by setting their location)
+	 * may see entities in other islands part way through their update, and entities created while the islands are updating
+	 * are given their ids in the order the threads get to them.
+	 * 
+	 * @param b
+	 */
+	public void setParallelUpdate(boolean b){
+		parallelUpdate = b;
+		// the order the broadphases find things in depends on the order the entities moved in
+		collisionPairs.setSorted(b);
+	}
+	
 	/**
 	 * Set whether or not to draw the level grid.
 	 * 
@@ -668,6 +2013,68 @@ public abstract class Level implements Updatable, Drawable {
 		this.zoom = zoom;
 	}
 
+	/**
+	 * Take an entity that has fallen asleep out of the update list at the next safe point in the frame.
+	 * (To be called from the {@link Entity} class)
+	 * 
+	 * @param entity
+	 */
+	void sleepEntity(Entity entity) {
+		if (updatingIslands) {
+			islands.getWorker().toSleep.add(entity);
+		} else {
+			entitiesToSleep.add(entity);
+		}
+	}
+	
+	/**
+	 * Put an entity that has woken up back into the update list at the next safe point in the frame.
+	 * (To be called from the {@link Entity} class)
+	 * 
+	 * @param entity
+	 */
+	void wakeEntity(Entity entity) {
+		if (updatingIslands) {
+			islands.getWorker().toWake.add(entity);
+		} else {
+			entitiesToWake.add(entity);
+		}
+	}
+	
+	/**
+	 * Returns whether or not the given entity is out of the update list because it is asleep.
+	 * An entity that wakes up part way through a frame stays out of the update list until the frame ends.
+	 * 
+	 * @param entity
+	 * @return
+	 */
+	boolean isSleepingEntity(Entity entity) {
+		return sleepingEntities.contains(entity);
+	}
+	
+	/**
+	 * Move the entities that have fallen asleep or woken up since this was last called in or out of the update list.
+	 * An entity can fall asleep and wake up again before this is called so its current state is what counts.
+	 */
+	private void applySleepChanges() {
+		if (entitiesToSleep.size() > 0) {
+			for (Entity e : entitiesToSleep) {
+				if (e.isSleeping() && e.getLevel() == this && gameObjects.remove(e)) {
+					sleepingEntities.add(e);
+				}
+			}
+			entitiesToSleep.clear();
+		}
+		if (entitiesToWake.size() > 0) {
+			for (Entity e : entitiesToWake) {
+				if (!e.isSleeping() && sleepingEntities.remove(e)) {
+					gameObjects.add(e);
+				}
+			}
+			entitiesToWake.clear();
+		}
+	}
+
 	/**
 	 * Remove an entity from the level.
 	 * (To be called from the Entity class)
@@ -685,7 +2092,13 @@ public abstract class Level implements Updatable, Drawable {
 	 * @param object
 	 */
 	void removeGameObject(GameObject object){
-		gameObjectsToRemove.add(object);
+		if (updatingIslands) {
+			synchronized (updateLock) {
+				gameObjectsToRemove.add(object);
+			}
+		} else {
+			gameObjectsToRemove.add(object);
+		}
 		object.removeLevel();
 	}
 
@@ -699,12 +2112,104 @@ public abstract class Level implements Updatable, Drawable {
 	protected void removeGameObjects(Collection<? extends GameObject> toRemove) {
 		for (GameObject go : toRemove) {
 			if (go instanceof Entity) {
-				Entity ent = (Entity) go;
-				collisionGroups.get(ent.getCollisionGroup()).remove(ent);
+				removeCollider((Entity) go);
+				((Entity) go).wakeEntitiesOnMe();
 			}
 		}
 		gameObjects.removeAll(toRemove);
 		entities.removeAll(toRemove);
+		sleepingEntities.removeAll(toRemove);
+		for (GameObject go : toRemove) {
+			if (go instanceof Entity) {
+				freeEntityId((Entity) go);
+				if (((Entity) go).isRecycling()) {
+					poolEntity((Entity) go);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reset the given entity and put it in the pool for its class.
+	 * 
+	 * @param entity
+	 */
+	private void poolEntity(Entity entity) {
+		List<Entity> pool = entityPools.get(entity.getClass());
+		if (pool == null) {
+			pool = new ArrayList<Entity>();
+			entityPools.put(entity.getClass(), pool);
+		}
+		entity.resetForPool();
+		pool.add(entity);
+	}
+	
+	/**
+	 * Put an entity of the given class that was recycled (see {@link Entity#recycle()}) back in the level at the given location.
+	 * 
+	 * @param type The exact class of the entity
+	 * @param x The x location
+	 * @param y The y location
+	 * @return The entity or null if there aren't any entities of the class in the pool
+	 */
+	public <T extends Entity> T respawn(Class<T> type, float x, float y) {
+		return respawn(type, x, y, 0);
+	}
+	
+	/**
+	 * Put an entity of the given class that was recycled (see {@link Entity#recycle()}) back in the level at the given location.
+	 * 
+	 * The entity comes back stopped, awake and not rotated, with the size, collision settings and limits it had when it was recycled.
+	 * It is given the id of an entity that has been removed, so its bounds and motion reuse that entity's place in the level's arrays.
+	 * Games that create a lot of short lived entities (such as bullets) can use this to avoid creating new ones:
+	 * <pre>
+	 * Bullet bullet = level.respawn(Bullet.class, x, y);
+	 * if (bullet == null) {
+	 *     bullet = new Bullet(level, x, y);
+	 * }
+	 * </pre>
+	 * 
+	 * @param type The exact class of the entity
+	 * @param x The x location
+	 * @param y The y location
+	 * @param z The z location
+	 * @return The entity or null if there aren't any entities of the class in the pool
+	 */
+	public <T extends Entity> T respawn(Class<T> type, float x, float y, float z) {
+		if (updatingIslands) {
+			synchronized (updateLock) {
+				return respawnNow(type, x, y, z);
+			}
+		}
+		return respawnNow(type, x, y, z);
+	}
+	
+	private <T extends Entity> T respawnNow(Class<T> type, float x, float y, float z) {
+		List<Entity> pool = entityPools.get(type);
+		if (pool == null || pool.isEmpty()) {
+			return null;
+		}
+		Entity entity = pool.remove(pool.size() - 1);
+		entity.respawn(this, x, y, z);
+		return type.cast(entity);
+	}
+	
+	/**
+	 * Get the number of recycled entities of the given class waiting to be respawned.
+	 * 
+	 * @param type The exact class of the entities
+	 * @return
+	 */
+	public int getPooledEntityCount(Class<? extends Entity> type) {
+		List<Entity> pool = entityPools.get(type);
+		return pool == null ? 0 : pool.size();
+	}
+	
+	/**
+	 * Throw away all of the recycled entities waiting to be respawned.
+	 */
+	public void clearEntityPools() {
+		entityPools.clear();
 	}
 
 	public void removeLight(Light light){
@@ -723,27 +2228,15 @@ public abstract class Level implements Updatable, Drawable {
 	 * @return
 	 */
 	private boolean needToCheckForCollision(Entity entity1, Entity entity2) {
-		int ent1Group = entity1.getCollisionGroup();
-		int ent2Group = entity2.getCollisionGroup();
-		
-		if (ent1Group == 0 || ent2Group == 0) {
-			return false;
-		}
-		
-		if (entity1.getCollisionIgnoreEntities().contains(entity2)) {
+		// the collision groups and modes are already baked into the layers and masks
+		if ((entity1.getCollisionMask() & entity2.getCollisionLayer()) == 0) {
 			return false;
 		}
 		
-		switch (entity1.getCollisionMode()) {
-		case EQUAL_TO:
-			return ent2Group == ent1Group;
-		case LESS_THAN_OR_EQUAL_TO:
-			return ent2Group <= ent1Group;
-		case GREATER_THAN:
-			return ent2Group >  ent1Group;
-		default:
+		if (entity1.isIgnoringInCollisions(entity2)) {
 			return false;
 		}
+		return true;
 	}
 
 	/**
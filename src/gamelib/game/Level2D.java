@@ -9,6 +9,7 @@ import java.util.TreeSet;
 
 /**
  * An abstract level for 2D games.
+ * Levels built out of grid aligned tiles can use a {@link TileLayer} instead of an entity for each tile.
  * 
  * @author Rebecca Stevens
  */
@@ -17,9 +18,66 @@ public abstract class Level2D extends Level {
 	private final Map<Entity, Float> entityLayer;
 	private final SortedSet<Entity> sortedEntities;
 	
+	private CollisionBackend collisionBackend;
+	
+	/**
+	 * The structures a 2D level can use to find which moving entities might be colliding.
+	 * Static entities (see {@link Entity#isStatic()}) are always kept in a spatial hash.
+	 */
+	public enum CollisionBackend {
+		/**
+		 * A uniform grid of cells (see {@link Level#setCollisionCellSize(float)}).
+		 * Works well for most levels.
+		 */
+		SPATIAL_HASH,
+		
+		/**
+		 * Entities sorted along the x axis.
+		 * Works well for long horizontal levels where entities are spread out along the x axis.
+		 */
+		SWEEP_AND_PRUNE;
+	}
+	
 	public Level2D(){
+		this(null);
+	}
+	
+	/**
+	 * Create a 2D level that uses the given factory to create its broadphases.
+	 * The collision backend is ignored while a factory is being used.
+	 * 
+	 * @param broadphaseFactory The factory or null to use the collision backend
+	 */
+	public Level2D(BroadphaseFactory broadphaseFactory){
+		super(null, 16, DEFAULT_COLLISION_CELL_SIZE, broadphaseFactory);
 		entityLayer = new HashMap<Entity, Float>();
 		sortedEntities = new TreeSet<Entity>(new EntityLayerComparator());
+		collisionBackend = CollisionBackend.SPATIAL_HASH;
+	}
+	
+	/**
+	 * Get the structure used to find which entities might be colliding.
+	 * 
+	 * @return
+	 */
+	public CollisionBackend getCollisionBackend() {
+		return collisionBackend;
+	}
+	
+	/**
+	 * Set the structure used to find which entities might be colliding.
+	 * This has no effect if the level was created with a {@link BroadphaseFactory}.
+	 * 
+	 * @param collisionBackend
+	 */
+	public void setCollisionBackend(CollisionBackend collisionBackend) {
+		if (collisionBackend == null) {
+			throw new IllegalArgumentException("The collision backend cannot be null.");
+		}
+		if (this.collisionBackend != collisionBackend) {
+			this.collisionBackend = collisionBackend;
+			rebuildBroadphase();
+		}
 	}
 
 	/**
@@ -39,6 +97,14 @@ public abstract class Level2D extends Level {
 		super.update(delta);
 	}
 
+	@Override
+	Broadphase createBroadphase() {
+		if (collisionBackend == CollisionBackend.SWEEP_AND_PRUNE) {
+			return new SweepAndPrune();
+		}
+		return super.createBroadphase();
+	}
+
 	@Override
 	protected Collection<Entity> getEntitiesToDraw() {
 		return sortedEntities;
@@ -6,9 +6,32 @@ import gamelib.GameManager;
 public abstract class Level3D extends Level {
 
 	public Level3D(){
+		this(null);
+	}
+	
+	/**
+	 * Create a 3D level that uses the given factory to create its broadphases.
+	 * 
+	 * @param broadphaseFactory The factory or null to use the default ones
+	 */
+	public Level3D(BroadphaseFactory broadphaseFactory){
+		super(null, 16, DEFAULT_COLLISION_CELL_SIZE, broadphaseFactory);
 		if(!GameManager.getMe().getGraphics().is3D()) throw new RuntimeException("Cannot make a 3D level using 2D graphics.");
 	}
 
+	/**
+	 * 3D levels use a bounding volume hierarchy as entities tend to be spread out unevenly in all three axes.
+	 */
+	@Override
+	Broadphase createBroadphase() {
+		return new DynamicAABBTree();
+	}
+
+	@Override
+	Broadphase createStaticBroadphase() {
+		return new DynamicAABBTree();
+	}
+
 	@Override
 	public final boolean is3D() {
 		return true;
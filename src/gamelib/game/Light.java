@@ -109,6 +109,15 @@ public abstract class Light {
 		return location.copy();
 	}
 
+	/**
+	 * Get the location of this light without creating a new vector.
+	 * @param out The vector to store the location in
+	 * @return out
+	 */
+	public PVector getLocation(PVector out){
+		return out.set(location);
+	}
+
 	/**
 	 * Get the x velocity of this light.
 	 * @return the x velocity
@@ -141,6 +150,15 @@ public abstract class Light {
 		return velocity.copy();
 	}
 
+	/**
+	 * Get the velocity of this light without creating a new vector.
+	 * @param out The vector to store the velocity in
+	 * @return out
+	 */
+	public PVector getVelocity(PVector out){
+		return out.set(velocity);
+	}
+
 	/**
 	 * Get the tilt rotation of this light.
 	 * @return the tilt rotation
@@ -181,6 +199,15 @@ public abstract class Light {
 		return rotation.copy();
 	}
 
+	/**
+	 * Get the rotation of this light without creating a new vector.
+	 * @param out The vector to store the rotation in
+	 * @return out
+	 */
+	public PVector getRotation3D(PVector out){
+		return out.set(rotation);
+	}
+
 	/**
 	 * Get the x scale of this light.
 	 * @return The x scale
@@ -212,6 +239,15 @@ public abstract class Light {
 	public PVector getScale(){
 		return scale.copy();
 	}
+
+	/**
+	 * Get the scale of this light without creating a new vector.
+	 * @param out The vector to store the scale in
+	 * @return out
+	 */
+	public PVector getScale(PVector out){
+		return out.set(scale);
+	}
 	
 	/**
 	 * Set the x location of the entity.
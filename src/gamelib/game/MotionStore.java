@@ -0,0 +1,215 @@
+package gamelib.game;
+
+import java.util.Arrays;
+
+import processing.core.PVector;
+
+/**
+ * The locations, velocities, offsets and limits of game objects, kept in one array per component.
+ *
+ * A {@link GameObject} on its own keeps its motion in fields of its own; a level can keep the motion of all of its entities
+ * in one store instead (see {@link Level#setPackedMotion(boolean)}), with each entity in the slot given by its id,
+ * so that a pass over every entity reads each component from one run of memory.
+ *
+ * A limit that isn't set is NaN, and each slot has flags saying whether any of its limits are set
+ * so that the limits only need to be looked at when there are some.
+ *
+ * @author Rebecca Stevens
+ */
+final class MotionStore {
+
+	/**
+	 * Set if any of the location limits are set.
+	 */
+	static final byte LOCATION_LIMITS = 1;
+
+	/**
+	 * Set if any of the velocity limits (including the horizontal limit) are set.
+	 */
+	static final byte VELOCITY_LIMITS = 2;
+
+	/**
+	 * Set while the slot is waiting for {@link #integrate} to apply gravity and air friction to it.
+	 */
+	static final byte FALLING = 4;
+
+	/**
+	 * Set while the slot is waiting for {@link #integrate} to apply its ground friction to it.
+	 */
+	static final byte SLIDING = 8;
+
+	float[] x, y, z;
+	float[] velocityX, velocityY, velocityZ;
+	float[] xOffset, yOffset, zOffset;
+	float[] velocityXOffset, velocityYOffset, velocityZOffset;
+
+	float[] minX, minY, minZ;
+	float[] maxX, maxY, maxZ;
+	float[] minVelocityX, minVelocityY, minVelocityZ;
+	float[] maxVelocityX, maxVelocityY, maxVelocityZ;
+	float[] maxHorizontalVelocity;
+
+	byte[] flags;
+	float[] groundFriction;
+
+	/**
+	 * Create a store with the given number of slots.
+	 * Every slot starts at rest at the origin with no limits.
+	 *
+	 * @param capacity
+	 */
+	MotionStore(int capacity) {
+		this.x = new float[capacity];
+		this.y = new float[capacity];
+		this.z = new float[capacity];
+		this.velocityX = new float[capacity];
+		this.velocityY = new float[capacity];
+		this.velocityZ = new float[capacity];
+		this.xOffset = new float[capacity];
+		this.yOffset = new float[capacity];
+		this.zOffset = new float[capacity];
+		this.velocityXOffset = new float[capacity];
+		this.velocityYOffset = new float[capacity];
+		this.velocityZOffset = new float[capacity];
+
+		this.minX = noLimits(capacity);
+		this.minY = noLimits(capacity);
+		this.minZ = noLimits(capacity);
+		this.maxX = noLimits(capacity);
+		this.maxY = noLimits(capacity);
+		this.maxZ = noLimits(capacity);
+		this.minVelocityX = noLimits(capacity);
+		this.minVelocityY = noLimits(capacity);
+		this.minVelocityZ = noLimits(capacity);
+		this.maxVelocityX = noLimits(capacity);
+		this.maxVelocityY = noLimits(capacity);
+		this.maxVelocityZ = noLimits(capacity);
+		this.maxHorizontalVelocity = noLimits(capacity);
+
+		this.flags = new byte[capacity];
+		this.groundFriction = new float[capacity];
+	}
+
+	private static float[] noLimits(int capacity) {
+		float[] limits = new float[capacity];
+		Arrays.fill(limits, Float.NaN);
+		return limits;
+	}
+
+	/**
+	 * Get the number of slots in this store.
+	 *
+	 * @return
+	 */
+	int capacity() {
+		return x.length;
+	}
+
+	/**
+	 * Make sure the given slot is in this store.
+	 * The arrays may be replaced, so they must not be held onto across a call to this.
+	 *
+	 * @param slot
+	 */
+	void ensureCapacity(int slot) {
+		int capacity = x.length;
+		if (slot < capacity) {
+			return;
+		}
+		int newCapacity = Math.max(capacity * 2, slot + 1);
+
+		x = Arrays.copyOf(x, newCapacity);
+		y = Arrays.copyOf(y, newCapacity);
+		z = Arrays.copyOf(z, newCapacity);
+		velocityX = Arrays.copyOf(velocityX, newCapacity);
+		velocityY = Arrays.copyOf(velocityY, newCapacity);
+		velocityZ = Arrays.copyOf(velocityZ, newCapacity);
+		xOffset = Arrays.copyOf(xOffset, newCapacity);
+		yOffset = Arrays.copyOf(yOffset, newCapacity);
+		zOffset = Arrays.copyOf(zOffset, newCapacity);
+		velocityXOffset = Arrays.copyOf(velocityXOffset, newCapacity);
+		velocityYOffset = Arrays.copyOf(velocityYOffset, newCapacity);
+		velocityZOffset = Arrays.copyOf(velocityZOffset, newCapacity);
+
+		minX = growLimits(minX, newCapacity);
+		minY = growLimits(minY, newCapacity);
+		minZ = growLimits(minZ, newCapacity);
+		maxX = growLimits(maxX, newCapacity);
+		maxY = growLimits(maxY, newCapacity);
+		maxZ = growLimits(maxZ, newCapacity);
+		minVelocityX = growLimits(minVelocityX, newCapacity);
+		minVelocityY = growLimits(minVelocityY, newCapacity);
+		minVelocityZ = growLimits(minVelocityZ, newCapacity);
+		maxVelocityX = growLimits(maxVelocityX, newCapacity);
+		maxVelocityY = growLimits(maxVelocityY, newCapacity);
+		maxVelocityZ = growLimits(maxVelocityZ, newCapacity);
+		maxHorizontalVelocity = growLimits(maxHorizontalVelocity, newCapacity);
+
+		flags = Arrays.copyOf(flags, newCapacity);
+		groundFriction = Arrays.copyOf(groundFriction, newCapacity);
+	}
+
+	private static float[] growLimits(float[] limits, int newCapacity) {
+		int capacity = limits.length;
+		limits = Arrays.copyOf(limits, newCapacity);
+		Arrays.fill(limits, capacity, newCapacity, Float.NaN);
+		return limits;
+	}
+
+	/**
+	 * Accelerate every slot in the given range that is {@link #FALLING} by gravity with air friction
+	 * and every slot that is {@link #SLIDING} with its ground friction, and clear those flags.
+	 *
+	 * This does the same sums as {@link GameObject#accelerate(PVector, float, float, float, float, float, PVector)}
+	 * (without working out the distance), but the friction decay is only worked out again when the friction changes,
+	 * so a run of entities falling through the air or sliding on the same kind of ground shares one call to Math.exp.
+	 *
+	 * @param from The first slot
+	 * @param to The slot after the last slot
+	 * @param gravityX
+	 * @param gravityY
+	 * @param gravityZ
+	 * @param airFriction
+	 * @param time The amount of time to accelerate for
+	 */
+	void integrate(int from, int to, float gravityX, float gravityY, float gravityZ, float airFriction, float time) {
+		float[] vxs = velocityX, vys = velocityY, vzs = velocityZ;
+		byte[] flags = this.flags;
+		float lastFriction = Float.NaN;
+		float remaining = Float.NaN;	// the part of the velocity left after the friction
+
+		for (int i = from; i < to; i++) {
+			int f = flags[i];
+			float ax, ay, az, friction;
+			if ((f & FALLING) != 0) {
+				ax = gravityX;
+				ay = gravityY;
+				az = gravityZ;
+				friction = airFriction;
+			} else if ((f & SLIDING) != 0) {
+				ax = ay = az = 0;
+				friction = groundFriction[i];
+			} else {
+				continue;
+			}
+			flags[i] = (byte) (f & ~(FALLING | SLIDING));
+
+			float vx = vxs[i], vy = vys[i], vz = vzs[i];
+			if (friction == 0) {
+				vxs[i] = vx + ax * time;
+				vys[i] = vy + ay * time;
+				vzs[i] = vz + az * time;
+			} else {
+				if (friction != lastFriction) {
+					lastFriction = friction;
+					remaining = (float) Math.exp(-friction * time);
+				}
+				// the terminal velocity
+				float tx = ax / friction, ty = ay / friction, tz = az / friction;
+				vxs[i] = tx + (vx - tx) * remaining;
+				vys[i] = ty + (vy - ty) * remaining;
+				vzs[i] = tz + (vz - tz) * remaining;
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package gamelib.game;
+
+import processing.core.PVector;
+
+/**
+ * Where a ray (or a moving box) hit an entity.
+ * See {@link Level#raycast(PVector, PVector, float, long)} and {@link Level#boxCast(Entity, PVector, float)}.
+ *
+ * @author Rebecca Stevens
+ */
+public final class RaycastHit {
+
+	private final Entity entity;
+	private final float distance;
+	private final PVector point;
+	private final PVector normal;
+
+	RaycastHit(Entity entity, float distance, PVector point, PVector normal) {
+		this.entity = entity;
+		this.distance = distance;
+		this.point = point;
+		this.normal = normal;
+	}
+
+	/**
+	 * Get the entity that was hit.
+	 *
+	 * @return
+	 */
+	public Entity getEntity() {
+		return entity;
+	}
+
+	/**
+	 * Get how far along the ray the hit happened (in grid units).
+	 *
+	 * @return
+	 */
+	public float getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Get the point on the ray where the hit happened.
+	 * For a box cast this is where the center of the box is when it hits.
+	 *
+	 * @return
+	 */
+	public PVector getPoint() {
+		return point.copy();
+	}
+
+	/**
+	 * Get the normal of the surface that was hit.
+	 * This is a zero vector if the ray started inside the entity.
+	 *
+	 * @return
+	 */
+	public PVector getNormal() {
+		return normal.copy();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getName() + " " + entity + " at " + distance;
+	}
+}
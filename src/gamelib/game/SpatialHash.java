@@ -0,0 +1,354 @@
+package gamelib.game;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A broadphase that buckets entities into a uniform grid of cells.
+ * Each entity is put in every cell its bounding box overlaps,
+ * so a query only has to look at the entities in the cells the query box overlaps.
+ *
+ * Cells are stored in an open addressing hash table keyed on the packed cell coordinates,
+ * so the grid does not need to know the size of the level up front.
+ * Cells that become empty are kept around so they can be reused without allocating.
+ *
+ * @author Rebecca Stevens
+ */
+public class SpatialHash extends Broadphase {
+
+	private static final int COORD_BITS = 21;
+	private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+
+	private final float inverseCellSize;
+	private final boolean is3D;
+
+	private final Map<Entity, Proxy> proxies;
+
+	private long[] keys;
+	private Cell[] cells;
+	private int cellCount;
+
+	private int queryStamp;
+	private int nextProxyId;
+
+	/**
+	 * Create a spatial hash.
+	 *
+	 * @param cellSize The width (and height and depth) of each cell in grid units
+	 * @param is3D Whether or not the z axis should be hashed
+	 */
+	public SpatialHash(float cellSize, boolean is3D) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("The cell size of a spatial hash must be greater than zero.");
+		}
+		this.inverseCellSize = 1 / cellSize;
+		this.is3D = is3D;
+		this.proxies = new LinkedHashMap<Entity, Proxy>();
+		this.keys = new long[64];
+		this.cells = new Cell[64];
+	}
+
+	@Override
+	public void insert(Entity entity) {
+		if (proxies.containsKey(entity)) {
+			update(entity);
+			return;
+		}
+		Proxy proxy = new Proxy(entity, nextProxyId++);
+		proxies.put(entity, proxy);
+		setCells(proxy);
+		addToCells(proxy);
+	}
+
+	@Override
+	public void remove(Entity entity) {
+		Proxy proxy = proxies.remove(entity);
+		if (proxy != null) {
+			removeFromCells(proxy);
+		}
+	}
+
+	@Override
+	public void update(Entity entity) {
+		Proxy proxy = proxies.get(entity);
+		if (proxy == null) {
+			return;
+		}
+
+		int slot = entity.getId();
+		int minCX = cell(bounds.getMinX(slot));
+		int minCY = cell(bounds.getMinY(slot));
+		int minCZ = is3D ? cell(bounds.getMinZ(slot)) : 0;
+		int maxCX = cell(bounds.getMaxX(slot));
+		int maxCY = cell(bounds.getMaxY(slot));
+		int maxCZ = is3D ? cell(bounds.getMaxZ(slot)) : 0;
+
+		// most of the time an entity stays in the same cells so there is nothing to do
+		if (minCX == proxy.minCX && minCY == proxy.minCY && minCZ == proxy.minCZ
+		&&  maxCX == proxy.maxCX && maxCY == proxy.maxCY && maxCZ == proxy.maxCZ) {
+			return;
+		}
+
+		removeFromCells(proxy);
+		proxy.minCX = minCX; proxy.minCY = minCY; proxy.minCZ = minCZ;
+		proxy.maxCX = maxCX; proxy.maxCY = maxCY; proxy.maxCZ = maxCZ;
+		addToCells(proxy);
+	}
+
+	@Override
+	public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		int minCX = cell(minX);
+		int minCY = cell(minY);
+		int minCZ = is3D ? cell(minZ) : 0;
+		int maxCX = cell(maxX);
+		int maxCY = cell(maxY);
+		int maxCZ = is3D ? cell(maxZ) : 0;
+
+		// if the query covers more cells than there are entities, just test every entity
+		long cellsCovered = (long) (maxCX - minCX + 1) * (maxCY - minCY + 1) * (maxCZ - minCZ + 1);
+		if (cellsCovered > proxies.size()) {
+			for (Proxy proxy : proxies.values()) {
+				if (overlaps(proxy.entity, minX, minY, minZ, maxX, maxY, maxZ)) {
+					result.add(proxy.entity);
+				}
+			}
+			return;
+		}
+
+		for (int cx = minCX; cx <= maxCX; cx++) {
+			for (int cy = minCY; cy <= maxCY; cy++) {
+				for (int cz = minCZ; cz <= maxCZ; cz++) {
+					Cell cell = getCell(cx, cy, cz, false);
+					if (cell == null) {
+						continue;
+					}
+					for (int i = 0; i < cell.size; i++) {
+						Proxy proxy = cell.proxies[i];
+						// only report each entity from the first of its cells the query reaches,
+						// so that nothing is written and more than one thread can query at once
+						if (cx != Math.max(minCX, proxy.minCX) || cy != Math.max(minCY, proxy.minCY) || cz != Math.max(minCZ, proxy.minCZ)) {
+							continue;
+						}
+						if (overlaps(proxy.entity, minX, minY, minZ, maxX, maxY, maxZ)) {
+							result.add(proxy.entity);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void findPairs(List<Entity> pairs) {
+		for (Proxy proxy : proxies.values()) {
+			int slot = proxy.entity.getId();
+			float minX = bounds.getMinX(slot), minY = bounds.getMinY(slot), minZ = bounds.getMinZ(slot);
+			float maxX = bounds.getMaxX(slot), maxY = bounds.getMaxY(slot), maxZ = bounds.getMaxZ(slot);
+			
+			int stamp = ++queryStamp;
+			for (int cx = proxy.minCX; cx <= proxy.maxCX; cx++) {
+				for (int cy = proxy.minCY; cy <= proxy.maxCY; cy++) {
+					for (int cz = proxy.minCZ; cz <= proxy.maxCZ; cz++) {
+						Cell cell = getCell(cx, cy, cz, false);
+						for (int i = 0; i < cell.size; i++) {
+							Proxy other = cell.proxies[i];
+							// only report each pair from the proxy that was inserted first
+							if (other.id <= proxy.id || other.stamp == stamp) {
+								continue;
+							}
+							other.stamp = stamp;
+							if (overlaps(other.entity, minX, minY, minZ, maxX, maxY, maxZ)) {
+								pairs.add(proxy.entity);
+								pairs.add(other.entity);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isConcurrentQuerySafe() {
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		proxies.clear();
+		for (int i = 0; i < cells.length; i++) {
+			if (cells[i] != null) {
+				cells[i].clear();
+			}
+		}
+	}
+
+	/**
+	 * Get the cell coordinate that the given value is in.
+	 *
+	 * @param value
+	 * @return
+	 */
+	private int cell(float value) {
+		return (int) Math.floor(value * inverseCellSize);
+	}
+
+	/**
+	 * Work out which cells the given proxy's entity is in.
+	 *
+	 * @param proxy
+	 */
+	private void setCells(Proxy proxy) {
+		int slot = proxy.entity.getId();
+		proxy.minCX = cell(bounds.getMinX(slot));
+		proxy.minCY = cell(bounds.getMinY(slot));
+		proxy.minCZ = is3D ? cell(bounds.getMinZ(slot)) : 0;
+		proxy.maxCX = cell(bounds.getMaxX(slot));
+		proxy.maxCY = cell(bounds.getMaxY(slot));
+		proxy.maxCZ = is3D ? cell(bounds.getMaxZ(slot)) : 0;
+	}
+
+	/**
+	 * Add the proxy to all the cells it is in.
+	 *
+	 * @param proxy
+	 */
+	private void addToCells(Proxy proxy) {
+		for (int cx = proxy.minCX; cx <= proxy.maxCX; cx++) {
+			for (int cy = proxy.minCY; cy <= proxy.maxCY; cy++) {
+				for (int cz = proxy.minCZ; cz <= proxy.maxCZ; cz++) {
+					getCell(cx, cy, cz, true).add(proxy);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove the proxy from all the cells it is in.
+	 *
+	 * @param proxy
+	 */
+	private void removeFromCells(Proxy proxy) {
+		for (int cx = proxy.minCX; cx <= proxy.maxCX; cx++) {
+			for (int cy = proxy.minCY; cy <= proxy.maxCY; cy++) {
+				for (int cz = proxy.minCZ; cz <= proxy.maxCZ; cz++) {
+					Cell cell = getCell(cx, cy, cz, false);
+					if (cell != null) {
+						cell.remove(proxy);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the cell at the given cell coordinates.
+	 *
+	 * @param cx
+	 * @param cy
+	 * @param cz
+	 * @param create Whether or not to create the cell if it doesn't exist
+	 * @return the cell or null if it doesn't exist and create is false
+	 */
+	private Cell getCell(int cx, int cy, int cz, boolean create) {
+		long key = ((cx & COORD_MASK) << (2 * COORD_BITS)) | ((cy & COORD_MASK) << COORD_BITS) | (cz & COORD_MASK);
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (cells[i] != null) {
+			if (keys[i] == key) {
+				return cells[i];
+			}
+			i = (i + 1) & mask;
+		}
+		if (!create) {
+			return null;
+		}
+
+		Cell cell = new Cell();
+		keys[i] = key;
+		cells[i] = cell;
+		cellCount++;
+		if (cellCount * 2 > keys.length) {
+			growTable();
+		}
+		return cell;
+	}
+
+	/**
+	 * Double the size of the cell table.
+	 */
+	private void growTable() {
+		long[] oldKeys = keys;
+		Cell[] oldCells = cells;
+		keys = new long[oldKeys.length * 2];
+		cells = new Cell[oldCells.length * 2];
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldCells.length; j++) {
+			if (oldCells[j] == null) {
+				continue;
+			}
+			int i = hash(oldKeys[j]) & mask;
+			while (cells[i] != null) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = oldKeys[j];
+			cells[i] = oldCells[j];
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * An entity's entry in the hash.
+	 */
+	private static final class Proxy {
+		private final Entity entity;
+		private final int id;
+		private int minCX, minCY, minCZ;
+		private int maxCX, maxCY, maxCZ;
+		private int stamp;
+
+		private Proxy(Entity entity, int id) {
+			this.entity = entity;
+			this.id = id;
+		}
+	}
+
+	/**
+	 * The entities in a single cell.
+	 */
+	private static final class Cell {
+		private Proxy[] proxies = new Proxy[4];
+		private int size;
+
+		private void add(Proxy proxy) {
+			if (size == proxies.length) {
+				Proxy[] bigger = new Proxy[size * 2];
+				System.arraycopy(proxies, 0, bigger, 0, size);
+				proxies = bigger;
+			}
+			proxies[size++] = proxy;
+		}
+
+		private void remove(Proxy proxy) {
+			for (int i = 0; i < size; i++) {
+				if (proxies[i] == proxy) {
+					proxies[i] = proxies[--size];
+					proxies[size] = null;
+					return;
+				}
+			}
+		}
+
+		private void clear() {
+			for (int i = 0; i < size; i++) {
+				proxies[i] = null;
+			}
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package gamelib.game;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A broadphase that keeps the entities sorted by where their bounding boxes start on the x axis.
+ *
+ * Entities don't move far along the x axis from one frame to the next, so the order barely changes
+ * and an insertion sort step keeps it sorted in close to constant time per moved entity.
+ * This suits long horizontal levels where the entities are spread out along the x axis.
+ *
+ * A query binary searches for the first entity that could reach the query box,
+ * so very wide entities (such as long platforms) make every query look at more entities.
+ *
+ * @author Rebecca Stevens
+ */
+public class SweepAndPrune extends Broadphase {
+
+	private final Map<Entity, Proxy> proxies;
+
+	// the sorted endpoint arrays; index i of each array is for the same entity
+	private Proxy[] sorted;
+	private float[] minX;
+	private float[] maxX;
+	private int size;
+
+	/**
+	 * The widest entity on the x axis.
+	 */
+	private float maxWidth;
+	private volatile boolean maxWidthDirty;	// the width is found again by the first query that needs it, on whichever thread that is
+
+	/**
+	 * Create a sweep and prune broadphase.
+	 */
+	public SweepAndPrune() {
+		this.proxies = new HashMap<Entity, Proxy>();
+		this.sorted = new Proxy[64];
+		this.minX = new float[64];
+		this.maxX = new float[64];
+	}
+
+	@Override
+	public void insert(Entity entity) {
+		if (proxies.containsKey(entity)) {
+			update(entity);
+			return;
+		}
+		if (size == sorted.length) {
+			grow();
+		}
+
+		int slot = entity.getId();
+		Proxy proxy = new Proxy(entity);
+		proxies.put(entity, proxy);
+
+		int i = size++;
+		sorted[i] = proxy;
+		minX[i] = bounds.getMinX(slot);
+		maxX[i] = bounds.getMaxX(slot);
+		proxy.index = i;
+		maxWidth = Math.max(maxWidth, maxX[i] - minX[i]);
+		siftDown(i);
+	}
+
+	@Override
+	public void remove(Entity entity) {
+		Proxy proxy = proxies.remove(entity);
+		if (proxy == null) {
+			return;
+		}
+
+		int i = proxy.index;
+		if (maxX[i] - minX[i] >= maxWidth) {
+			maxWidthDirty = true;
+		}
+		int moved = size - i - 1;
+		System.arraycopy(sorted, i + 1, sorted, i, moved);
+		System.arraycopy(minX, i + 1, minX, i, moved);
+		System.arraycopy(maxX, i + 1, maxX, i, moved);
+		sorted[--size] = null;
+		for (int j = i; j < size; j++) {
+			sorted[j].index = j;
+		}
+	}
+
+	@Override
+	public void update(Entity entity) {
+		Proxy proxy = proxies.get(entity);
+		if (proxy == null) {
+			return;
+		}
+
+		int slot = entity.getId();
+		int i = proxy.index;
+		float oldWidth = maxX[i] - minX[i];
+		minX[i] = bounds.getMinX(slot);
+		maxX[i] = bounds.getMaxX(slot);
+		float width = maxX[i] - minX[i];
+		// the widest entity only needs to be found again if it got narrower
+		if (width < oldWidth && oldWidth >= maxWidth) {
+			maxWidthDirty = true;
+		}
+		maxWidth = Math.max(maxWidth, width);
+
+		if (i > 0 && minX[i - 1] > minX[i]) {
+			siftDown(i);
+		} else if (i < size - 1 && minX[i + 1] < minX[i]) {
+			siftUp(i);
+		}
+	}
+
+	@Override
+	public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+		if (maxWidthDirty) {
+			synchronized (this) {
+				if (maxWidthDirty) {
+					updateMaxWidth();
+				}
+			}
+		}
+
+		// nothing that starts before this can reach the query box
+		for (int i = firstIndexFrom(minX - maxWidth); i < size && this.minX[i] <= maxX; i++) {
+			if (this.maxX[i] >= minX && overlaps(sorted[i].entity, minX, minY, minZ, maxX, maxY, maxZ)) {
+				result.add(sorted[i].entity);
+			}
+		}
+	}
+
+	@Override
+	public void findPairs(List<Entity> pairs) {
+		for (int i = 0; i < size; i++) {
+			Entity entity = sorted[i].entity;
+			int slot = entity.getId();
+			float minY = bounds.getMinY(slot), minZ = bounds.getMinZ(slot);
+			float maxY = bounds.getMaxY(slot), maxZ = bounds.getMaxZ(slot);
+
+			// the sweep; everything that starts before this entity ends overlaps it on the x axis
+			for (int j = i + 1; j < size && minX[j] <= maxX[i]; j++) {
+				if (overlaps(sorted[j].entity, minX[i], minY, minZ, maxX[i], maxY, maxZ)) {
+					pairs.add(entity);
+					pairs.add(sorted[j].entity);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isConcurrentQuerySafe() {
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		proxies.clear();
+		for (int i = 0; i < size; i++) {
+			sorted[i] = null;
+		}
+		size = 0;
+		maxWidth = 0;
+		maxWidthDirty = false;
+	}
+
+	/**
+	 * Get the index of the first entity whose box starts at or after the given x value.
+	 *
+	 * @param x
+	 * @return
+	 */
+	private int firstIndexFrom(float x) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (minX[mid] < x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Move the entry at the given index towards the start of the arrays until it is in order.
+	 *
+	 * @param i
+	 */
+	private void siftDown(int i) {
+		while (i > 0 && minX[i - 1] > minX[i]) {
+			swap(i - 1, i);
+			i--;
+		}
+	}
+
+	/**
+	 * Move the entry at the given index towards the end of the arrays until it is in order.
+	 *
+	 * @param i
+	 */
+	private void siftUp(int i) {
+		while (i < size - 1 && minX[i + 1] < minX[i]) {
+			swap(i, i + 1);
+			i++;
+		}
+	}
+
+	private void swap(int i, int j) {
+		Proxy p = sorted[i];
+		sorted[i] = sorted[j];
+		sorted[j] = p;
+		sorted[i].index = i;
+		sorted[j].index = j;
+
+		float f = minX[i];
+		minX[i] = minX[j];
+		minX[j] = f;
+
+		f = maxX[i];
+		maxX[i] = maxX[j];
+		maxX[j] = f;
+	}
+
+	/**
+	 * Recalculate the width of the widest entity.
+	 */
+	private void updateMaxWidth() {
+		maxWidth = 0;
+		for (int i = 0; i < size; i++) {
+			maxWidth = Math.max(maxWidth, maxX[i] - minX[i]);
+		}
+		maxWidthDirty = false;
+	}
+
+	/**
+	 * Double the size of the arrays.
+	 */
+	private void grow() {
+		Proxy[] newSorted = new Proxy[sorted.length * 2];
+		float[] newMinX = new float[minX.length * 2];
+		float[] newMaxX = new float[maxX.length * 2];
+		System.arraycopy(sorted, 0, newSorted, 0, size);
+		System.arraycopy(minX, 0, newMinX, 0, size);
+		System.arraycopy(maxX, 0, newMaxX, 0, size);
+		sorted = newSorted;
+		minX = newMinX;
+		maxX = newMaxX;
+	}
+
+	/**
+	 * An entity's entry in the sorted arrays.
+	 */
+	private static final class Proxy {
+		private final Entity entity;
+		private int index;
+
+		private Proxy(Entity entity) {
+			this.entity = entity;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package gamelib.game;
+
+/**
+ * The result of sweeping an entity's bounding box through the level (see {@link Level#sweep(Entity, float, float, float)}).
+ *
+ * @author Rebecca Stevens
+ */
+final class SweepResult {
+
+	/**
+	 * The first entity that was hit or null if nothing was hit.
+	 */
+	Entity hit;
+
+	/**
+	 * How far through the move the first hit happened (between 0 and 1).
+	 * This is 1 if nothing was hit.
+	 */
+	float time;
+
+	/**
+	 * The normal of the surface of the first entity hit.
+	 */
+	float normalX, normalY, normalZ;
+
+	/**
+	 * How far the entity can move after sliding along everything it hit.
+	 */
+	float dx, dy, dz;
+
+	/**
+	 * Whether or not the entity was stopped on each axis.
+	 */
+	boolean blockedX, blockedY, blockedZ;
+
+	/**
+	 * Where the axis of each hit tested during the sweep is put.
+	 */
+	final int[] hitAxis;
+
+	SweepResult() {
+		this.hitAxis = new int[1];
+	}
+
+	/**
+	 * Reset this result to an unobstructed move.
+	 *
+	 * @param dx
+	 * @param dy
+	 * @param dz
+	 */
+	void reset(float dx, float dy, float dz) {
+		this.hit = null;
+		this.time = 1;
+		this.normalX = 0;
+		this.normalY = 0;
+		this.normalZ = 0;
+		this.dx = dx;
+		this.dy = dy;
+		this.dz = dz;
+		this.blockedX = false;
+		this.blockedY = false;
+		this.blockedZ = false;
+	}
+}
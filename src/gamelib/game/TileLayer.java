@@ -0,0 +1,328 @@
+package gamelib.game;
+
+import gamelib.game.entities.Platform;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+import processing.core.PStyle;
+
+/**
+ * A grid of solid and empty tiles that entities collide with and stand on.
+ * Each tile is one grid unit square and the layer's corner is on a grid line, so the tiles line up with the level's grid.
+ *
+ * The whole layer is one static entity; the tiles are stored as one bit each,
+ * so a level can be built out of thousands of tiles without an entity for each of them.
+ * Testing a box against the layer only looks at the tiles the box covers.
+ * Anything that collides with a tile or stands on one collides with or stands on the layer.
+ *
+ * @author Rebecca Stevens
+ */
+public class TileLayer extends Entity {
+
+	private final int originX;
+	private final int originY;
+	private final int columns;
+	private final int rows;
+	private final long[] tiles;	// one bit per tile, row by row from the bottom
+
+	private float groundFriction;
+	private PStyle style;
+
+	/**
+	 * Create a tile layer with no solid tiles.
+	 *
+	 * @param level The level the layer will exist in
+	 * @param x The x location of the layer's left edge
+	 * @param y The y location of the layer's bottom edge
+	 * @param columns The number of tiles across
+	 * @param rows The number of tiles up
+	 */
+	public TileLayer(Level2D level, int x, int y, int columns, int rows) {
+		this(level, x, y, columns, rows, createDefaultStyle());
+	}
+
+	/**
+	 * Create a tile layer with no solid tiles.
+	 *
+	 * @param level The level the layer will exist in
+	 * @param x The x location of the layer's left edge
+	 * @param y The y location of the layer's bottom edge
+	 * @param columns The number of tiles across
+	 * @param rows The number of tiles up
+	 * @param style The style to draw the solid tiles with
+	 */
+	public TileLayer(Level2D level, int x, int y, int columns, int rows, PStyle style) {
+		super(level, x, y, checkSize(columns), checkSize(rows), PConstants.CORNER);
+		this.originX = x;
+		this.originY = y;
+		this.columns = columns;
+		this.rows = rows;
+		this.tiles = new long[(int) (((long) columns * rows + 63) >>> 6)];
+		this.style = style;
+		setCollisionGroup(Platform.getDefaultCollisionGroup());
+		setGroundFriction(10);
+	}
+
+	private static int checkSize(int tiles) {
+		if (tiles <= 0) {
+			throw new IllegalArgumentException("A tile layer must be at least one tile across and one tile up.");
+		}
+		return tiles;
+	}
+
+	private static PStyle createDefaultStyle() {
+		PStyle style = new PStyle();
+		style.fillColor = 0xFFFFFFFF;
+		style.fill = true;
+		return style;
+	}
+
+	/**
+	 * Get the number of tiles across.
+	 *
+	 * @return
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Get the number of tiles up.
+	 *
+	 * @return
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Get the column the given x location is in.
+	 * The result may be outside of the layer.
+	 *
+	 * @param x
+	 * @return
+	 */
+	public int getColumn(float x) {
+		return (int) Math.floor(x - originX);
+	}
+
+	/**
+	 * Get the row the given y location is in.
+	 * The result may be outside of the layer.
+	 *
+	 * @param y
+	 * @return
+	 */
+	public int getRow(float y) {
+		return (int) Math.floor(y - originY);
+	}
+
+	/**
+	 * Test if the given tile is solid.
+	 * Tiles outside of the layer are never solid.
+	 *
+	 * @param column
+	 * @param row
+	 * @return
+	 */
+	public boolean isSolid(int column, int row) {
+		if (column < 0 || row < 0 || column >= columns || row >= rows) {
+			return false;
+		}
+		int i = row * columns + column;
+		return (tiles[i >>> 6] & (1L << i)) != 0;
+	}
+
+	/**
+	 * Test if the tile the given location is in is solid.
+	 * Locations on the bottom and left edges of a tile are in it; locations on the top and right edges are not.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isSolidAt(float x, float y) {
+		return isSolid(getColumn(x), getRow(y));
+	}
+
+	/**
+	 * Make the given tile solid or empty.
+	 * Anything standing on the layer is woken up when a tile is emptied.
+	 *
+	 * @param column
+	 * @param row
+	 * @param solid
+	 */
+	public void setSolid(int column, int row, boolean solid) {
+		setSolid(column, row, 1, 1, solid);
+	}
+
+	/**
+	 * Make every tile in the given block solid or empty.
+	 * Anything standing on the layer is woken up when a tile is emptied.
+	 *
+	 * @param column The left column of the block
+	 * @param row The bottom row of the block
+	 * @param width The number of columns in the block
+	 * @param height The number of rows in the block
+	 * @param solid
+	 */
+	public void setSolid(int column, int row, int width, int height, boolean solid) {
+		if (column < 0 || row < 0 || width < 0 || height < 0 || column + width > columns || row + height > rows) {
+			throw new IllegalArgumentException("The tiles must be inside the tile layer.");
+		}
+		boolean emptied = false;
+		for (int r = row; r < row + height; r++) {
+			for (int c = column; c < column + width; c++) {
+				int i = r * columns + c;
+				if (solid) {
+					tiles[i >>> 6] |= 1L << i;
+				} else {
+					emptied |= (tiles[i >>> 6] & (1L << i)) != 0;
+					tiles[i >>> 6] &= ~(1L << i);
+				}
+			}
+		}
+		if (emptied) {
+			wakeEntitiesOnMe();
+		}
+	}
+
+	/**
+	 * Test if any solid tile overlaps the given box.
+	 * Boxes that only touch a tile do not overlap it.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @return
+	 */
+	boolean intersectsSolid(float minX, float minY, float maxX, float maxY) {
+		if (maxX <= minX || maxY <= minY) {
+			return false;
+		}
+		return anySolid(getColumn(minX), getRow(minY), (int) Math.ceil(maxX - originX) - 1, (int) Math.ceil(maxY - originY) - 1);
+	}
+
+	/**
+	 * Test if any solid tile overlaps or touches the given box.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @return
+	 */
+	boolean touchesSolid(float minX, float minY, float maxX, float maxY) {
+		return anySolid((int) Math.ceil(minX - originX) - 1, (int) Math.ceil(minY - originY) - 1, getColumn(maxX), getRow(maxY));
+	}
+
+	/**
+	 * Test if any solid tile is within the given distance of the given location.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @return
+	 */
+	boolean isSolidWithin(float x, float y, float radius) {
+		int minColumn = Math.max((int) Math.ceil(x - radius - originX) - 1, 0);
+		int minRow = Math.max((int) Math.ceil(y - radius - originY) - 1, 0);
+		int maxColumn = Math.min(getColumn(x + radius), columns - 1);
+		int maxRow = Math.min(getRow(y + radius), rows - 1);
+		float radiusSq = radius * radius;
+		for (int r = minRow; r <= maxRow; r++) {
+			for (int c = minColumn; c <= maxColumn; c++) {
+				if (!isSolid(c, r)) {
+					continue;
+				}
+				// the distance from the location to the closest point in the tile
+				float dx = Math.max(Math.max(originX + c - x, x - (originX + c + 1)), 0);
+				float dy = Math.max(Math.max(originY + r - y, y - (originY + r + 1)), 0);
+				if (dx * dx + dy * dy <= radiusSq) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean anySolid(int minColumn, int minRow, int maxColumn, int maxRow) {
+		minColumn = Math.max(minColumn, 0);
+		minRow = Math.max(minRow, 0);
+		maxColumn = Math.min(maxColumn, columns - 1);
+		maxRow = Math.min(maxRow, rows - 1);
+		for (int r = minRow; r <= maxRow; r++) {
+			for (int c = minColumn; c <= maxColumn; c++) {
+				int i = r * columns + c;
+				if ((tiles[i >>> 6] & (1L << i)) != 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the x location of the given column's left edge.
+	 *
+	 * @param column
+	 * @return
+	 */
+	float getTileMinX(int column) {
+		return originX + column;
+	}
+
+	/**
+	 * Get the y location of the given row's bottom edge.
+	 *
+	 * @param row
+	 * @return
+	 */
+	float getTileMinY(int row) {
+		return originY + row;
+	}
+
+	/**
+	 * Tile layers don't move.
+	 */
+	@Override
+	public final boolean isStatic() {
+		return true;
+	}
+
+	@Override
+	public float getGroundFriction() {
+		return groundFriction;
+	}
+
+	public void setGroundFriction(float groundFriction) {
+		this.groundFriction = groundFriction;
+	}
+
+	@Override
+	public void update(float delta) {
+
+	}
+
+	@Override
+	public void draw(PGraphics g) {
+		float tileWidth = getWidthInPixels() / columns;
+		float tileHeight = getHeightInPixels() / rows;
+		g.style(style);
+		g.rectMode = PConstants.CENTER;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				if (isSolid(c, r)) {
+					// y goes down the screen
+					g.rect((c + 0.5F - columns / 2F) * tileWidth, (rows / 2F - r - 0.5F) * tileHeight, tileWidth, tileHeight);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void onCollidesWith(Entity entityCollidedWith) {
+
+	}
+}
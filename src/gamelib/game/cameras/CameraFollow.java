@@ -3,10 +3,12 @@ package gamelib.game.cameras;
 import gamelib.game.Camera;
 import gamelib.game.Entity;
 import gamelib.game.Level;
+import processing.core.PVector;
 
 public class CameraFollow extends Camera {
 
 	private Entity target;
+	private final PVector targetLocation;
 
 	public CameraFollow(Level level){
 		this(level, null);
@@ -14,6 +16,7 @@ public class CameraFollow extends Camera {
 	
 	public CameraFollow(Level level, Entity entity){
 		super(level);
+		targetLocation = new PVector();
 		follow(entity);
 	}
 	
@@ -24,6 +27,6 @@ public class CameraFollow extends Camera {
 	@Override
 	public void update(float delta) {
 		if(target == null) return;
-		setLocation(target.getLocation());
+		setLocation(target.getLocation(targetLocation));
 	}
 }
\ No newline at end of file
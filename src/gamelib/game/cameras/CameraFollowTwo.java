@@ -9,6 +9,7 @@ public class CameraFollowTwo extends Camera {
 
 	private Entity target1, target2;
 	private PVector offsetPos, offsetAng;
+	private final PVector t1p, t2p, centroid, rot;
 
 	public CameraFollowTwo(Level level){
 		this(level, null, null, 0, 0, 0);
@@ -27,6 +28,10 @@ public class CameraFollowTwo extends Camera {
 		follow(entity1, entity2);
 		offsetPos = new PVector(x, y, z);
 		offsetAng = new PVector(pan, tilt, roll);
+		t1p = new PVector();
+		t2p = new PVector();
+		centroid = new PVector();
+		rot = new PVector();
 	}
 	
 	public void follow(Entity entity1, Entity entity2){
@@ -37,9 +42,9 @@ public class CameraFollowTwo extends Camera {
 	@Override
 	public void update(float delta) {
 		if(target1 == null || target2 == null) return;
-		PVector t1p = target1.getLocation();
-		PVector t2p = target2.getLocation();
-		PVector centroid = new PVector(
+		target1.getLocation(t1p);
+		target2.getLocation(t2p);
+		centroid.set(
 				(t1p.x + t2p.x) / 2,
 				(t1p.y + t2p.y) / 2,
 				(t1p.z + t2p.z) / 2
@@ -47,7 +52,7 @@ public class CameraFollowTwo extends Camera {
 		setLocation(centroid);
 		addLocation(offsetPos);
 		
-		PVector rot = PVector.sub(centroid, getLocation());
+		rot.set(centroid).sub(getLocation(t1p));
 		rotation.set((float)Math.asin(rot.y/rot.mag()), (float)Math.atan(rot.x/rot.z), 0);
 		rotation.add(offsetAng);
 	}
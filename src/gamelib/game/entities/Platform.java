@@ -24,6 +24,16 @@ public abstract class Platform extends Entity {
 		setGroundFriction(10);
 	}
 
+	/**
+	 * Platforms don't move by themselves.
+	 * A platform can still be put somewhere else with setLocation; things standing on it aren't carried along though.
+	 * Override this to return false for platforms that move every frame.
+	 */
+	@Override
+	public boolean isStatic() {
+		return true;
+	}
+
 	@Override
 	public float getGroundFriction() {
 		return groundFriction;
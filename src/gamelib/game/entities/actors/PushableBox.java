@@ -40,6 +40,7 @@ public class PushableBox extends PushableEntity {
 	
 	private final void init(){
 		setGravityEffected(true);
+		setSleepEnabled(true);
 	}
 
 	@Override
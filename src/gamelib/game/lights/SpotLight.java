@@ -38,7 +38,7 @@ public class SpotLight extends DynamicLight {
 	@Override
 	public void update(float delta) {
 		if(this.target != null){
-			this.normal.set(PVector.sub(target.getLocation(), this.getLocation()));
+			target.getLocation(this.normal).sub(getX(), getY(), getZ());
 		}
 	}
 
@@ -48,6 +48,6 @@ public class SpotLight extends DynamicLight {
 
 	public void setTarget(PVector target) {
 		this.target = null;
-		this.normal.set(PVector.sub(target, this.getLocation()));
+		this.normal.set(target).sub(getX(), getY(), getZ());
 	}
 }
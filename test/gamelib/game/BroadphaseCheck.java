@@ -0,0 +1,146 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Checks that every broadphase finds the same pairs and answers every query the same way as {@link BruteForce},
+ * and that {@link BoundsStore#query(float, float, float, float, float, float, List)} agrees with them.
+ *
+ * Boxes of random sizes, a few of them very long, are scattered over a 2D and then a 3D space.
+ * Each round some of them are moved, one is sometimes removed, and then the pairs and a set of random boxes are queried.
+ * Each pair and each result must be reported once.
+ *
+ * Run with: java gamelib.game.BroadphaseCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class BroadphaseCheck {
+
+	/**
+	 * Find every pair the broadphase reports.
+	 *
+	 * @param broadphase
+	 * @return The ids of each pair, lowest first
+	 */
+	static Set<String> pairs(Broadphase broadphase) {
+		List<Entity> found = new ArrayList<Entity>();
+		broadphase.findPairs(found);
+		Set<String> pairs = new TreeSet<String>();
+		for (int i = 0; i < found.size(); i += 2) {
+			int a = found.get(i).getId();
+			int b = found.get(i + 1).getId();
+			Checks.check(a != b, broadphase.getClass().getSimpleName() + " paired an entity with itself");
+			Checks.check(pairs.add(Math.min(a, b) + "-" + Math.max(a, b)), broadphase.getClass().getSimpleName() + " reported a pair twice");
+		}
+		return pairs;
+	}
+
+	/**
+	 * Query the broadphase.
+	 *
+	 * @param broadphase
+	 * @param box The min and max corners
+	 * @return What was found
+	 */
+	static Set<Entity> query(Broadphase broadphase, float[] box) {
+		List<Entity> found = new ArrayList<Entity>();
+		broadphase.query(box[0], box[1], box[2], box[3], box[4], box[5], found);
+		Set<Entity> result = new HashSet<Entity>(found);
+		Checks.check(result.size() == found.size(), broadphase.getClass().getSimpleName() + " reported an entity twice");
+		return result;
+	}
+
+	/**
+	 * Scatter boxes and then move, remove and query them.
+	 *
+	 * @param is3D
+	 */
+	static void run(boolean is3D) {
+		Level level = is3D ? new Checks.TestLevel3D() : new Checks.TestLevel2D();
+		Random random = new Random(5);
+		BoundsStore bounds = new BoundsStore();
+		List<Broadphase> broadphases = is3D
+				? Arrays.asList(new BruteForce(), new SpatialHash(2, true), new DynamicAABBTree(), new SpatialHash(7, true))
+				: Arrays.asList(new BruteForce(), new SpatialHash(2, false), new SweepAndPrune(), new SpatialHash(0.3F, false), new DynamicAABBTree());
+		for (Broadphase broadphase : broadphases) {
+			broadphase.attach(bounds);
+		}
+		float width = is3D ? 50 : 100;
+		float height = is3D ? 50 : 30;
+		float depth = is3D ? 50 : 0;
+
+		List<Checks.Box> boxes = new ArrayList<Checks.Box>();
+		for (int i = 0; i < (is3D ? 600 : 400); i++) {
+			float length = i % 50 == 0 ? 40 : 3;
+			Checks.Box box;
+			if (is3D) {
+				box = new Checks.Box(level, random.nextFloat() * width, random.nextFloat() * height, random.nextFloat() * depth,
+						0.2F + random.nextFloat() * 3, 0.2F + random.nextFloat() * 3, 0.2F + random.nextFloat() * length, 1);
+			} else {
+				box = new Checks.Box(level, random.nextFloat() * width, random.nextFloat() * height, 0.2F + random.nextFloat() * length, 0.2F + random.nextFloat() * 3, 1);
+			}
+			boxes.add(box);
+			level.update(0.001F);
+			bounds.update(box);
+			for (Broadphase broadphase : broadphases) {
+				broadphase.insert(box);
+			}
+		}
+
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < (is3D ? 100 : 50); i++) {
+				Checks.Box box = boxes.get(random.nextInt(boxes.size()));
+				if (is3D) {
+					box.addLocation(random.nextFloat() - 0.5F, random.nextFloat() - 0.5F, random.nextFloat() - 0.5F);
+				} else {
+					box.setLocation(random.nextFloat() * width, random.nextFloat() * height);
+				}
+				box.updateBounds();
+				bounds.update(box);
+				for (Broadphase broadphase : broadphases) {
+					broadphase.update(box);
+				}
+			}
+			if (round % 10 == 5) {
+				Checks.Box box = boxes.remove(random.nextInt(boxes.size()));
+				for (Broadphase broadphase : broadphases) {
+					broadphase.remove(box);
+				}
+				bounds.remove(box);
+			}
+
+			Set<String> expectedPairs = pairs(broadphases.get(0));
+			for (Broadphase broadphase : broadphases) {
+				Checks.check(pairs(broadphase).equals(expectedPairs), broadphase.getClass().getSimpleName() + " should find the same pairs as brute force");
+			}
+			for (int i = 0; i < 20; i++) {
+				float x = random.nextFloat() * width;
+				float y = random.nextFloat() * height;
+				float z = random.nextFloat() * depth;
+				float size = random.nextFloat() * 10;
+				float[] box = is3D ? new float[] { x, y, z, x + size, y + size, z + size } : new float[] { x, y, 0, x + size, y + random.nextFloat() * 5, 0 };
+				Set<Entity> expected = query(broadphases.get(0), box);
+				for (Broadphase broadphase : broadphases) {
+					Checks.check(query(broadphase, box).equals(expected), broadphase.getClass().getSimpleName() + " should find the same entities as brute force");
+				}
+				List<Entity> found = new ArrayList<Entity>();
+				bounds.query(box[0], box[1], box[2], box[3], box[4], box[5], found);
+				Checks.check(found.size() == expected.size() && expected.equals(new HashSet<Entity>(found)), "the bounds store should find the same entities as brute force");
+			}
+		}
+		System.out.println((is3D ? "3D" : "2D") + " ok");
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+		run(false);
+		run(true);
+		System.out.println("ok");
+	}
+}
@@ -0,0 +1,137 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import processing.core.PVector;
+
+/**
+ * Checks the level's ray casts and box casts against a slab test of every entity,
+ * in a random 2D scene and then a random 3D one.
+ * <ul>
+ * <li>{@link Level#raycast(PVector, PVector, float, long)} and {@link Level#boxCast(PVector, PVector, PVector, float, long)}
+ * must find the first hit at the same distance.</li>
+ * <li>{@link Level#raycastAll(PVector, PVector, float, long)} must find every hit, nearest first.</li>
+ * </ul>
+ * Some of the casts are along an axis and some only look at one collision layer.
+ *
+ * Run with: java gamelib.game.CastCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class CastCheck {
+
+	static final float SIZE = 60;
+
+	/**
+	 * Cast a box (or a ray if it has no size) against every entity with the slab test.
+	 *
+	 * @param boxes
+	 * @param origin
+	 * @param direction A unit vector
+	 * @param halfSize Half the size of the box
+	 * @param maxDistance
+	 * @param layerMask
+	 * @param axes 2 or 3
+	 * @param distances Where to put the distance to every hit
+	 * @return The distance to the first hit or infinity if there wasn't one
+	 */
+	static float cast(List<Checks.Box> boxes, float[] origin, float[] direction, float[] halfSize, float maxDistance, long layerMask, int axes, List<Float> distances) {
+		float first = Float.POSITIVE_INFINITY;
+		for (Checks.Box box : boxes) {
+			if ((layerMask & box.getCollisionLayer()) == 0) {
+				continue;
+			}
+			BoundingBox bb = box.getBoundingBox();
+			float[] min = { bb.getMinX(), bb.getMinY(), bb.getMinZ() };
+			float[] max = { bb.getMaxX(), bb.getMaxY(), bb.getMaxZ() };
+			double near = Double.NEGATIVE_INFINITY;
+			double far = Double.POSITIVE_INFINITY;
+			boolean miss = false;
+			for (int a = 0; a < axes && !miss; a++) {
+				double low = min[a] - halfSize[a];
+				double high = max[a] + halfSize[a];
+				if (direction[a] == 0) {
+					miss = origin[a] < low || origin[a] > high;
+				} else {
+					double t1 = (low - origin[a]) / direction[a];
+					double t2 = (high - origin[a]) / direction[a];
+					near = Math.max(near, Math.min(t1, t2));
+					far = Math.min(far, Math.max(t1, t2));
+				}
+			}
+			if (miss || near > far || far < 0) {
+				continue;
+			}
+			float distance = (float) Math.max(near, 0);
+			if (distance <= maxDistance) {
+				distances.add(distance);
+				first = Math.min(first, distance);
+			}
+		}
+		return first;
+	}
+
+	static boolean close(float a, float b) {
+		return a == b || Math.abs(a - b) <= 1e-3F;
+	}
+
+	/**
+	 * Scatter boxes over three collision groups and cast rays and boxes at them.
+	 *
+	 * @param is3D
+	 */
+	static void run(boolean is3D) {
+		Level level = is3D ? new Checks.TestLevel3D() : new Checks.TestLevel2D();
+		Random random = new Random(9);
+		List<Checks.Box> boxes = Checks.scatterBoxes(level, random, SIZE);
+		int axes = is3D ? 3 : 2;
+
+		int hits = 0;
+		for (int q = 0; q < 3000; q++) {
+			float[] origin = { random.nextFloat() * SIZE, random.nextFloat() * SIZE, is3D ? random.nextFloat() * SIZE : 0 };
+			float[] direction = { random.nextFloat() - 0.5F, random.nextFloat() - 0.5F, is3D ? random.nextFloat() - 0.5F : 0 };
+			if (q % 10 == 0) {
+				direction[1] = 0;
+			}
+			float length = (float) Math.sqrt(direction[0] * direction[0] + direction[1] * direction[1] + direction[2] * direction[2]);
+			float[] unit = { direction[0] / length, direction[1] / length, direction[2] / length };
+			float maxDistance = 1 + random.nextFloat() * 40;
+			long layerMask = q % 3 == 0 ? -1L : 1L << random.nextInt(3);
+			boolean isBox = q % 2 == 0;
+			float[] halfSize = isBox ? new float[] { random.nextFloat(), random.nextFloat(), is3D ? random.nextFloat() : 0 } : new float[3];
+
+			List<Float> distances = new ArrayList<Float>();
+			float expected = cast(boxes, origin, unit, halfSize, maxDistance, layerMask, axes, distances);
+			PVector from = new PVector(origin[0], origin[1], origin[2]);
+			PVector towards = new PVector(direction[0], direction[1], direction[2]);
+			RaycastHit hit = isBox
+					? level.boxCast(from, new PVector(halfSize[0] * 2, halfSize[1] * 2, halfSize[2] * 2), towards, maxDistance, layerMask)
+					: level.raycast(from, towards, maxDistance, layerMask);
+			float distance = hit == null ? Float.POSITIVE_INFINITY : hit.getDistance();
+			Checks.check(close(distance, expected), (isBox ? "box cast " : "ray cast ") + q + " hit at " + distance + " instead of " + expected);
+			if (hit != null) {
+				hits++;
+			}
+
+			if (!isBox) {
+				List<RaycastHit> all = level.raycastAll(from, towards, maxDistance, layerMask);
+				Checks.check(all.size() == distances.size(), "ray cast " + q + " found " + all.size() + " hits instead of " + distances.size());
+				Collections.sort(distances);
+				for (int i = 0; i < all.size(); i++) {
+					Checks.check(close(all.get(i).getDistance(), distances.get(i)), "the hits of ray cast " + q + " should be nearest first");
+				}
+			}
+		}
+		System.out.println((is3D ? "3D" : "2D") + " ok: " + hits + " casts hit");
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+		run(false);
+		run(true);
+		System.out.println("ok");
+	}
+}
@@ -0,0 +1,236 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import gamelib.GameManager;
+import gamelib.game.entities.Actor;
+import gamelib.game.entities.actors.PushableBox;
+import gamelib.game.entities.platforms.BasicPlatform;
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PSurfaceNone;
+
+/**
+ * What the checks share: a game manager that both 2D and 3D levels can be made with,
+ * levels that do nothing but update, the entities and scenes several checks use and a hash of where every entity in a level is.
+ *
+ * @author Rebecca Stevens
+ */
+final class Checks {
+
+	private Checks() {
+	}
+
+	/**
+	 * A 2D level with nothing to do before or after an update and nothing to draw.
+	 */
+	static class TestLevel2D extends Level2D {
+		TestLevel2D() {
+		}
+
+		TestLevel2D(BroadphaseFactory broadphaseFactory) {
+			super(broadphaseFactory);
+		}
+
+		@Override
+		public void preUpdate(float delta) {
+		}
+
+		@Override
+		public void postUpdate(float delta) {
+		}
+
+		@Override
+		public void drawBackground(PGraphics g) {
+		}
+
+		@Override
+		public void drawOverlay(PGraphics g) {
+		}
+	}
+
+	/**
+	 * A 3D level with nothing to do before or after an update and nothing to draw.
+	 */
+	static class TestLevel3D extends Level3D {
+		@Override
+		public void preUpdate(float delta) {
+		}
+
+		@Override
+		public void postUpdate(float delta) {
+		}
+
+		@Override
+		public void drawBackground(PGraphics g) {
+		}
+
+		@Override
+		public void drawOverlay(PGraphics g) {
+		}
+	}
+
+	/**
+	 * A box that doesn't move, in one of the collision groups.
+	 */
+	static class Box extends Entity {
+		Box(Level level, float x, float y, float width, float height, int group) {
+			super(level, x, y, width, height);
+			setCollisionGroup(group);
+		}
+
+		Box(Level level, float x, float y, float z, float width, float height, float depth, int group) {
+			super(level, x, y, z, width, height, depth);
+			setCollisionGroup(group);
+		}
+
+		@Override
+		public void update(float delta) {
+		}
+
+		@Override
+		public void draw(PGraphics g) {
+		}
+
+		@Override
+		public void onCollidesWith(Entity entity) {
+		}
+	}
+
+	/**
+	 * An actor that walks at a steady speed.
+	 */
+	static class Walker extends Actor {
+		final float speed;
+
+		Walker(Level level, float x, float y, float size, float speed) {
+			super(level, x, y, size, size);
+			this.speed = speed;
+		}
+
+		@Override
+		public void update(float delta) {
+			setVelocityX(speed);
+		}
+
+		@Override
+		public void draw(PGraphics g) {
+		}
+
+		@Override
+		public void onCollidesWith(Entity entity) {
+		}
+	}
+
+	/**
+	 * Forty walkers that fall and walk over a floor, a row of ledges and a wall, with a pushable box in the way.
+	 *
+	 * @param level
+	 */
+	static void buildWalkerScene(Level2D level) {
+		level.setGravity(-20);
+		new BasicPlatform(level, -50, -1, 200, 1);
+		for (int i = 0; i < 10; i++) {
+			new BasicPlatform(level, i * 7, 3 + (i % 3), 3, 0.5F);
+		}
+		new BasicPlatform(level, 30, 0, 1, 5);
+		Random random = new Random(1);
+		for (int i = 0; i < 40; i++) {
+			new Walker(level, random.nextFloat() * 60, 2 + random.nextFloat() * 8, 1, (random.nextFloat() - 0.5F) * 6);
+		}
+		new PushableBox(level, 20, 1, 1, 1, 0.5F);
+	}
+
+	/**
+	 * Small walkers that fall onto a long floor and onto each other, scattered over 400 by 40 units.
+	 *
+	 * @param level
+	 * @param walkers The number of walkers
+	 */
+	static void buildCrowdScene(Level2D level, int walkers) {
+		level.setGravity(-20);
+		new BasicPlatform(level, -50, -1, 2000, 1);
+		Random random = new Random(1);
+		for (int i = 0; i < walkers; i++) {
+			new Walker(level, random.nextFloat() * 400, random.nextFloat() * 40, 0.5F, (random.nextFloat() - 0.5F) * 6);
+		}
+	}
+
+	/**
+	 * Scatter 400 boxes of random sizes over the first three collision groups, in a cube (or square) of the given size,
+	 * and update the level once so that they are all in it.
+	 *
+	 * @param level
+	 * @param random
+	 * @param size
+	 * @return The boxes
+	 */
+	static List<Box> scatterBoxes(Level level, Random random, float size) {
+		boolean is3D = level instanceof Level3D;
+		List<Box> boxes = new ArrayList<Box>();
+		for (int i = 0; i < 400; i++) {
+			if (is3D) {
+				boxes.add(new Box(level, random.nextFloat() * size, random.nextFloat() * size, random.nextFloat() * size,
+						0.2F + random.nextFloat() * 3, 0.2F + random.nextFloat() * 3, 0.2F + random.nextFloat() * 3, 1 + random.nextInt(3)));
+			} else {
+				boxes.add(new Box(level, random.nextFloat() * size, random.nextFloat() * size,
+						0.2F + random.nextFloat() * 3, 0.2F + random.nextFloat() * 3, 1 + random.nextInt(3)));
+			}
+		}
+		level.update(0.001F);
+		return boxes;
+	}
+
+	/**
+	 * Make the game manager if it hasn't been made yet.
+	 * The sketch is never run, so it is given a surface that doesn't show anything
+	 * and the frame rate is left alone.
+	 * Its graphics say they are 3D so that 3D levels can be made as well as 2D ones; nothing is ever drawn.
+	 */
+	static void setUp() {
+		if (GameManager.getMe() != null) {
+			return;
+		}
+		PApplet applet = new PApplet();
+		applet.g = new PGraphics() {
+			@Override
+			public boolean is3D() {
+				return true;
+			}
+		};
+		applet.g.width = 800;
+		applet.g.height = 600;
+		applet.surface = new PSurfaceNone(applet.g);
+		new GameManager(applet, false);
+	}
+
+	/**
+	 * Stop with a failure if the condition isn't true.
+	 *
+	 * @param condition
+	 * @param message What went wrong
+	 */
+	static void check(boolean condition, String message) {
+		if (!condition) {
+			System.out.println("FAILED: " + message);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Hash the exact bits of the x and y of every entity, in the order the level holds them.
+	 *
+	 * @param level
+	 * @return
+	 */
+	static long hash(Level level) {
+		long hash = 0;
+		for (Entity entity : level.getEntities()) {
+			hash = hash * 31 + Float.floatToIntBits(entity.getX());
+			hash = hash * 31 + Float.floatToIntBits(entity.getY());
+		}
+		return hash;
+	}
+}
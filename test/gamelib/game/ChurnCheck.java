@@ -0,0 +1,113 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import gamelib.game.entities.Actor;
+import gamelib.game.entities.platforms.BasicPlatform;
+import processing.core.PGraphics;
+
+/**
+ * Checks that adding and removing entities every frame gives the same results with packed motion
+ * off, on and switched on part way through.
+ *
+ * Five small actors are thrown into the level every frame, each with limits on where it can be and how fast it can go,
+ * and each removes itself after a random number of frames. The hash covers the location and id of every entity
+ * after every frame, where each actor was when it removed itself and where it was left.
+ *
+ * Run with: java gamelib.game.ChurnCheck [frames]
+ *
+ * @author Rebecca Stevens
+ */
+public class ChurnCheck {
+
+	static class Thrown extends Actor {
+		final List<Thrown> removed;
+		int life;
+		float removedAtX;
+		float removedAtVelocityY;
+
+		Thrown(Level level, float x, float y, float velocityX, int life, List<Thrown> removed) {
+			super(level, x, y, 0.3F, 0.3F);
+			setVelocity(velocityX, 3);
+			limitYMin(-0.5F);
+			limitVelocityXMax(3);
+			this.life = life;
+			this.removed = removed;
+		}
+
+		@Override
+		public void update(float delta) {
+			if (--life == 0) {
+				remove();
+				removedAtX = getX();
+				removedAtVelocityY = getVelocityY();
+				removed.add(this);
+			}
+		}
+
+		@Override
+		public void draw(PGraphics g) {
+		}
+
+		@Override
+		public void onCollidesWith(Entity entity) {
+		}
+	}
+
+	/**
+	 * Run the simulation.
+	 *
+	 * @param mode How packed motion is used
+	 * @param frames The number of frames to run for
+	 * @return The hash
+	 */
+	static long run(String mode, int frames) {
+		Checks.TestLevel2D level = new Checks.TestLevel2D();
+		level.setGravity(-20);
+		level.setPackedMotion(mode.equals("packed"));
+
+		new BasicPlatform(level, -50, -1, 200, 1);
+		Random random = new Random(3);
+		List<Thrown> removed = new ArrayList<Thrown>();
+		long hash = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			if (mode.equals("packed part way") && frame == frames / 3) {
+				level.setPackedMotion(true);
+			}
+			for (int i = 0; i < 5; i++) {
+				new Thrown(level, random.nextFloat() * 40, 1 + random.nextFloat() * 5, (random.nextFloat() - 0.5F) * 10, 5 + random.nextInt(80), removed);
+			}
+			level.update(1 / 60F);
+			for (Entity entity : level.getEntities()) {
+				hash = hash * 31 + Float.floatToIntBits(entity.getX());
+				hash = hash * 31 + Float.floatToIntBits(entity.getY()) + entity.getId();
+			}
+		}
+
+		for (Thrown thrown : removed) {
+			hash = hash * 31 + Float.floatToIntBits(thrown.removedAtX);
+			hash = hash * 31 + Float.floatToIntBits(thrown.removedAtVelocityY);
+			hash = hash * 31 + Float.floatToIntBits(thrown.getX());
+			hash = hash * 31 + Float.floatToIntBits(thrown.getVelocityY());
+		}
+		Checks.check(!removed.isEmpty(), "some entities should have been removed");
+		return hash;
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+		long unpacked = run("unpacked", frames);
+		System.out.println("unpacked: " + unpacked);
+		String[] modes = { "packed", "packed part way" };
+		for (String mode : modes) {
+			long hash = run(mode, frames);
+			System.out.println(mode + ": " + hash);
+			Checks.check(hash == unpacked, "the " + mode + " run should give the same results as the unpacked one");
+		}
+		System.out.println("ok");
+	}
+}
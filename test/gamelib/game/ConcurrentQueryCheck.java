@@ -0,0 +1,122 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queries every broadphase that says it is safe to query from several threads at once
+ * and checks that every result matches the same query done on one thread.
+ *
+ * The widest entity is made narrower before the threads start, so the sweep and prune
+ * has to find its widest entity again while it is being queried.
+ *
+ * Run with: java gamelib.game.ConcurrentQueryCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class ConcurrentQueryCheck {
+
+	static final int QUERIES = 4000;
+
+	static final int THREADS = 8;
+
+	/**
+	 * Change the width of an entity and let the bounds and broadphases know.
+	 *
+	 * @param box
+	 * @param width
+	 * @param bounds
+	 * @param broadphases
+	 */
+	static void setWidth(Checks.Box box, float width, BoundsStore bounds, List<Broadphase> broadphases) {
+		box.getBoundingBox().setWidth(width);
+		box.updateBounds();
+		bounds.update(box);
+		for (Broadphase broadphase : broadphases) {
+			broadphase.update(box);
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		Checks.setUp();
+		Level level = new Checks.TestLevel2D();
+		Random random = new Random(7);
+		BoundsStore bounds = new BoundsStore();
+		final List<Broadphase> broadphases = Arrays.asList(new BruteForce(), new SpatialHash(2, false), new SweepAndPrune(), new DynamicAABBTree());
+		for (Broadphase broadphase : broadphases) {
+			Checks.check(broadphase.isConcurrentQuerySafe(), broadphase.getClass().getSimpleName() + " should be safe to query concurrently");
+			broadphase.attach(bounds);
+		}
+
+		List<Checks.Box> boxes = new ArrayList<Checks.Box>();
+		for (int i = 0; i < 3000; i++) {
+			boxes.add(new Checks.Box(level, random.nextFloat() * 300, random.nextFloat() * 60,
+					0.2F + random.nextFloat() * (i % 100 == 0 ? 30 : 2), 0.2F + random.nextFloat() * 2, 1));
+		}
+		level.update(0.001F);
+		for (Checks.Box box : boxes) {
+			bounds.update(box);
+			for (Broadphase broadphase : broadphases) {
+				broadphase.insert(box);
+			}
+		}
+		Checks.Box widest = boxes.get(0);
+		setWidth(widest, 0.5F, bounds, broadphases);
+
+		final float[][] queries = new float[QUERIES][];
+		for (int q = 0; q < QUERIES; q++) {
+			float x = random.nextFloat() * 300;
+			float y = random.nextFloat() * 60;
+			queries[q] = new float[] { x, y, x + random.nextFloat() * 8, y + random.nextFloat() * 4 };
+		}
+		final List<List<List<Entity>>> expected = new ArrayList<List<List<Entity>>>();
+		for (Broadphase broadphase : broadphases) {
+			List<List<Entity>> results = new ArrayList<List<Entity>>();
+			for (float[] query : queries) {
+				List<Entity> result = new ArrayList<Entity>();
+				broadphase.query(query[0], query[1], 0, query[2], query[3], 0, result);
+				results.add(result);
+			}
+			expected.add(results);
+		}
+
+		// make the widest entity narrower again so the threads race to find the new widest
+		setWidth(widest, 0.3F, bounds, broadphases);
+		setWidth(widest, 0.5F, bounds, broadphases);
+
+		final AtomicInteger mismatches = new AtomicInteger();
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int offset = t * 511;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					List<Entity> result = new ArrayList<Entity>();
+					for (int round = 0; round < 3; round++) {
+						for (int i = 0; i < QUERIES; i++) {
+							float[] query = queries[(i + offset) % QUERIES];
+							for (int k = 0; k < broadphases.size(); k++) {
+								result.clear();
+								broadphases.get(k).query(query[0], query[1], 0, query[2], query[3], 0, result);
+								if (!result.equals(expected.get(k).get((i + offset) % QUERIES))) {
+									mismatches.incrementAndGet();
+								}
+							}
+						}
+					}
+				}
+			};
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Checks.check(mismatches.get() == 0, mismatches.get() + " concurrent queries didn't match");
+		System.out.println("ok");
+	}
+}
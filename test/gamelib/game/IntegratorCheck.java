@@ -0,0 +1,146 @@
+package gamelib.game;
+
+import java.util.Random;
+
+import processing.core.PVector;
+
+/**
+ * Checks that {@link GameObject#accelerate(PVector, float, float, float, float, float, PVector)} and
+ * {@link GameObject#accelerate(PVector, PVector, float, float)} give bit for bit the same velocities and distances
+ * as the PVector based integrator they replaced.
+ * The inputs are random with a share of zeros (of both signs), infinities, NaNs, subnormals and very large and small values.
+ * Results are compared with {@link Float#floatToRawIntBits(float)}; only the payload of a NaN result is allowed to differ.
+ *
+ * Run with: java gamelib.game.IntegratorCheck [cases]
+ *
+ * @author Rebecca Stevens
+ */
+public class IntegratorCheck {
+
+	/**
+	 * A verbatim copy of the integrator from before accelerations were integrated on floats.
+	 *
+	 * @param velocity The velocity to accelerate
+	 * @param acceleration The amount if acceleration
+	 * @param friction The amount of friction to apply
+	 * @param time The amount of time to accelerate for
+	 * @return The distance traveled
+	 */
+	static PVector oldAccelerate(PVector velocity, PVector acceleration, float friction, float time) {
+		PVector distance;
+
+		if (friction == 0) {
+			distance = PVector.add(PVector.mult(velocity, time), PVector.mult(acceleration, 0.5F * time * time));
+			velocity.add(PVector.mult(acceleration, time));
+		} else {
+			distance = PVector.add(PVector.mult(acceleration, time / friction), PVector.mult(PVector.sub(velocity, PVector.div(acceleration, friction)), (float) ((1 - Math.exp(-friction * time)) / friction)));
+			velocity.set(PVector.add(PVector.div(acceleration, friction), PVector.mult(PVector.sub(velocity, PVector.div(acceleration, friction)), (float) Math.exp(-friction * time))));
+		}
+
+		return distance;
+	}
+
+	/**
+	 * Pick an input value.
+	 *
+	 * @param random
+	 * @return
+	 */
+	static float pick(Random random) {
+		switch (random.nextInt(12)) {
+		case 0: return random.nextBoolean() ? 0F : -0F;
+		case 1: return random.nextBoolean() ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+		case 2: return Float.NaN;
+		case 3: return Float.intBitsToFloat(random.nextInt(0x00800000) | (random.nextBoolean() ? 0x80000000 : 0));	// subnormal
+		case 4: return random.nextBoolean() ? Float.MIN_VALUE : Float.MIN_NORMAL;
+		case 5: return Float.intBitsToFloat(random.nextInt());
+		case 6: return (float) random.nextGaussian() * 1e-6F;
+		case 7: return (float) random.nextGaussian() * 1e6F;
+		default: return (float) random.nextGaussian() * 30;
+		}
+	}
+
+	/**
+	 * Pick an amount of friction; mostly the small positive values games use.
+	 *
+	 * @param random
+	 * @return
+	 */
+	static float pickFriction(Random random) {
+		switch (random.nextInt(5)) {
+		case 0: return 0;
+		case 1: return pick(random);
+		default: return random.nextFloat() * 20;
+		}
+	}
+
+	/**
+	 * Pick an amount of time; mostly the length of a frame.
+	 *
+	 * @param random
+	 * @return
+	 */
+	static float pickTime(Random random) {
+		return random.nextInt(5) == 0 ? pick(random) : random.nextFloat() / 30;
+	}
+
+	/**
+	 * Test if two vectors have the same bits.
+	 * 
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	static boolean same(PVector a, PVector b) {
+		return same(a.x, b.x) && same(a.y, b.y) && same(a.z, b.z);
+	}
+
+	/**
+	 * Test if two floats have the same bits.
+	 * Any two NaNs count as the same: Java doesn't say which NaN an operation on a NaN gives back
+	 * and HotSpot gives back different ones for the same code depending on how it was compiled.
+	 * 
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	static boolean same(float a, float b) {
+		return Float.floatToRawIntBits(a) == Float.floatToRawIntBits(b) || (Float.isNaN(a) && Float.isNaN(b));
+	}
+
+	public static void main(String[] args) {
+		long cases = args.length > 0 ? Long.parseLong(args[0]) : 10000000;
+		Random random = new Random(42);
+		PVector distance = new PVector();
+		long mismatches = 0;
+
+		for (long i = 0; i < cases; i++) {
+			float vx = pick(random), vy = pick(random), vz = pick(random);
+			float ax = pick(random), ay = pick(random), az = pick(random);
+			float friction = pickFriction(random);
+			float time = pickTime(random);
+
+			PVector oldVelocity = new PVector(vx, vy, vz);
+			PVector oldDistance = oldAccelerate(oldVelocity, new PVector(ax, ay, az), friction, time);
+
+			PVector velocity = new PVector(vx, vy, vz);
+			GameObject.accelerate(velocity, ax, ay, az, friction, time, distance);
+
+			PVector vectorVelocity = new PVector(vx, vy, vz);
+			PVector vectorDistance = GameObject.accelerate(vectorVelocity, new PVector(ax, ay, az), friction, time);
+
+			if (!same(oldDistance, distance) || !same(oldVelocity, velocity)
+					|| !same(oldDistance, vectorDistance) || !same(oldVelocity, vectorVelocity)) {
+				if (mismatches++ < 10) {
+					System.out.println("Mismatch: velocity=(" + vx + ", " + vy + ", " + vz + ") acceleration=(" + ax + ", " + ay + ", " + az
+							+ ") friction=" + friction + " time=" + time);
+				}
+			}
+		}
+
+		System.out.println(cases + " cases, " + mismatches + " mismatches");
+		if (mismatches > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package gamelib.game;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Checks that updating a level's islands in parallel gives the same results whatever the size of the common pool.
+ *
+ * The crowd scene is run with 2000 actors over 200 frames. Its islands must find the same number of pairs
+ * and leave every actor in the same place with a pool of 1, 2, 4 and 8 threads.
+ * The size of the common pool can only be set when the JVM starts, so each size is run in a JVM of its own.
+ * Updating the islands with packed motion, on from the start or switched on part way through,
+ * must give the same results as updating them without.
+ *
+ * Run with: java gamelib.game.IslandCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class IslandCheck {
+
+	static final int[] POOL_SIZES = { 1, 2, 4, 8 };
+
+	static final int ACTORS = 2000;
+
+	static final int FRAMES = 200;
+
+	/**
+	 * Run the crowd scene with its islands updated in parallel.
+	 *
+	 * @param mode How packed motion is used
+	 * @return The total number of collision pairs found in every frame and the hash of every entity's location at the end
+	 */
+	static String run(String mode) {
+		Checks.TestLevel2D level = new Checks.TestLevel2D();
+		level.setParallelUpdate(true);
+		level.setPackedMotion(mode.equals("packed"));
+		Checks.buildCrowdScene(level, ACTORS);
+
+		long pairs = 0;
+		for (int frame = 0; frame < FRAMES; frame++) {
+			if (mode.equals("packed part way") && frame == FRAMES / 3) {
+				level.setPackedMotion(true);
+			}
+			level.update(1 / 60F);
+			pairs += level.getCollisionPairCount();
+		}
+		Checks.check(level.getIslandCount() > 1, "the level should have been split into islands");
+		return "pairs=" + pairs + " hash=" + Checks.hash(level);
+	}
+
+	/**
+	 * Run the islands in a new JVM whose common pool has the given size.
+	 *
+	 * @param poolSize
+	 * @return The result the new JVM printed
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	static String runWithPool(int poolSize) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java,
+				"-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + poolSize,
+				"-cp", System.getProperty("java.class.path"),
+				IslandCheck.class.getName(), "run");
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Process process = builder.start();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String result = reader.readLine();
+		reader.close();
+		Checks.check(process.waitFor() == 0, "the run with a pool of " + poolSize + " failed");
+		return result;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Checks.setUp();
+
+		if (args.length == 1) {
+			// this is one of the runs started below
+			System.out.println(run("unpacked"));
+			return;
+		}
+
+		String islands = run("unpacked");
+		System.out.println("islands: " + islands);
+		for (int poolSize : POOL_SIZES) {
+			String result = runWithPool(poolSize);
+			System.out.println("islands with a pool of " + poolSize + ": " + result);
+			Checks.check(islands.equals(result), "the islands should give the same results with a pool of " + poolSize);
+		}
+		String[] packedModes = { "packed", "packed part way" };
+		for (String mode : packedModes) {
+			String result = run(mode);
+			System.out.println("islands " + mode + ": " + result);
+			Checks.check(islands.equals(result), "the islands " + mode + " run should give the same results as without packed motion");
+		}
+		System.out.println("ok");
+	}
+}
@@ -0,0 +1,89 @@
+package gamelib.game;
+
+import gamelib.game.entities.Actor;
+import gamelib.game.entities.platforms.BasicPlatform;
+import processing.core.PGraphics;
+import processing.core.PVector;
+
+/**
+ * Checks that overriding {@link GameObject#getMoveToLocation(float)} still changes where an object moves,
+ * and that the walker scene still ends up where it always has now that the level asks for the location through
+ * {@link GameObject#getMoveToLocation(float, PVector)}.
+ * <ul>
+ * <li>An actor that won't go below a height must hover there instead of falling to the floor,
+ * while still being accelerated by gravity.</li>
+ * <li>A game object that moves twice as far as its velocity says must do so.</li>
+ * <li>After 3000 frames the hash of every location in the walker scene must be the one it has given
+ * since entities started to sleep.</li>
+ * </ul>
+ *
+ * Run with: java gamelib.game.MoveToLocationCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class MoveToLocationCheck {
+
+	static final long EXPECTED_HASH = 7005679087140444137L;
+
+	static class Hoverer extends Actor {
+		static final float HEIGHT = 3;
+
+		Hoverer(Level level, float x, float y) {
+			super(level, x, y, 1, 1);
+		}
+
+		@Override
+		protected PVector getMoveToLocation(float delta) {
+			PVector location = super.getMoveToLocation(delta);
+			location.y = Math.max(location.y, HEIGHT);
+			return location;
+		}
+
+		@Override
+		public void update(float delta) {
+		}
+
+		@Override
+		public void draw(PGraphics g) {
+		}
+
+		@Override
+		public void onCollidesWith(Entity entity) {
+		}
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+
+		Checks.TestLevel2D level = new Checks.TestLevel2D();
+		level.setGravity(-20);
+		new BasicPlatform(level, -10, -1, 20, 1);
+		Hoverer hoverer = new Hoverer(level, 0, 6);
+		GameObject runner = new GameObject(level, 0, 0) {
+			@Override
+			protected PVector getMoveToLocation(float delta) {
+				return super.getMoveToLocation(delta * 2);
+			}
+
+			@Override
+			public void update(float delta) {
+			}
+		};
+		runner.setVelocity(new PVector(3, 0));
+		for (int frame = 0; frame < 120; frame++) {
+			level.update(1 / 60F);
+		}
+		Checks.check(hoverer.getY() == Hoverer.HEIGHT, "the actor should hover where its override keeps it, not at " + hoverer.getY());
+		Checks.check(hoverer.getVelocityY() < 0, "the actor should still be accelerated by gravity");
+		Checks.check(Math.abs(runner.getX() - 12) < 1e-3F, "the game object should move twice as far as its velocity says, not to " + runner.getX());
+
+		Checks.TestLevel2D walkers = new Checks.TestLevel2D();
+		Checks.buildWalkerScene(walkers);
+		for (int frame = 0; frame < 3000; frame++) {
+			walkers.update(1 / 60F);
+		}
+		long hash = Checks.hash(walkers);
+		Checks.check(hash == EXPECTED_HASH, "the walker scene should give " + EXPECTED_HASH + ", not " + hash);
+		System.out.println("ok");
+	}
+}
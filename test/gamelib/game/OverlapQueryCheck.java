@@ -0,0 +1,136 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import gamelib.game.entities.platforms.BasicPlatform;
+import processing.core.PVector;
+
+/**
+ * Checks the level's overlap queries.
+ * <ul>
+ * <li>{@link Level#queryRadius(float, float, float, float, long, java.util.Collection)} and
+ * {@link Level#queryAABB(PVector, PVector, long)} must find the same entities as a linear scan,
+ * in a random 2D scene and then a random 3D one.</li>
+ * <li>Queries made by an entity's own code while it is being moved mustn't change where anything ends up,
+ * whether or not the level updates its islands in parallel.</li>
+ * </ul>
+ *
+ * Run with: java gamelib.game.OverlapQueryCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class OverlapQueryCheck {
+
+	static final float SIZE = 60;
+
+	/**
+	 * A walker that looks around it every time the level asks whether it is ignoring something,
+	 * which the level does while it is working out where the walker can move to.
+	 */
+	static class NosyWalker extends Checks.Walker {
+		final List<Entity> found = new ArrayList<Entity>();
+
+		NosyWalker(Level level, float x, float y, float speed) {
+			super(level, x, y, 1, speed);
+		}
+
+		@Override
+		public boolean isIgnoringInCollisions(Entity entity) {
+			found.clear();
+			getLevel().queryRadius(getX(), getY(), 0, 2, -1, found);
+			getLevel().queryAABB(getX() - 2, getY() - 2, 0, getX() + 2, getY() + 2, 0, -1, found);
+			return super.isIgnoringInCollisions(entity);
+		}
+	}
+
+	/**
+	 * Scatter boxes over three collision groups and query them.
+	 *
+	 * @param is3D
+	 */
+	static void run(boolean is3D) {
+		Level level = is3D ? new Checks.TestLevel3D() : new Checks.TestLevel2D();
+		Random random = new Random(9);
+		List<Checks.Box> boxes = Checks.scatterBoxes(level, random, SIZE);
+
+		int found = 0;
+		for (int q = 0; q < 2000; q++) {
+			float x = random.nextFloat() * SIZE;
+			float y = random.nextFloat() * SIZE;
+			float z = is3D ? random.nextFloat() * SIZE : 0;
+			float radius = random.nextFloat() * 8;
+			float size = random.nextFloat() * 10;
+			long layerMask = q % 2 == 0 ? -1L : 1L << random.nextInt(3);
+
+			Set<Entity> inRadius = new HashSet<Entity>();
+			int count = level.queryRadius(x, y, z, radius, layerMask, inRadius);
+			Set<Entity> inBox = new HashSet<Entity>(level.queryAABB(new PVector(x, y, z), new PVector(x + size, y + size, z + size), layerMask));
+
+			Set<Entity> expectedInRadius = new HashSet<Entity>();
+			Set<Entity> expectedInBox = new HashSet<Entity>();
+			for (Checks.Box box : boxes) {
+				if ((layerMask & box.getCollisionLayer()) == 0) {
+					continue;
+				}
+				BoundingBox bb = box.getBoundingBox();
+				double dx = Math.max(Math.max(bb.getMinX() - x, x - bb.getMaxX()), 0);
+				double dy = Math.max(Math.max(bb.getMinY() - y, y - bb.getMaxY()), 0);
+				double dz = is3D ? Math.max(Math.max(bb.getMinZ() - z, z - bb.getMaxZ()), 0) : 0;
+				if (dx * dx + dy * dy + dz * dz <= radius * radius) {
+					expectedInRadius.add(box);
+				}
+				if (bb.getMinX() <= x + size && bb.getMaxX() >= x && bb.getMinY() <= y + size && bb.getMaxY() >= y
+						&& (!is3D || (bb.getMinZ() <= z + size && bb.getMaxZ() >= z))) {
+					expectedInBox.add(box);
+				}
+			}
+			Checks.check(inRadius.equals(expectedInRadius) && count == expectedInRadius.size(), "radius query " + q + " should find what the linear scan finds");
+			Checks.check(inBox.equals(expectedInBox), "box query " + q + " should find what the linear scan finds");
+			found += expectedInRadius.size();
+		}
+		System.out.println((is3D ? "3D" : "2D") + " ok: " + found + " entities found in radius queries");
+	}
+
+	/**
+	 * Walk a row of walkers into a wall, each checking its surroundings while it moves or not.
+	 * The ones at the back are faster, so they catch up with the ones in front.
+	 *
+	 * @param nosy
+	 * @param parallel Whether or not to update the level's islands in parallel
+	 * @return The hash of where everything ends up
+	 */
+	static long walk(boolean nosy, boolean parallel) {
+		Checks.TestLevel2D level = new Checks.TestLevel2D();
+		level.setParallelUpdate(parallel);
+		level.setGravity(-20);
+		new BasicPlatform(level, -10, -1, 60, 1);
+		new BasicPlatform(level, 20, 0, 1, 5);
+		for (int i = 0; i < 6; i++) {
+			float x = i * 2.5F;
+			float speed = 4 - i * 0.5F;
+			if (nosy) {
+				new NosyWalker(level, x, 0.5F, speed);
+			} else {
+				new Checks.Walker(level, x, 0.5F, 1, speed);
+			}
+		}
+		for (int frame = 0; frame < 600; frame++) {
+			level.update(1 / 60F);
+		}
+		return Checks.hash(level);
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+		run(false);
+		run(true);
+		long expected = walk(false, false);
+		Checks.check(walk(true, false) == expected, "queries made while moving shouldn't change where anything ends up");
+		Checks.check(walk(true, true) == expected, "queries made while moving islands in parallel shouldn't change where anything ends up");
+		System.out.println("ok");
+	}
+}
@@ -0,0 +1,105 @@
+package gamelib.game;
+
+import java.util.List;
+
+/**
+ * Checks that the collision pairs built at the start of each frame serve the broadphase queries made while the entities move,
+ * and that using them doesn't change where anything ends up.
+ *
+ * The walker scene is run for 3000 frames in a level whose spatial hash counts the queries made
+ * after the first game object has updated, which is straight after the pairs have been built.
+ * The only queries allowed are the tests of where a pushed entity would end up:
+ * the pairs only cover where each entity was going to move by itself.
+ * The entities must end up exactly where they do in a level that doesn't count anything.
+ *
+ * Run with: java gamelib.game.PairListCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class PairListCheck {
+
+	static final int FRAMES = 3000;
+
+	/**
+	 * A spatial hash that counts the queries made while {@link #counting} is set.
+	 * Queries made to test where an entity would be pushed to are counted on their own.
+	 */
+	static class CountingSpatialHash extends SpatialHash {
+		static boolean counting;
+		static int queries;
+		static int pushQueries;
+
+		CountingSpatialHash(float cellSize) {
+			super(cellSize, false);
+		}
+
+		@Override
+		public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, List<Entity> result) {
+			if (counting) {
+				if (isPushTest()) {
+					pushQueries++;
+				} else {
+					queries++;
+				}
+			}
+			super.query(minX, minY, minZ, maxX, maxY, maxZ, result);
+		}
+
+		static boolean isPushTest() {
+			for (StackTraceElement element : new Throwable().getStackTrace()) {
+				if (element.getMethodName().equals("moveAndPush")) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A level that only counts its broadphase queries between the first game object's update and the end of the frame.
+	 * The first game object is a marker that is added before anything else, so it updates straight after the pair build.
+	 */
+	static class CountingLevel extends Checks.TestLevel2D {
+		CountingLevel() {
+			super(new BroadphaseFactory() {
+				@Override
+				public Broadphase createBroadphase(Level level, boolean forStaticEntities) {
+					return new CountingSpatialHash(level.getCollisionCellSize());
+				}
+			});
+			new GameObject(this, 0, 0) {
+				@Override
+				public void update(float delta) {
+					CountingSpatialHash.counting = true;
+				}
+			};
+			update(0);
+		}
+
+		@Override
+		public void postUpdate(float delta) {
+			CountingSpatialHash.counting = false;
+		}
+	}
+
+	static long run(Level2D level) {
+		Checks.buildWalkerScene(level);
+		for (int frame = 0; frame < FRAMES; frame++) {
+			level.update(1 / 60F);
+		}
+		return Checks.hash(level);
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+
+		long expected = run(new Checks.TestLevel2D());
+		long counted = run(new CountingLevel());
+		System.out.println("queries not served from the pair list: " + CountingSpatialHash.queries
+				+ " (and " + CountingSpatialHash.pushQueries + " to test pushes)");
+		Checks.check(counted == expected, "counting the queries shouldn't change where anything ends up");
+		Checks.check(CountingSpatialHash.queries == 0, "every query made while moving should be served from the pair list");
+		Checks.check(CountingSpatialHash.pushQueries > 0, "the box should have been pushed");
+		System.out.println("ok");
+	}
+}
@@ -0,0 +1,51 @@
+package gamelib.game;
+
+/**
+ * Checks that building the collision pairs with the parallel narrowphase gives the same results as building them serially.
+ *
+ * With 2000 actors over 200 frames and 8000 actors over 100 frames of the crowd scene,
+ * the parallel narrowphase must find the same number of pairs and leave every actor in the same place.
+ * The time the serial run takes is printed to compare against.
+ *
+ * Run with: java gamelib.game.ParallelNarrowphaseCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class ParallelNarrowphaseCheck {
+
+	/**
+	 * Run the crowd scene.
+	 *
+	 * @param parallel Whether or not to build the pairs with the parallel narrowphase
+	 * @param actors The number of actors
+	 * @param frames The number of frames to run for
+	 * @return The total number of collision pairs found in every frame and the hash of every entity's location at the end
+	 */
+	static String run(boolean parallel, int actors, int frames) {
+		Checks.TestLevel2D level = new Checks.TestLevel2D();
+		level.setParallelNarrowphase(parallel);
+		Checks.buildCrowdScene(level, actors);
+
+		long pairs = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			level.update(1 / 60F);
+			pairs += level.getCollisionPairCount();
+		}
+		return "pairs=" + pairs + " hash=" + Checks.hash(level);
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+
+		int[][] sizes = { { 2000, 200 }, { 8000, 100 } };
+		for (int[] size : sizes) {
+			long start = System.nanoTime();
+			String serial = run(false, size[0], size[1]);
+			long serialTime = (System.nanoTime() - start) / 1000000;
+			String parallel = run(true, size[0], size[1]);
+			System.out.println(size[0] + " actors over " + size[1] + " frames: serial " + serial + " in " + serialTime + "ms, parallel " + parallel);
+			Checks.check(serial.equals(parallel), "the parallel narrowphase should give the same pairs and locations as the serial one");
+		}
+		System.out.println("ok");
+	}
+}
@@ -0,0 +1,95 @@
+package gamelib.game;
+
+import gamelib.game.entities.Actor;
+import gamelib.game.entities.platforms.BasicPlatform;
+import processing.core.PGraphics;
+
+/**
+ * Checks that an entity that is recycled and respawned starts its contacts again,
+ * and that the entities standing on it lose their ground when it is put in the pool.
+ *
+ * A box stands on another box on a platform. The bottom box is recycled and respawned in the same place.
+ * The top box must lose its ground, be told that its contact with the old bottom box ended,
+ * and then be told about a new contact with the respawned box.
+ * The respawned box must not be told about any contact from before it was recycled.
+ *
+ * Run with: java gamelib.game.RecycleContactsCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class RecycleContactsCheck {
+
+	static final StringBuilder events = new StringBuilder();
+
+	static class Box extends Actor {
+		final String name;
+
+		Box(Level level, float x, float y, String name) {
+			super(level, x, y, 1, 1);
+			this.name = name;
+		}
+
+		@Override
+		public void update(float delta) {
+		}
+
+		@Override
+		public void draw(PGraphics g) {
+		}
+
+		@Override
+		public void onCollidesWith(Entity entity) {
+		}
+
+		@Override
+		public void onCollisionEnter(Entity other) {
+			events.append(name).append(" enter ").append(nameOf(other)).append(", ");
+		}
+
+		@Override
+		public void onCollisionExit(Entity other) {
+			events.append(name).append(" exit ").append(nameOf(other)).append(", ");
+		}
+
+		static String nameOf(Entity entity) {
+			return entity instanceof Box ? ((Box) entity).name : "platform";
+		}
+	}
+
+	static void check(boolean condition, String message) {
+		if (!condition) {
+			System.out.println("FAILED: " + message);
+			System.out.println("Events: " + events);
+			System.exit(1);
+		}
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+
+		Checks.TestLevel2D level = new Checks.TestLevel2D();
+		level.setGravity(-20);
+		new BasicPlatform(level, -50, -1, 200, 1);
+		Box bottom = new Box(level, 0, 0.5F, "bottom");
+		Box top = new Box(level, 0, 1.6F, "top");
+		for (int i = 0; i < 60; i++) {
+			level.update(1 / 60F);
+		}
+		check(top.isOnGround(), "the top box should be standing on the bottom box");
+
+		bottom.recycle();
+		level.update(1 / 60F);
+		check(!top.isOnGround(), "the top box should lose its ground when the bottom box is pooled");
+
+		events.setLength(0);
+		Box respawned = level.respawn(Box.class, 0, 0.5F);
+		check(respawned == bottom, "the bottom box should come back from the pool");
+		level.update(1 / 60F);
+		String frame = events.toString();
+		check(frame.contains("top exit bottom"), "the top box should be told its old contact ended");
+		check(frame.contains("top enter bottom") && frame.contains("bottom enter top"), "the contact with the respawned box should start again");
+		check(!frame.contains("bottom exit"), "the respawned box should not be told about its old contacts");
+
+		System.out.println("ok: " + frame);
+	}
+}
@@ -0,0 +1,71 @@
+package gamelib.game;
+
+/**
+ * Runs the same 2D simulation with each of the collision backends a level can be given, and with packed motion,
+ * and checks that they all put every entity in exactly the same place.
+ *
+ * Forty actors walk and fall over a floor, a row of ledges and a wall, with a pushable box in the way.
+ * The simulation is run for 3000 frames:
+ * <ul>
+ * <li>with the default spatial hash,</li>
+ * <li>with sweep and prune,</li>
+ * <li>with a {@link BruteForce} broadphase from a {@link BroadphaseFactory},</li>
+ * <li>with packed motion, on from the start and switched on part way through.</li>
+ * </ul>
+ *
+ * Run with: java gamelib.game.SimulationCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class SimulationCheck {
+
+	static final int FRAMES = 3000;
+
+	/**
+	 * Run the simulation.
+	 *
+	 * @param mode How to set the level up
+	 * @return The hash of every entity's location at the end
+	 */
+	static long run(String mode) {
+		Level2D level;
+		if (mode.equals("brute force")) {
+			level = new Checks.TestLevel2D(new BroadphaseFactory() {
+				@Override
+				public Broadphase createBroadphase(Level level, boolean forStaticEntities) {
+					return new BruteForce();
+				}
+			});
+		} else {
+			level = new Checks.TestLevel2D();
+		}
+		if (mode.equals("sweep and prune")) {
+			level.setCollisionBackend(Level2D.CollisionBackend.SWEEP_AND_PRUNE);
+		} else if (mode.equals("packed")) {
+			level.setPackedMotion(true);
+		}
+		Checks.buildWalkerScene(level);
+
+		for (int frame = 0; frame < FRAMES; frame++) {
+			if (mode.equals("packed part way") && frame == FRAMES / 3) {
+				level.setPackedMotion(true);
+			}
+			level.update(1 / 60F);
+		}
+		return Checks.hash(level);
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+
+		long expected = run("spatial hash");
+		System.out.println("spatial hash: " + expected);
+		String[] modes = { "sweep and prune", "brute force", "packed", "packed part way" };
+		for (String mode : modes) {
+			long hash = run(mode);
+			System.out.println(mode + ": " + hash);
+			Checks.check(hash == expected, "the " + mode + " run should give the same locations as the spatial hash");
+		}
+		System.out.println("ok");
+	}
+}
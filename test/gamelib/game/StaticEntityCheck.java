@@ -0,0 +1,84 @@
+package gamelib.game;
+
+import gamelib.game.entities.Actor;
+import gamelib.game.entities.platforms.BasicPlatform;
+import processing.core.PGraphics;
+import processing.core.PVector;
+
+/**
+ * Checks that a static entity can still be moved by its own code and still updates what is attached to it.
+ * <ul>
+ * <li>A platform put somewhere else with setLocation must be collided with, found and hit where it now is,
+ * and nothing must collide with it where it was.</li>
+ * <li>A box that has fallen asleep on the platform must wake up and fall when the platform is moved from under it.</li>
+ * <li>An entity attached to the platform must be updated every frame.</li>
+ * </ul>
+ *
+ * Run with: java gamelib.game.StaticEntityCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class StaticEntityCheck {
+
+	static class Box extends Actor {
+		int updates;
+
+		Box(Level level, float x, float y) {
+			super(level, x, y, 1, 1);
+		}
+
+		@Override
+		public void update(float delta) {
+			updates++;
+		}
+
+		@Override
+		public void draw(PGraphics g) {
+		}
+
+		@Override
+		public void onCollidesWith(Entity entity) {
+		}
+	}
+
+	static void run(Level level, int frames) {
+		for (int i = 0; i < frames; i++) {
+			level.update(1 / 60F);
+		}
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+
+		Checks.TestLevel2D level = new Checks.TestLevel2D();
+		level.setGravity(-20);
+		BasicPlatform platform = new BasicPlatform(level, 0, 0, 4, 1);
+		Checks.check(platform.isStatic(), "platforms should be static");
+		Box sleeper = new Box(level, 2, 1.6F);
+		sleeper.setSleepEnabled(true);
+		Box rider = new Box(level, 2, -2);
+		platform.attach(rider);
+		run(level, 120);
+		Checks.check(sleeper.isOnGround() && sleeper.isSleeping(), "the box should have gone to sleep on the platform");
+		Checks.check(rider.updates == 120, "the attached entity should be updated every frame, not " + rider.updates + " times");
+
+		platform.setLocation(22, 0.5F);
+		run(level, 1);
+		Checks.check(!sleeper.isSleeping(), "the box should wake up when the platform is moved from under it");
+		run(level, 60);
+		Checks.check(sleeper.getY() < 0, "the box should fall where the platform was, not stop at " + sleeper.getY());
+		Checks.check(rider.updates == 181, "the attached entity should still be updated every frame");
+
+		Box faller = new Box(level, 22, 4);
+		run(level, 120);
+		Checks.check(faller.isOnGround() && Math.abs(faller.getY() - 1.5F) < 0.1F, "a box should land on the platform where it is now, not at " + faller.getY());
+		Checks.check(level.queryAABB(new PVector(21, 0.2F), new PVector(23, 0.8F), -1).contains(platform), "a query should find the platform where it is now");
+		Checks.check(level.queryAABB(new PVector(1, 0.2F), new PVector(3, 0.8F), -1).isEmpty(), "a query shouldn't find the platform where it was");
+		RaycastHit hit = level.raycast(new PVector(2, 3), new PVector(0, -1), 2.5F, -1);
+		Checks.check(hit == null, "a ray shouldn't hit the platform where it was");
+		hit = level.raycast(new PVector(24, -3), new PVector(0, 1), 5, -1);
+		Checks.check(hit != null && hit.getEntity() == platform, "a ray should hit the platform where it is now");
+
+		System.out.println("ok");
+	}
+}
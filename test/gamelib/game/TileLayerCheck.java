@@ -0,0 +1,227 @@
+package gamelib.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import gamelib.game.entities.Actor;
+import gamelib.game.entities.platforms.BasicPlatform;
+import processing.core.PGraphics;
+import processing.core.PVector;
+
+/**
+ * Checks that a {@link TileLayer} behaves exactly like a level with a {@link BasicPlatform} for each solid tile.
+ *
+ * The same map is built twice, once from platforms and once as a tile layer, and the same actors walk over both for 1500 frames.
+ * It is run once with stepped movement and once with half of the actors using swept collision.
+ * <ul>
+ * <li>After every frame each actor must be in exactly the same place and agree about being on the ground.</li>
+ * <li>Every 50 frames, ray casts, box casts and box and radius queries must hit the map and the actors the same way.
+ * A ray must only hit the tile layer once.</li>
+ * </ul>
+ *
+ * Run with: java gamelib.game.TileLayerCheck
+ *
+ * @author Rebecca Stevens
+ */
+public class TileLayerCheck {
+
+	static final int COLUMNS = 80;
+
+	static final int ROWS = 20;
+
+	static final int LEFT = -20;
+
+	static final int BOTTOM = -3;
+
+	static class Walker extends Actor {
+		float speed;
+
+		Walker(Level level, float x, float y, float speed) {
+			super(level, x, y, 0.8F, 1.3F);
+			this.speed = speed;
+		}
+
+		@Override
+		public void update(float delta) {
+			setVelocityX(speed);
+			if (getX() > 55 || getX() < -15) {
+				speed = -speed;
+			}
+		}
+
+		@Override
+		public void draw(PGraphics g) {
+		}
+
+		@Override
+		public void onCollidesWith(Entity entity) {
+		}
+	}
+
+	/**
+	 * Make a floor with gaps in it, walls at both ends and short ledges scattered above.
+	 *
+	 * @return Which tiles are solid
+	 */
+	static boolean[][] makeMap() {
+		boolean[][] map = new boolean[COLUMNS][ROWS];
+		Random random = new Random(7);
+		for (int c = 0; c < COLUMNS; c++) {
+			map[c][0] = true;
+			map[c][1] = c % 9 != 4;
+		}
+		for (int i = 0; i < 60; i++) {
+			int c = random.nextInt(COLUMNS - 2);
+			int r = 2 + random.nextInt(7);
+			map[c][r] = true;
+			if (random.nextBoolean()) {
+				map[c + 1][r] = true;
+			}
+		}
+		for (int r = 2; r < ROWS - 1; r++) {
+			map[0][r] = true;
+			map[COLUMNS - 1][r] = true;
+		}
+		return map;
+	}
+
+	/**
+	 * Build the map and put the actors in.
+	 *
+	 * @param level
+	 * @param map
+	 * @param tiles Whether to build the map as a tile layer or from platforms
+	 * @param swept Whether half of the actors should use swept collision
+	 * @return The actors
+	 */
+	static List<Walker> make(Level2D level, boolean[][] map, boolean tiles, boolean swept) {
+		TileLayer layer = tiles ? new TileLayer(level, LEFT, BOTTOM, COLUMNS, ROWS) : null;
+		for (int c = 0; c < COLUMNS; c++) {
+			for (int r = 0; r < ROWS; r++) {
+				if (!map[c][r]) {
+					continue;
+				}
+				if (tiles) {
+					layer.setSolid(c, r, true);
+				} else {
+					new BasicPlatform(level, LEFT + c, BOTTOM + r, 1, 1);
+				}
+			}
+		}
+
+		Random random = new Random(3);
+		List<Walker> walkers = new ArrayList<Walker>();
+		for (int i = 0; i < 60; i++) {
+			Walker walker = new Walker(level, random.nextFloat() * 60 - 15, 8 + random.nextFloat() * 6, (random.nextFloat() - 0.5F) * 8);
+			walker.setSweptCollision(swept && i % 2 == 0);
+			walkers.add(walker);
+		}
+		return walkers;
+	}
+
+	/**
+	 * Count what a query found, with the map counted once.
+	 *
+	 * @param found
+	 * @return The number of actors found, plus one if the map was
+	 */
+	static int count(List<Entity> found) {
+		boolean map = false;
+		int actors = 0;
+		for (Entity entity : found) {
+			if (entity instanceof BasicPlatform || entity instanceof TileLayer) {
+				map = true;
+			} else {
+				actors++;
+			}
+		}
+		return map ? actors + 1 : actors;
+	}
+
+	/**
+	 * Compare the queries of the two levels.
+	 *
+	 * @param platforms
+	 * @param tiles
+	 * @param random
+	 */
+	static void compareQueries(Level platforms, Level tiles, Random random) {
+		for (int q = 0; q < 40; q++) {
+			PVector origin = new PVector(random.nextFloat() * 70 - 18, random.nextFloat() * 18 - 2);
+			PVector direction = new PVector(random.nextFloat() - 0.5F, random.nextFloat() - 0.5F);
+
+			RaycastHit platformRay = platforms.raycast(origin, direction, 30, -1);
+			RaycastHit tileRay = tiles.raycast(origin, direction, 30, -1);
+			Checks.check((platformRay == null) == (tileRay == null), "a ray should hit the same way");
+			if (platformRay != null) {
+				Checks.check((platformRay.getEntity() instanceof BasicPlatform) == (tileRay.getEntity() instanceof TileLayer), "a ray should hit the map the same way");
+				Checks.check(platformRay.getDistance() == tileRay.getDistance(), "a ray should hit at the same distance");
+				Checks.check(platformRay.getNormal().x == tileRay.getNormal().x && platformRay.getNormal().y == tileRay.getNormal().y, "a ray should hit with the same normal");
+			}
+
+			RaycastHit platformBox = platforms.boxCast(origin, new PVector(0.5F, 0.7F), direction, 30, -1);
+			RaycastHit tileBox = tiles.boxCast(origin, new PVector(0.5F, 0.7F), direction, 30, -1);
+			Checks.check((platformBox == null) == (tileBox == null), "a box cast should hit the same way");
+			if (platformBox != null) {
+				Checks.check(platformBox.getDistance() == tileBox.getDistance(), "a box cast should hit at the same distance");
+			}
+
+			PVector max = PVector.add(origin, new PVector(2, 1.5F));
+			Checks.check(count(platforms.queryAABB(origin, max, -1)) == count(tiles.queryAABB(origin, max, -1)), "a box query should find the same things");
+			Checks.check(count(platforms.queryRadius(origin, 1.3F, -1)) == count(tiles.queryRadius(origin, 1.3F, -1)), "a radius query should find the same things");
+
+			int layerHits = 0;
+			for (RaycastHit hit : tiles.raycastAll(origin, direction, 30, -1)) {
+				if (hit.getEntity() instanceof TileLayer) {
+					layerHits++;
+				}
+			}
+			Checks.check(layerHits <= 1, "a ray should only hit the tile layer once");
+		}
+	}
+
+	/**
+	 * Run both levels side by side.
+	 *
+	 * @param map
+	 * @param swept
+	 */
+	static void run(boolean[][] map, boolean swept) {
+		Level2D platforms = new Checks.TestLevel2D();
+		Level2D tiles = new Checks.TestLevel2D();
+		platforms.setGravity(-20);
+		tiles.setGravity(-20);
+		List<Walker> platformWalkers = make(platforms, map, false, swept);
+		List<Walker> tileWalkers = make(tiles, map, true, swept);
+
+		Random random = new Random(7);
+		int onGround = 0;
+		for (int frame = 0; frame < 1500; frame++) {
+			platforms.update(1 / 60F);
+			tiles.update(1 / 60F);
+			for (int i = 0; i < platformWalkers.size(); i++) {
+				Walker a = platformWalkers.get(i);
+				Walker b = tileWalkers.get(i);
+				Checks.check(a.getX() == b.getX() && a.getY() == b.getY() && a.isOnGround() == b.isOnGround(),
+						"actor " + i + " should be in the same place in frame " + frame + ": " + a.getLocation() + " on ground " + a.isOnGround()
+						+ " and " + b.getLocation() + " on ground " + b.isOnGround());
+				if (a.isOnGround()) {
+					onGround++;
+				}
+			}
+			if (frame % 50 == 0) {
+				compareQueries(platforms, tiles, random);
+			}
+		}
+		System.out.println((swept ? "swept" : "stepped") + " ok: actors were on the ground for " + onGround + " frames");
+	}
+
+	public static void main(String[] args) {
+		Checks.setUp();
+		boolean[][] map = makeMap();
+		run(map, false);
+		run(map, true);
+		System.out.println("ok");
+	}
+}